@@ -1,11 +1,160 @@
 package com.bankrank;
 
+import com.bankrank.api.BankApiServer;
+import com.bankrank.auth.AuthenticationService;
+import com.bankrank.batch.BatchPostingEngine;
+import com.bankrank.batch.PostingFileFormat;
+import com.bankrank.database.AccountBulkImporter;
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.BatchCheckpointDAO;
+import com.bankrank.database.DatabaseConnection;
+import com.bankrank.database.UserDAO;
+import com.bankrank.ledger.BalanceSnapshotter;
+import com.bankrank.service.PostingBackend;
 import com.bankrank.ui.ConsoleMenu;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
 public class Main {
 
     public static void main(String[] args) {
-        ConsoleMenu menu = new ConsoleMenu();
-        menu.start();
+        if (args.length == 0) {
+            AccountDAO accountDAO = new AccountDAO();
+            PostingBackend postingBackend = startPostingBackend(accountDAO);
+            if (postingBackend == null) {
+                return;
+            }
+            // Snapshots only run while the long-lived modes are up
+            BalanceSnapshotter snapshotter = BalanceSnapshotter.start();
+            try {
+                ConsoleMenu menu = new ConsoleMenu(accountDAO, postingBackend);
+                menu.start();
+            } finally {
+                if (snapshotter != null) {
+                    snapshotter.close();
+                }
+                closePostingBackend(postingBackend);
+            }
+            return;
+        }
+
+        // Headless commands for bulk jobs
+        switch (args[0]) {
+            case "import-accounts" ->
+                importAccounts(args);
+            case "post-batch" ->
+                postBatch(args);
+            case "serve-api" ->
+                serveApi(args);
+            default -> {
+                System.out.println("Unknown command: " + args[0]);
+                printUsage();
+            }
+        }
+    }
+
+    private static void importAccounts(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        Path csvFile = Path.of(args[1]);
+        Path rejectFile = args.length > 2 ? Path.of(args[2]) : Path.of(args[1] + ".rejects.csv");
+
+        try {
+            AccountBulkImporter.ImportResult result = new AccountBulkImporter().importAccounts(csvFile, rejectFile);
+            System.out.println("✓ " + result);
+            if (result.getRejected() > 0) {
+                System.out.println("Rejected rows written to: " + rejectFile.toAbsolutePath());
+            }
+        } catch (IOException e) {
+            System.out.println("File error: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Database error: " + e.getMessage());
+        }
+    }
+
+    private static void postBatch(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        Path file = Path.of(args[1]);
+        PostingFileFormat format = args.length > 2 ? PostingFileFormat.valueOf(args[2].toUpperCase()) : PostingFileFormat.CSV;
+        String batchId = args.length > 3 ? args[3] : file.getFileName().toString();
+        Path rejectFile = Path.of(args[1] + ".rejects.csv");
+        int commitSize = Integer.parseInt(DatabaseConnection.getProperty("batch.commitSize", "1000"));
+
+        try {
+            BatchPostingEngine engine = new BatchPostingEngine(new AccountDAO(), new BatchCheckpointDAO(), commitSize);
+            BatchPostingEngine.BatchResult result = engine.run(file, format, batchId, rejectFile);
+            System.out.println("✓ " + result);
+            if (result.getRejected() > 0) {
+                System.out.println("Rejected records written to: " + rejectFile.toAbsolutePath());
+            }
+        } catch (IOException e) {
+            System.out.println("File error: " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Database error: " + e.getMessage());
+            System.out.println("Run the same command again to resume from the last checkpoint.");
+        }
+    }
+
+    private static void serveApi(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : Integer.parseInt(DatabaseConnection.getProperty("api.port", "8080"));
+
+        AccountDAO accountDAO = new AccountDAO();
+        PostingBackend postingBackend = startPostingBackend(accountDAO);
+        if (postingBackend == null) {
+            return;
+        }
+        try {
+            BankApiServer server = new BankApiServer(accountDAO, new AuthenticationService(new UserDAO()), postingBackend, port);
+            BalanceSnapshotter snapshotter = BalanceSnapshotter.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                if (snapshotter != null) {
+                    snapshotter.close();
+                }
+                // After the server, so no request posts to a closed ledger
+                closePostingBackend(postingBackend);
+            }));
+            server.start();
+            System.out.println("✓ API listening on port " + server.getPort());
+        } catch (IOException e) {
+            System.out.println("Could not start API: " + e.getMessage());
+            closePostingBackend(postingBackend);
+        }
+    }
+
+    /**
+     * The backend chosen by ledger.postingMode, or null after printing why
+     * it could not start.
+     */
+    private static PostingBackend startPostingBackend(AccountDAO accountDAO) {
+        try {
+            return PostingBackend.fromConfig(accountDAO);
+        } catch (SQLException | IllegalArgumentException e) {
+            System.out.println("Could not start the ledger: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static void closePostingBackend(PostingBackend postingBackend) {
+        try {
+            postingBackend.close();
+        } catch (SQLException e) {
+            System.out.println("Could not write pending postings: " + e.getMessage());
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage:");
+        System.out.println("  (no arguments)                               start the console menu");
+        System.out.println("  import-accounts <accounts.csv> [rejects.csv] bulk import accounts");
+        System.out.println("  post-batch <file> [csv|fixed] [batch-id]     post a deposit/withdrawal/transfer file");
+        System.out.println("  serve-api [port]                             start the HTTP/JSON API");
     }
 }
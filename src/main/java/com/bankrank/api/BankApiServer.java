@@ -0,0 +1,447 @@
+package com.bankrank.api;
+
+import com.bankrank.auth.AuthenticationService;
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.OptimisticLockException;
+import com.bankrank.model.Account;
+import com.bankrank.model.AccountState;
+import com.bankrank.model.AccountType;
+import com.bankrank.model.AccountTypeCatalog;
+import com.bankrank.model.InterestResult;
+import com.bankrank.model.Role;
+import com.bankrank.model.Statement;
+import com.bankrank.model.Transaction;
+import com.bankrank.model.TransferResult;
+import com.bankrank.model.User;
+import com.bankrank.service.AccountService;
+import com.bankrank.service.PostingBackend;
+import com.bankrank.service.CallerContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedded HTTP/JSON API over AccountService.
+ *
+ * Every request authenticates with HTTP Basic auth against the users
+ * table; there is no server-side session. AuthenticationService remembers
+ * verified credentials briefly, so a client sending the same header does
+ * not pay for a BCrypt check on every request. Staff roles may use any account
+ * and customers only the accounts they own; AccountService enforces it.
+ * An Idempotency-Key header makes a deposit, withdrawal or transfer safe
+ * to retry.
+ *
+ * Each request runs on its own virtual thread on JDK 21 and later, so a
+ * request blocked on JDBC does not hold a platform thread. Older JDKs get
+ * a cached thread pool instead. Either way the connection pool bounds how
+ * many requests reach the database at once.
+ *
+ * Endpoints:
+ * <pre>
+ * POST /accounts                       {customerName, accountType, initialDeposit, pin}
+ * GET  /accounts?name=&amp;type=           account summaries (staff)
+ * GET  /accounts/{id}
+ * POST /accounts/{id}/deposits         {amount}
+ * POST /accounts/{id}/withdrawals      {amount, pin}
+ * POST /accounts/{id}/interest
+ * GET  /accounts/{id}/statement?from=yyyy-MM-dd&amp;to=yyyy-MM-dd
+ * PUT  /accounts/{id}/name             {pin, customerName}
+ * PUT  /accounts/{id}/pin              {currentPin, newPin}
+ * POST /transfers                      {sourceId, destinationId, amount, pin}
+ * </pre>
+ */
+public class BankApiServer implements AutoCloseable {
+
+    private final AccountService accountService;
+    private final AuthenticationService authService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * An error with the HTTP status it maps to.
+     */
+    private static final class ApiException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        private ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    public BankApiServer(AccountDAO accountDAO, AuthenticationService authService, PostingBackend postingBackend,
+                         int port) throws IOException {
+        this.accountService = new AccountService(accountDAO, authService, postingBackend);
+        this.authService = authService;
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        server.createContext("/accounts", this::handle);
+        server.createContext("/transfers", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and gives running ones a few seconds to finish.
+     */
+    @Override
+    public void close() {
+        server.stop(5);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Virtual thread per task where the JDK has it. Looked up reflectively
+     * so the project still builds for Java 17.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            try {
+                User user = authenticate(exchange);
+                CallerContext caller = CallerContext.of(user);
+                String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+                if (key != null && !key.isBlank()) {
+                    caller = caller.withIdempotencyKey(key);
+                }
+                route(exchange, caller);
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (SecurityException e) {
+                sendError(exchange, 403, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, e.getMessage() != null && e.getMessage().startsWith("Account not found") ? 404 : 400, e.getMessage());
+            } catch (OptimisticLockException e) {
+                sendError(exchange, 409, e.getMessage());
+            } catch (SQLException e) {
+                sendError(exchange, 500, "Database error: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // Anything unexpected still gets a JSON answer instead of a dropped connection
+                sendError(exchange, 500, "Internal error");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange, CallerContext caller) throws IOException, SQLException {
+        String method = exchange.getRequestMethod();
+        String[] parts = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+
+        if (parts[0].equals("transfers") && parts.length == 1) {
+            requireMethod(method, "POST");
+            transfer(exchange, caller);
+            return;
+        }
+        if (!parts[0].equals("accounts")) {
+            throw new ApiException(404, "No such endpoint");
+        }
+
+        if (parts.length == 1) {
+            if (method.equals("POST")) {
+                createAccount(exchange, caller);
+            } else {
+                requireMethod(method, "GET");
+                listAccounts(exchange, caller);
+            }
+            return;
+        }
+
+        UUID accountId = parseUuid(parts[1]);
+        String action = parts.length > 2 ? parts[2] : "";
+        if (parts.length > 3) {
+            throw new ApiException(404, "No such endpoint");
+        }
+
+        switch (action) {
+            case "" -> {
+                requireMethod(method, "GET");
+                sendJson(exchange, 200, accountJson(accountService.findAccount(caller, accountId)));
+            }
+            case "deposits" -> {
+                requireMethod(method, "POST");
+                Map<String, String> body = readBody(exchange);
+                BigDecimal balance = accountService.deposit(caller, accountId, requireAmount(body));
+                sendJson(exchange, 200, balanceJson(accountId, balance));
+            }
+            case "withdrawals" -> {
+                requireMethod(method, "POST");
+                Map<String, String> body = readBody(exchange);
+                BigDecimal balance = accountService.withdraw(caller, accountId, require(body, "pin"), requireAmount(body));
+                sendJson(exchange, 200, balanceJson(accountId, balance));
+            }
+            case "interest" -> {
+                requireMethod(method, "POST");
+                InterestResult result = accountService.applyInterest(caller, accountId);
+                sendJson(exchange, 200, "{\"accountId\": " + Json.quote(accountId)
+                        + ", \"interest\": " + result.getInterest() + ", \"balance\": " + result.getBalance() + "}");
+            }
+            case "statement" -> {
+                requireMethod(method, "GET");
+                Map<String, String> query = parseQuery(exchange);
+                Statement statement = accountService.statement(caller, accountId,
+                        parseDate(query.get("from")), parseDate(query.get("to")));
+                sendJson(exchange, 200, statementJson(statement));
+            }
+            case "name" -> {
+                requireMethod(method, "PUT");
+                Map<String, String> body = readBody(exchange);
+                Account account = accountService.changeCustomerName(caller, accountId, require(body, "pin"), require(body, "customerName"));
+                sendJson(exchange, 200, accountJson(account));
+            }
+            case "pin" -> {
+                requireMethod(method, "PUT");
+                Map<String, String> body = readBody(exchange);
+                accountService.changePin(caller, accountId, require(body, "currentPin"), require(body, "newPin"));
+                sendJson(exchange, 200, "{\"accountId\": " + Json.quote(accountId) + "}");
+            }
+            default ->
+                throw new ApiException(404, "No such endpoint");
+        }
+    }
+
+    private void createAccount(HttpExchange exchange, CallerContext caller) throws IOException, SQLException {
+        Map<String, String> body = readBody(exchange);
+
+        AccountType accountType = AccountTypeCatalog.forCode(require(body, "accountType").toUpperCase());
+        Account account = accountService.createAccount(caller, require(body, "customerName"), accountType,
+                parseAmount(require(body, "initialDeposit")), require(body, "pin"));
+        sendJson(exchange, 201, accountJson(account));
+    }
+
+    /**
+     * Streams summaries straight to the response, so a large listing is
+     * never held in memory.
+     */
+    private void listAccounts(HttpExchange exchange, CallerContext caller) throws IOException, SQLException {
+        // The service checks this too, but a refusal must come before the 200 headers
+        caller.requirePermission(Role.TELLER);
+        Map<String, String> query = parseQuery(exchange);
+        String type = query.get("type") != null ? query.get("type").toUpperCase() : null;
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        Writer out = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+        out.write("[");
+        boolean[] first = {true};
+        try {
+            accountService.streamAccountSummaries(caller, query.get("name"), type, summary -> {
+                try {
+                    out.write(first[0] ? "\n" : ",\n");
+                    first[0] = false;
+                    out.write("{\"accountId\": " + Json.quote(summary.getAccountNumber())
+                            + ", \"customerName\": " + Json.quote(summary.getCustomerName())
+                            + ", \"accountType\": " + Json.quote(summary.getAccountTypeName())
+                            + ", \"balance\": " + summary.getBalance() + "}");
+                } catch (IOException e) {
+                    throw new ApiException(499, "Client went away");
+                }
+            });
+        } catch (SQLException | ApiException e) {
+            // Headers are gone already; a truncated body is all that can signal it
+            out.flush();
+            return;
+        }
+        out.write("\n]\n");
+        out.flush();
+    }
+
+    private void transfer(HttpExchange exchange, CallerContext caller) throws IOException, SQLException {
+        Map<String, String> body = readBody(exchange);
+        UUID sourceId = parseUuid(require(body, "sourceId"));
+        UUID destinationId = parseUuid(require(body, "destinationId"));
+
+        TransferResult result = accountService.transfer(caller, sourceId, destinationId, require(body, "pin"), requireAmount(body));
+        sendJson(exchange, 200, "{\"sourceId\": " + Json.quote(result.getSourceAccountId())
+                + ", \"sourceCustomerName\": " + Json.quote(result.getSourceCustomerName())
+                + ", \"sourceBalance\": " + result.getSourceBalance()
+                + ", \"destinationId\": " + Json.quote(result.getDestinationAccountId())
+                + ", \"destinationCustomerName\": " + Json.quote(result.getDestinationCustomerName()) + "}");
+    }
+
+    private User authenticate(HttpExchange exchange) throws SQLException {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Basic ", 0, 6)) {
+            throw unauthorized(exchange);
+        }
+
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(header.substring(6).trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw unauthorized(exchange);
+        }
+        int colon = credentials.indexOf(':');
+        if (colon < 0) {
+            throw unauthorized(exchange);
+        }
+
+        User user = authService.authenticate(credentials.substring(0, colon), credentials.substring(colon + 1));
+        if (user == null) {
+            throw unauthorized(exchange);
+        }
+        return user;
+    }
+
+    private ApiException unauthorized(HttpExchange exchange) {
+        exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"bankrank\"");
+        return new ApiException(401, "Authentication required");
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!method.equals(expected)) {
+            throw new ApiException(405, "Use " + expected);
+        }
+    }
+
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return body.isBlank() ? Map.of() : Json.parseObject(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && eq < pair.length() - 1) {
+                query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static String require(Map<String, String> body, String field) {
+        String value = body.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return value;
+    }
+
+    private static BigDecimal requireAmount(Map<String, String> body) {
+        return parseAmount(require(body, "amount"));
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+    }
+
+    private static UUID parseUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Invalid account ID: " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date (use yyyy-MM-dd): " + value);
+        }
+    }
+
+    private static String accountJson(Account current) {
+        AccountState account = current.snapshot();
+        return "{\"accountId\": " + Json.quote(account.getAccountNumber())
+                + ", \"customerName\": " + Json.quote(account.getCustomerName())
+                + ", \"accountType\": " + Json.quote(account.getAccountType().getCode())
+                + ", \"balance\": " + account.getBalance()
+                + ", \"dateCreated\": " + Json.quote(account.getDateCreated()) + "}";
+    }
+
+    private static String balanceJson(UUID accountId, BigDecimal balance) {
+        return "{\"accountId\": " + Json.quote(accountId) + ", \"balance\": " + balance + "}";
+    }
+
+    private static String statementJson(Statement statement) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"accountId\": ").append(Json.quote(statement.getAccount().getAccountNumber()));
+        json.append(", \"customerName\": ").append(Json.quote(statement.getAccount().getCustomerName()));
+        json.append(", \"balance\": ").append(statement.getAccount().getBalance());
+        json.append(", \"startDate\": ").append(Json.quote(statement.getStartDate()));
+        json.append(", \"endDate\": ").append(Json.quote(statement.getEndDate()));
+        json.append(", \"transactions\": [");
+        for (int i = 0; i < statement.getTransactions().size(); i++) {
+            Transaction t = statement.getTransactions().get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append("{\"date\": ").append(Json.quote(t.getDateTime()));
+            json.append(", \"type\": ").append(Json.quote(t.getTransactionType()));
+            json.append(", \"amount\": ").append(t.getAmount());
+            json.append(", \"counterpartyId\": ").append(Json.quote(t.getCounterpartyId()));
+            json.append(", \"reference\": ").append(Json.quote(t.getReference()));
+            json.append(", \"description\": ").append(Json.quote(t.getDescription())).append("}");
+        }
+        json.append("]}\n");
+        return json.toString();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, "{\"error\": " + Json.quote(message) + "}");
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
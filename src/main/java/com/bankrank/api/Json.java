@@ -0,0 +1,176 @@
+package com.bankrank.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the API: request bodies are flat objects whose
+ * values are strings, numbers, booleans or null, and responses are built
+ * by hand with quote(). Numbers are kept as their text so amounts reach
+ * BigDecimal without going through double.
+ */
+final class Json {
+
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a flat JSON object into its values as text; null values are
+     * left out.
+     *
+     * @throws IllegalArgumentException if the body is not such an object
+     */
+    static Map<String, String> parseObject(String body) {
+        Json parser = new Json(body);
+        Map<String, String> values = new HashMap<>();
+
+        parser.expect('{');
+        if (parser.peek() == '}') {
+            parser.pos++;
+            parser.requireEnd();
+            return values;
+        }
+        while (true) {
+            String key = parser.readString();
+            parser.expect(':');
+            String value = parser.readValue();
+            if (value != null) {
+                values.put(key, value);
+            }
+            char next = parser.next();
+            if (next == '}') {
+                break;
+            }
+            if (next != ',') {
+                throw parser.error("Expected ',' or '}'");
+            }
+        }
+        parser.requireEnd();
+        return values;
+    }
+
+    /**
+     * A JSON string literal, or null, for the value.
+     */
+    static String quote(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        String s = value.toString();
+        StringBuilder out = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private String readValue() {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        int start = pos;
+        while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+            pos++;
+        }
+        String literal = text.substring(start, pos);
+        if (literal.isEmpty()) {
+            throw error("Expected a value");
+        }
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (!literal.equals("true") && !literal.equals("false") && !literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+            throw error("Nested or invalid value");
+        }
+        return literal;
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder out = new StringBuilder();
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') {
+                return out.toString();
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (pos >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+                case 'n' -> out.append('\n');
+                case 'r' -> out.append('\r');
+                case 't' -> out.append('\t');
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'u' -> {
+                    if (pos + 4 > text.length()) {
+                        throw error("Bad unicode escape");
+                    }
+                    out.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    pos += 4;
+                }
+                default -> out.append(escaped);
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void expect(char c) {
+        if (next() != c) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private char peek() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= text.length()) {
+            throw error("Unexpected end of JSON");
+        }
+        return text.charAt(pos);
+    }
+
+    private void requireEnd() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos < text.length()) {
+            throw error("Unexpected content after JSON object");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at position " + pos + ": " + message);
+    }
+}
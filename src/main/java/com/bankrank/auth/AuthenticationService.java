@@ -1,17 +1,39 @@
 package com.bankrank.auth;
 
+import com.bankrank.database.DatabaseConnection;
 import com.bankrank.database.UserDAO;
 import com.bankrank.model.Role;
 import com.bankrank.model.User;
 import com.bankrank.util.PasswordUtil;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles user authentication and authorization.
  */
 public class AuthenticationService {
+
+    // Credentials checked by authenticate in the last few seconds, keyed by
+    // a SHA-256 of username and password, so per-request callers pay for
+    // BCrypt once per TTL instead of on every request. Shared by every
+    // instance so updateUser clears it for all of them.
+    private static final Map<String, VerifiedCredentials> verified = new ConcurrentHashMap<>();
+    private static final long CREDENTIAL_TTL_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            Long.parseLong(DatabaseConnection.getProperty("auth.credentialCacheMs", "30000")));
+    // Expired entries are swept when the cache grows past this
+    private static final int CREDENTIAL_CACHE_SWEEP_SIZE = 1024;
+
+    private record VerifiedCredentials(User user, long expiresAt) {
+    }
+
     private final UserDAO userDAO;
     private final Session session;
 
@@ -54,6 +76,49 @@ public class AuthenticationService {
         return true;
     }
 
+    /**
+     * Check a username and password without logging in, for callers that
+     * authenticate every request instead of keeping a session. A successful
+     * check is remembered for auth.credentialCacheMs, so a user disabled
+     * outside updateUser keeps access for at most that long.
+     *
+     * @return The active user, or null if the credentials are wrong or the
+     * user is disabled
+     * @throws SQLException if database error occurs
+     */
+    public User authenticate(String username, String password) throws SQLException {
+        String key = credentialKey(username, password);
+        VerifiedCredentials cached = verified.get(key);
+        long now = System.nanoTime();
+        if (cached != null && cached.expiresAt - now > 0) {
+            return cached.user;
+        }
+
+        User user = userDAO.findByUsername(username);
+        if (user == null || !user.isActive() || !PasswordUtil.verifyPin(password, user.getPasswordHash())) {
+            verified.remove(key);
+            return null;
+        }
+        if (verified.size() >= CREDENTIAL_CACHE_SWEEP_SIZE) {
+            verified.values().removeIf(entry -> entry.expiresAt - now <= 0);
+        }
+        verified.put(key, new VerifiedCredentials(user, now + CREDENTIAL_TTL_NANOS));
+        return user;
+    }
+
+    /**
+     * Save changes to a user, such as disabling it or changing its role, and
+     * forget its cached credentials so the change applies to the next
+     * request.
+     *
+     * @throws SQLException if database error occurs
+     */
+    public void updateUser(User user) throws SQLException {
+        userDAO.update(user);
+        UUID userId = user.getId();
+        verified.values().removeIf(entry -> entry.user.getId().equals(userId));
+    }
+
     /**
      * Log out the current user.
      */
@@ -100,9 +165,14 @@ public class AuthenticationService {
         if (!session.isLoggedIn()) {
             return false;
         }
+        return canAccessAccount(session.getCurrentUser(), accountId);
+    }
 
-        User user = session.getCurrentUser();
-
+    /**
+     * Check if the given user can access a specific account, for callers
+     * that do not go through the console session.
+     */
+    public boolean canAccessAccount(User user, UUID accountId) throws SQLException {
         // Staff can access all accounts
         if (user.isStaff()) {
             return true;
@@ -124,6 +194,17 @@ public class AuthenticationService {
         }
     }
 
+    private static String credentialKey(String username, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return Base64.getEncoder().encodeToString(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * Require that current user can access the specified account.
      *
@@ -8,28 +8,32 @@ import java.time.LocalDateTime;
  * Singleton session manager that tracks the currently logged-in user.
  * In a real web application, this would be handled by HTTP sessions,
  * but for a console app, we use a simple singleton.
+ *
+ * Safe to read from several threads; services take a CallerContext per
+ * call instead of reading the session.
  */
 public class Session {
-    private static Session instance;
+    private static final Session instance = new Session();
 
-    private User currentUser;
-    private LocalDateTime loginTime;
+    /**
+     * User and login time, replaced together so readers never see a mix.
+     */
+    private record Login(User user, LocalDateTime time) {
+    }
+
+    private volatile Login login;
 
     /**
      * Private constructor (singleton pattern).
      */
     private Session() {
-        this.currentUser = null;
-        this.loginTime = null;
+        this.login = null;
     }
 
     /**
      * Get the singleton instance.
      */
     public static Session getInstance() {
-        if (instance == null) {
-            instance = new Session();
-        }
         return instance;
     }
 
@@ -37,23 +41,21 @@ public class Session {
      * Log in a user.
      */
     public void login(User user) {
-        this.currentUser = user;
-        this.loginTime = LocalDateTime.now();
+        this.login = new Login(user, LocalDateTime.now());
     }
 
     /**
      * Log out the current user.
      */
     public void logout() {
-        this.currentUser = null;
-        this.loginTime = null;
+        this.login = null;
     }
 
     /**
      * Check if a user is currently logged in.
      */
     public boolean isLoggedIn() {
-        return currentUser != null;
+        return login != null;
     }
 
     /**
@@ -61,14 +63,16 @@ public class Session {
      * @return Current user, or null if not logged in
      */
     public User getCurrentUser() {
-        return currentUser;
+        Login current = login;
+        return current != null ? current.user() : null;
     }
 
     /**
      * Get the login time.
      */
     public LocalDateTime getLoginTime() {
-        return loginTime;
+        Login current = login;
+        return current != null ? current.time() : null;
     }
 
     /**
@@ -85,7 +89,10 @@ public class Session {
      * Get current user (throws exception if not logged in).
      */
     public User getCurrentUserOrThrow() {
-        requireLogin();
-        return currentUser;
+        User user = getCurrentUser();
+        if (user == null) {
+            throw new IllegalStateException("You must be logged in to perform this action");
+        }
+        return user;
     }
 }
@@ -0,0 +1,254 @@
+package com.bankrank.batch;
+
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.BatchCheckpointDAO;
+import com.bankrank.database.DatabaseConnection;
+import com.bankrank.model.Account;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Headless posting of deposit/withdrawal/transfer files.
+ *
+ * The file is read in chunks of commitSize records. For each chunk every
+ * account it touches is loaded and row-locked once, the records are applied
+ * in file order through Account's own rules, and all resulting balances and
+ * transactions are written with JDBC batches in a single commit together
+ * with a checkpoint of the last line covered. A crashed or failed run started
+ * again with the same batch id resumes after the last committed chunk.
+ *
+ * Records that break a rule (unknown account, insufficient funds, ...) are
+ * skipped and written to the reject file once their chunk has committed.
+ */
+public class BatchPostingEngine {
+
+    private final AccountDAO accountDAO;
+    private final BatchCheckpointDAO checkpointDAO;
+    private final int commitSize;
+
+    public BatchPostingEngine(AccountDAO accountDAO, BatchCheckpointDAO checkpointDAO, int commitSize) {
+        if (commitSize < 1) {
+            throw new IllegalArgumentException("commitSize must be at least 1");
+        }
+        this.accountDAO = accountDAO;
+        this.checkpointDAO = checkpointDAO;
+        this.commitSize = commitSize;
+    }
+
+    /**
+     * Summary of one run.
+     */
+    public static class BatchResult {
+
+        private final long resumedAfterLine;
+        private final long posted;
+        private final long rejected;
+        private final long commits;
+        private final long elapsedMillis;
+
+        public BatchResult(long resumedAfterLine, long posted, long rejected, long commits, long elapsedMillis) {
+            this.resumedAfterLine = resumedAfterLine;
+            this.posted = posted;
+            this.rejected = rejected;
+            this.commits = commits;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getResumedAfterLine() {
+            return resumedAfterLine;
+        }
+
+        public long getPosted() {
+            return posted;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getCommits() {
+            return commits;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Posted " + posted + ", rejected " + rejected + " in " + commits + " commit(s), "
+                    + elapsedMillis + " ms" + (resumedAfterLine > 0 ? " (resumed after line " + resumedAfterLine + ")" : "");
+        }
+    }
+
+    /**
+     * Records and rejects gathered for one commit.
+     */
+    private static final class Chunk {
+
+        private final List<PostingRecord> records = new ArrayList<>();
+        private final List<String> rejects = new ArrayList<>();
+        private long lastLine;
+    }
+
+    /**
+     * Posts every record of the file, resuming after the last checkpoint of
+     * batchId if it has run before.
+     */
+    public BatchResult run(Path file, PostingFileFormat format, String batchId, Path rejectFile) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        long resumeAfter = checkpointDAO.getLastCommittedLine(batchId);
+        long posted = 0;
+        long rejected = 0;
+        long commits = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+
+            Chunk chunk = new Chunk();
+            long lineNumber = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber <= resumeAfter) {
+                    continue;  // Already committed by an earlier run
+                }
+                chunk.lastLine = lineNumber;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    chunk.records.add(format.parse(lineNumber, line));
+                } catch (IllegalArgumentException e) {
+                    chunk.rejects.add(rejectLine(lineNumber, e.getMessage(), line));
+                }
+
+                if (chunk.records.size() == commitSize) {
+                    posted += postChunk(chunk, batchId);
+                    rejected += writeRejects(rejects, chunk);
+                    commits++;
+                    chunk = new Chunk();
+                }
+            }
+
+            if (chunk.lastLine > 0) {
+                posted += postChunk(chunk, batchId);
+                rejected += writeRejects(rejects, chunk);
+                commits++;
+            }
+        }
+
+        return new BatchResult(resumeAfter, posted, rejected, commits, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Applies one chunk and commits it with its checkpoint.
+     *
+     * @return The number of records posted
+     */
+    private long postChunk(Chunk chunk, String batchId) throws SQLException {
+        Set<UUID> accountIds = new HashSet<>();
+        for (PostingRecord record : chunk.records) {
+            accountIds.add(record.getAccountId());
+            if (record.getDestinationAccountId() != null) {
+                accountIds.add(record.getDestinationAccountId());
+            }
+        }
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            // Each account is loaded and locked once per chunk
+            Map<UUID, Account> accounts = accountDAO.lockAccounts(conn, accountIds);
+            Set<Account> touched = new LinkedHashSet<>();
+            long posted = 0;
+
+            for (PostingRecord record : chunk.records) {
+                try {
+                    apply(record, accounts, touched);
+                    posted++;
+                } catch (IllegalArgumentException e) {
+                    chunk.rejects.add(rejectLine(record.getLineNumber(), e.getMessage(), describe(record)));
+                }
+            }
+
+            accountDAO.saveChanges(conn, touched);
+            checkpointDAO.saveCheckpoint(conn, batchId, chunk.lastLine);
+            conn.commit();
+            accountDAO.markChangesCommitted(touched);
+            return posted;
+        } catch (SQLException | RuntimeException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    private void apply(PostingRecord record, Map<UUID, Account> accounts, Set<Account> touched) {
+        Account account = require(accounts, record.getAccountId());
+        switch (record.getKind()) {
+            case DEPOSIT ->
+                account.deposit(record.getAmount());
+            case WITHDRAWAL ->
+                account.withdraw(record.getAmount());
+            case TRANSFER -> {
+                Account destination = require(accounts, record.getDestinationAccountId());
+                account.transferTo(destination, record.getAmount());
+                touched.add(destination);
+            }
+        }
+        touched.add(account);
+    }
+
+    private Account require(Map<UUID, Account> accounts, UUID accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found: " + accountId);
+        }
+        return account;
+    }
+
+    private long writeRejects(BufferedWriter rejects, Chunk chunk) throws IOException {
+        for (String reject : chunk.rejects) {
+            rejects.write(reject);
+            rejects.newLine();
+        }
+        rejects.flush();
+        return chunk.rejects.size();
+    }
+
+    private String rejectLine(long lineNumber, String reason, String line) {
+        return lineNumber + ",\"" + reason.replace("\"", "\"\"") + "\",\"" + line.replace("\"", "\"\"") + "\"";
+    }
+
+    private String describe(PostingRecord record) {
+        return record.getKind() + "," + record.getAccountId() + "," + record.getAmount()
+                + (record.getDestinationAccountId() != null ? "," + record.getDestinationAccountId() : "");
+    }
+}
@@ -0,0 +1,97 @@
+package com.bankrank.batch;
+
+import com.bankrank.model.Money;
+
+import java.util.UUID;
+
+/**
+ * Supported posting file layouts.
+ *
+ * CSV: kind,account_id,amount[,destination_account_id]
+ * where kind is DEPOSIT, WITHDRAWAL or TRANSFER and amount is in dollars.
+ *
+ * FIXED (ACH-style, 88 characters):
+ * col 1 kind code (D, W or T), cols 2-37 account id, cols 38-73 destination
+ * id (blank unless T), cols 74-88 amount in cents, zero padded.
+ */
+public enum PostingFileFormat {
+
+    CSV {
+        @Override
+        PostingRecord parse(long lineNumber, String line) {
+            String[] fields = line.split(",", -1);
+            if (fields.length < 3 || fields.length > 4) {
+                throw new IllegalArgumentException("Expected 3 or 4 columns but found " + fields.length);
+            }
+            PostingRecord.Kind kind = parseKind(fields[0].trim().toUpperCase());
+            UUID accountId = parseId(fields[1]);
+            Money amount = parseAmount(fields[2].trim());
+            UUID destination = fields.length == 4 && !fields[3].isBlank() ? parseId(fields[3]) : null;
+            return build(lineNumber, kind, accountId, destination, amount);
+        }
+    },
+
+    FIXED {
+        @Override
+        PostingRecord parse(long lineNumber, String line) {
+            if (line.length() != 88) {
+                throw new IllegalArgumentException("Expected 88 characters but found " + line.length());
+            }
+            PostingRecord.Kind kind = switch (line.charAt(0)) {
+                case 'D' -> PostingRecord.Kind.DEPOSIT;
+                case 'W' -> PostingRecord.Kind.WITHDRAWAL;
+                case 'T' -> PostingRecord.Kind.TRANSFER;
+                default -> throw new IllegalArgumentException("Unknown record code: " + line.charAt(0));
+            };
+            UUID accountId = parseId(line.substring(1, 37));
+            String destinationField = line.substring(37, 73);
+            UUID destination = destinationField.isBlank() ? null : parseId(destinationField);
+            String cents = line.substring(73, 88);
+            if (!cents.matches("\\d{15}")) {
+                throw new IllegalArgumentException("Invalid amount: " + cents);
+            }
+            return build(lineNumber, kind, accountId, destination, Money.ofCents(Long.parseLong(cents)));
+        }
+    };
+
+    /**
+     * Parses one line.
+     *
+     * @throws IllegalArgumentException if the line is malformed
+     */
+    abstract PostingRecord parse(long lineNumber, String line);
+
+    private static PostingRecord build(long lineNumber, PostingRecord.Kind kind, UUID accountId, UUID destination, Money amount) {
+        if (kind == PostingRecord.Kind.TRANSFER && destination == null) {
+            throw new IllegalArgumentException("Transfer is missing a destination account");
+        }
+        if (kind != PostingRecord.Kind.TRANSFER && destination != null) {
+            throw new IllegalArgumentException(kind + " must not have a destination account");
+        }
+        return new PostingRecord(lineNumber, kind, accountId, destination, amount);
+    }
+
+    private static PostingRecord.Kind parseKind(String value) {
+        try {
+            return PostingRecord.Kind.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown posting kind: " + value);
+        }
+    }
+
+    private static UUID parseId(String value) {
+        try {
+            return UUID.fromString(value.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid account ID: " + value.trim());
+        }
+    }
+
+    private static Money parseAmount(String value) {
+        try {
+            return Money.parse(value);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.bankrank.batch;
+
+import com.bankrank.model.Money;
+
+import java.util.UUID;
+
+/**
+ * One line of a posting file: a deposit, withdrawal or transfer.
+ */
+public class PostingRecord {
+
+    public enum Kind {
+        DEPOSIT, WITHDRAWAL, TRANSFER
+    }
+
+    private final long lineNumber;
+    private final Kind kind;
+    private final UUID accountId;
+    private final UUID destinationAccountId;
+    private final Money amount;
+
+    public PostingRecord(long lineNumber, Kind kind, UUID accountId, UUID destinationAccountId, Money amount) {
+        this.lineNumber = lineNumber;
+        this.kind = kind;
+        this.accountId = accountId;
+        this.destinationAccountId = destinationAccountId;
+        this.amount = amount;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * Destination of a transfer; null for deposits and withdrawals.
+     */
+    public UUID getDestinationAccountId() {
+        return destinationAccountId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,288 @@
+package com.bankrank.database;
+
+import com.bankrank.model.Account;
+import com.bankrank.model.AccountType;
+import com.bankrank.model.AccountTypeCatalog;
+import com.bankrank.model.Money;
+import com.bankrank.util.PasswordUtil;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Bulk account onboarding from CSV.
+ *
+ * Input columns: customer_name,account_type,initial_deposit,pin (header
+ * row required). The pin column holds either a 4-digit PIN, which is hashed
+ * here, or an existing BCrypt hash, which is stored as-is.
+ *
+ * Rows are validated with the same rules as account creation in the menu;
+ * invalid rows go to the reject file with their line number and reason.
+ * PINs are hashed on all cores, and each chunk of valid rows is streamed into
+ * the accounts table with PostgreSQL COPY while the next chunk is hashing.
+ */
+public class AccountBulkImporter {
+
+    private static final int CHUNK_SIZE = 5_000;
+    private static final String COPY_SQL = "COPY accounts (id, customer_name, balance, date_created, account_type, pin_hash, is_locked, version) "
+            + "FROM STDIN WITH (FORMAT csv)";
+
+    private final int hashThreads;
+
+    public AccountBulkImporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public AccountBulkImporter(int hashThreads) {
+        this.hashThreads = hashThreads;
+    }
+
+    /**
+     * Summary of one import run.
+     */
+    public static class ImportResult {
+
+        private final long imported;
+        private final long rejected;
+        private final long elapsedMillis;
+
+        public ImportResult(long imported, long rejected, long elapsedMillis) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Imported " + imported + " account(s), rejected " + rejected + " row(s) in " + elapsedMillis + " ms";
+        }
+    }
+
+    /**
+     * A validated input row waiting for its PIN hash.
+     */
+    private static final class PendingRow {
+
+        private final UUID id;
+        private final String customerName;
+        private final BigDecimal balance;
+        private final String accountTypeName;
+        private final CompletableFuture<String> pinHash;
+
+        private PendingRow(UUID id, String customerName, BigDecimal balance, String accountTypeName, CompletableFuture<String> pinHash) {
+            this.id = id;
+            this.customerName = customerName;
+            this.balance = balance;
+            this.accountTypeName = accountTypeName;
+            this.pinHash = pinHash;
+        }
+    }
+
+    /**
+     * Imports every valid row of the CSV file. Rejected rows are written to
+     * rejectFile as: line,reason,original line.
+     */
+    public ImportResult importAccounts(Path csvFile, Path rejectFile) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        long imported = 0;
+        long rejected = 0;
+
+        ExecutorService hashPool = Executors.newFixedThreadPool(hashThreads);
+        try (BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectFile, StandardCharsets.UTF_8);
+             Connection conn = DatabaseConnection.getConnection()) {
+
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+            rejects.write("line,reason,row");
+            rejects.newLine();
+
+            String header = reader.readLine();
+            if (header == null) {
+                return new ImportResult(0, 0, System.currentTimeMillis() - start);
+            }
+
+            LocalDate today = LocalDate.now();
+            List<PendingRow> previousChunk = null;
+            List<PendingRow> chunk = new ArrayList<>(CHUNK_SIZE);
+            long lineNumber = 1;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    chunk.add(parseRow(line, hashPool));
+                } catch (IllegalArgumentException e) {
+                    writeReject(rejects, lineNumber, e.getMessage(), line);
+                    rejected++;
+                }
+
+                if (chunk.size() == CHUNK_SIZE) {
+                    // Hashing of this chunk overlaps with the COPY of the previous one
+                    if (previousChunk != null) {
+                        imported += copyChunk(copyManager, previousChunk, today);
+                    }
+                    previousChunk = chunk;
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+
+            if (previousChunk != null) {
+                imported += copyChunk(copyManager, previousChunk, today);
+            }
+            imported += copyChunk(copyManager, chunk, today);
+        } finally {
+            hashPool.shutdownNow();
+        }
+
+        return new ImportResult(imported, rejected, System.currentTimeMillis() - start);
+    }
+
+    private PendingRow parseRow(String line, ExecutorService hashPool) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() != 4) {
+            throw new IllegalArgumentException("Expected 4 columns but found " + fields.size());
+        }
+
+        String customerName = fields.get(0).trim();
+        String accountTypeName = fields.get(1).trim().toUpperCase();
+        AccountType accountType = AccountTypeCatalog.forCode(accountTypeName);
+
+        BigDecimal initialDeposit;
+        try {
+            initialDeposit = new BigDecimal(fields.get(2).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid initial deposit: " + fields.get(2));
+        }
+        if (initialDeposit.compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("Initial deposit cannot be negative");
+        }
+        if (Money.of(initialDeposit).compareTo(accountType.getMinimumBalance()) < 0) {
+            throw new IllegalArgumentException("Initial deposit must be at least $" + accountType.getMinimumBalance());
+        }
+
+        String pin = fields.get(3).trim();
+        CompletableFuture<String> pinHash;
+        if (isBcryptHash(pin)) {
+            pinHash = CompletableFuture.completedFuture(pin);
+        } else if (pin.matches("\\d{4}")) {
+            pinHash = CompletableFuture.supplyAsync(() -> PasswordUtil.hashPin(pin), hashPool);
+        } else {
+            throw new IllegalArgumentException("PIN must be exactly 4 digits or a BCrypt hash");
+        }
+
+        // Reuse Account's name validation so imported rows follow the same rules
+        UUID id = UUID.randomUUID();
+        Account validated = new Account(id, customerName, Money.of(initialDeposit), accountType, null);
+
+        return new PendingRow(id, validated.getCustomerName(), initialDeposit, accountTypeName, pinHash);
+    }
+
+    private long copyChunk(CopyManager copyManager, List<PendingRow> rows, LocalDate dateCreated) throws SQLException, IOException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        String created = dateCreated.atStartOfDay().toString();
+        StringBuilder csv = new StringBuilder(rows.size() * 128);
+        for (PendingRow row : rows) {
+            csv.append(row.id).append(',')
+                    .append(quote(row.customerName)).append(',')
+                    .append(row.balance.toPlainString()).append(',')
+                    .append(created).append(',')
+                    .append(row.accountTypeName).append(',')
+                    .append(quote(awaitHash(row))).append(',')
+                    .append("false,0\n");
+        }
+        return copyManager.copyIn(COPY_SQL, new StringReader(csv.toString()));
+    }
+
+    private String awaitHash(PendingRow row) throws SQLException {
+        try {
+            return row.pinHash.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while hashing PINs", e);
+        } catch (ExecutionException e) {
+            throw new SQLException("Failed to hash PIN for " + row.customerName, e.getCause());
+        }
+    }
+
+    private boolean isBcryptHash(String value) {
+        return value.length() == 60 && value.matches("^\\$2[aby]\\$\\d{2}\\$.*");
+    }
+
+    private void writeReject(BufferedWriter rejects, long lineNumber, String reason, String line) throws IOException {
+        rejects.write(lineNumber + "," + quote(reason) + "," + quote(line));
+        rejects.newLine();
+    }
+
+    private String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Splits one CSV line, honouring double-quoted fields and "" escapes.
+     */
+    private List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuotes = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,69 @@
+package com.bankrank.database;
+
+import com.bankrank.model.Account;
+import com.bankrank.model.AccountState;
+import com.bankrank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Immutable copy of the unsaved state of one account: its balance, the
+ * version it was loaded with and the transactions recorded since. Lets a
+ * writer persist an account while other threads keep mutating it.
+ */
+public class AccountChange {
+
+    private final UUID accountId;
+    private final BigDecimal balance;
+    private final long expectedVersion;
+    private final List<Transaction> newTransactions;
+    private final long journalSequence;
+
+    public AccountChange(UUID accountId, BigDecimal balance, long expectedVersion, List<Transaction> newTransactions) {
+        this(accountId, balance, expectedVersion, newTransactions, 0);
+    }
+
+    /**
+     * @param journalSequence Last posting journal sequence included in this
+     * change, or 0 when the change does not come from a journaled ledger
+     */
+    public AccountChange(UUID accountId, BigDecimal balance, long expectedVersion, List<Transaction> newTransactions, long journalSequence) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.expectedVersion = expectedVersion;
+        this.newTransactions = List.copyOf(newTransactions);
+        this.journalSequence = journalSequence;
+    }
+
+    /**
+     * Captures the account's current unsaved state from one snapshot, so
+     * the balance and transactions match even while postings continue.
+     */
+    public static AccountChange of(Account account) {
+        AccountState state = account.snapshot();
+        return new AccountChange(state.getAccountNumber(), state.getBalance().toBigDecimal(), state.getVersion(),
+                state.getUnsavedTransactions());
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public List<Transaction> getNewTransactions() {
+        return newTransactions;
+    }
+
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+}
@@ -1,10 +1,19 @@
 package com.bankrank.database;
 
 import com.bankrank.model.Account;
+import com.bankrank.model.AccountCursor;
+import com.bankrank.model.AccountSummary;
+import com.bankrank.model.AccountSummaryPage;
 import com.bankrank.model.AccountType;
-import com.bankrank.model.CheckingAccountType;
-import com.bankrank.model.SavingsAccountType;
+import com.bankrank.model.AccountTypeCatalog;
+import com.bankrank.model.CompactTransactionList;
+import com.bankrank.model.Money;
 import com.bankrank.model.Transaction;
+import com.bankrank.model.TransactionKind;
+import com.bankrank.model.TransactionCursor;
+import com.bankrank.model.TransactionHistory;
+import com.bankrank.model.TransactionPage;
+import com.bankrank.model.TransferResult;
 import com.bankrank.util.PasswordUtil;
 
 import java.math.BigDecimal;
@@ -12,8 +21,12 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import com.bankrank.model.TransactionType;
 
@@ -23,6 +36,10 @@ import com.bankrank.model.TransactionType;
  */
 public class AccountDAO {
 
+    // Event-sourced mode: balances are read from snapshots plus the transaction tail
+    private final boolean eventSourced = Boolean.parseBoolean(DatabaseConnection.getProperty("ledger.eventSourced", "false"));
+    private final SnapshotDAO snapshotDAO = new SnapshotDAO();
+
     /**
      * Saves a new account to the database along with all its transactions. Uses
      * database transaction to ensure atomicity.
@@ -34,24 +51,26 @@ public class AccountDAO {
             conn.setAutoCommit(false);  // Start transaction
 
             // Save account
-            String accountSql = "INSERT INTO accounts (id, customer_name, balance, date_created, account_type, pin_hash, is_locked) "
-                    + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+            String accountSql = "INSERT INTO accounts (id, customer_name, balance, date_created, account_type, pin_hash, is_locked, version) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
 
             try (PreparedStatement stmt = conn.prepareStatement(accountSql)) {
                 stmt.setObject(1, account.getAccountNumber());
                 stmt.setString(2, account.getCustomerName());
-                stmt.setBigDecimal(3, account.getBalance());
+                stmt.setBigDecimal(3, account.getBalance().toBigDecimal());
                 stmt.setTimestamp(4, Timestamp.valueOf(account.getDateCreated().atStartOfDay()));
-                stmt.setString(5, getAccountTypeName(account.getAccountType()));
+                stmt.setString(5, account.getAccountType().getCode());
                 stmt.setString(6, account.getPinHash());
                 stmt.setBoolean(7, account.isLocked());
+                stmt.setLong(8, account.getVersion());
                 stmt.executeUpdate();
             }
 
             // Save transactions
-            saveTransactions(conn, account.getAccountNumber(), account.getTransactionHistory());
+            saveTransactions(conn, account.getAccountNumber(), account.getUnsavedTransactions());
 
             conn.commit();  // Commit transaction
+            account.markTransactionsSaved();
         } catch (SQLException e) {
             if (conn != null) {
                 conn.rollback();  // Rollback on error
@@ -66,7 +85,15 @@ public class AccountDAO {
     }
 
     /**
-     * Updates an existing account in the database.
+     * Updates an existing account in the database. Only transactions recorded
+     * since the account was loaded are inserted; existing history rows are
+     * never rewritten. The account row and new transactions share one commit.
+     *
+     * The row is only written if its version still matches the version the
+     * account was loaded with.
+     *
+     * @throws OptimisticLockException if another operation changed the account
+     * since it was loaded; reload and retry (see OptimisticRetry)
      */
     public void update(Account account) throws SQLException {
         Connection conn = null;
@@ -74,24 +101,37 @@ public class AccountDAO {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false);
 
-            // Update account
-            String sql = "UPDATE accounts SET customer_name = ?, balance = ?, account_type = ?, pin_hash = ?, is_locked = ? WHERE id = ?";
+            // Update account; the balance is only written when it changed,
+            // which a hot account does not allow
+            boolean balanceChanged = !account.getUnsavedTransactions().isEmpty();
+            String sql = balanceChanged
+                    ? "UPDATE accounts SET customer_name = ?, account_type = ?, pin_hash = ?, is_locked = ?, balance = ?, "
+                    + "version = version + 1 WHERE id = ? AND version = ? AND hot_slots = 0"
+                    : "UPDATE accounts SET customer_name = ?, account_type = ?, pin_hash = ?, is_locked = ?, "
+                    + "version = version + 1 WHERE id = ? AND version = ?";
 
             try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-                stmt.setString(1, account.getCustomerName());
-                stmt.setBigDecimal(2, account.getBalance());
-                stmt.setString(3, getAccountTypeName(account.getAccountType()));
-                stmt.setString(4, account.getPinHash());
-                stmt.setBoolean(5, account.isLocked());
-                stmt.setObject(6, account.getAccountNumber());
-                stmt.executeUpdate();
+                int index = 1;
+                stmt.setString(index++, account.getCustomerName());
+                stmt.setString(index++, account.getAccountType().getCode());
+                stmt.setString(index++, account.getPinHash());
+                stmt.setBoolean(index++, account.isLocked());
+                if (balanceChanged) {
+                    stmt.setBigDecimal(index++, account.getBalance().toBigDecimal());
+                }
+                stmt.setObject(index++, account.getAccountNumber());
+                stmt.setLong(index, account.getVersion());
+                if (stmt.executeUpdate() == 0) {
+                    throw versionConflict(conn, account.getAccountNumber(), account.getVersion());
+                }
             }
 
-            // Delete old transactions and save new ones
-            deleteTransactions(conn, account.getAccountNumber());
-            saveTransactions(conn, account.getAccountNumber(), account.getTransactionHistory());
+            // Append only the transactions added since load
+            saveTransactions(conn, account.getAccountNumber(), account.getUnsavedTransactions());
 
             conn.commit();
+            account.markTransactionsSaved();
+            account.setVersion(account.getVersion() + 1);
         } catch (SQLException e) {
             if (conn != null) {
                 conn.rollback();
@@ -106,10 +146,738 @@ public class AccountDAO {
     }
 
     /**
-     * Finds an account by its ID.
+     * Balance of an accounts row including its hot-mode sub-balance slots.
+     * Used wherever a balance is read, since for a hot account the balance
+     * column alone only holds part of it.
+     */
+    static final String TOTAL_BALANCE_SQL = "(balance + CASE WHEN hot_slots > 0 THEN "
+            + "(SELECT COALESCE(SUM(s.balance), 0) FROM account_balance_slots s WHERE s.account_id = accounts.id) ELSE 0 END)";
+
+    private static final String ACCOUNT_SELECT = "SELECT id, customer_name, " + TOTAL_BALANCE_SQL + " AS balance, "
+            + "date_created, account_type, pin_hash, is_locked, version FROM accounts";
+
+    /**
+     * Minimum balance per account_type column value, as a SQL CASE expression,
+     * so withdrawal rules from AccountType can be enforced inside UPDATEs.
+     */
+    private static final String MINIMUM_BALANCE_SQL = minimumBalanceSql();
+
+    private static final String DEPOSIT_SQL = """
+            WITH updated AS (
+                UPDATE accounts SET balance = balance + ?, version = version + 1
+                WHERE id = ?
+                RETURNING id, %s AS balance
+            ), posted AS (
+                INSERT INTO transactions (account_id, transaction_type, kind, amount, reference, transaction_date, is_debit)
+                SELECT id, ?, ?, ?, ?, ?, false FROM updated
+            )
+            SELECT balance FROM updated
+            """.formatted(TOTAL_BALANCE_SQL);
+
+    // Credits one slot of a hot account. The accounts row is only
+    // share-locked: hot credits do not wait for each other, but a snapshot
+    // cannot be cut while one is in flight
+    private static final String HOT_DEPOSIT_SQL = """
+            WITH locked AS (
+                SELECT id FROM accounts WHERE id = ? FOR SHARE
+            ), updated AS (
+                UPDATE account_balance_slots SET balance = balance + ?
+                WHERE account_id = (SELECT id FROM locked) AND slot = ?
+                RETURNING account_id
+            ), posted AS (
+                INSERT INTO transactions (account_id, transaction_type, kind, amount, reference, transaction_date, is_debit)
+                SELECT account_id, ?, ?, ?, ?, ?, false FROM updated
+            )
+            SELECT %s + ? AS balance FROM accounts WHERE id = (SELECT account_id FROM updated)
+            """.formatted(TOTAL_BALANCE_SQL);
+
+    private static final String WITHDRAW_SQL = """
+            WITH updated AS (
+                UPDATE accounts SET balance = balance - ?, version = version + 1
+                WHERE id = ? AND balance - ? >= %s
+                RETURNING id, %s AS balance
+            ), posted AS (
+                INSERT INTO transactions (account_id, transaction_type, kind, amount, reference, transaction_date, is_debit)
+                SELECT id, ?, ?, ?, ?, ?, true FROM updated
+            )
+            SELECT balance FROM updated
+            """.formatted(MINIMUM_BALANCE_SQL, TOTAL_BALANCE_SQL);
+
+    // Descriptions are only stored for transactions without a kind
+    private static final String INSERT_TRANSACTION_SQL = "INSERT INTO transactions (account_id, transaction_type, kind, amount, "
+            + "counterparty_id, reference, description, transaction_date, is_debit) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int MAX_TRANSFER_ATTEMPTS = 5;
+
+    // Rows per round trip when streaming large listings
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final String SUMMARY_SELECT = "SELECT id, customer_name, " + TOTAL_BALANCE_SQL + " AS balance, "
+            + "account_type, date_created FROM accounts";
+
+    /**
+     * Deposits into an account with a single statement: the balance is
+     * incremented in the database and the transaction row inserted in the
+     * same commit, so concurrent postings cannot lose updates.
+     *
+     * @return The balance after the deposit
+     * @throws IllegalArgumentException if the amount is not positive or the account does not exist
+     */
+    public BigDecimal postDeposit(UUID accountId, BigDecimal amount) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return postDeposit(conn, accountId, amount);
+        }
+    }
+
+    /**
+     * Same as postDeposit, on the caller's connection and inside its
+     * transaction, so several postings can share one commit.
+     */
+    public BigDecimal postDeposit(Connection conn, UUID accountId, BigDecimal amount) throws SQLException {
+        return postDeposit(conn, accountId, amount, null);
+    }
+
+    private BigDecimal postDeposit(Connection conn, UUID accountId, BigDecimal amount, String reference) throws SQLException {
+        requirePositive(amount);
+
+        int slots = HotAccountRegistry.slotsFor(conn, accountId);
+        if (slots > 0) {
+            BigDecimal balance = postHotDeposit(conn, accountId, amount, slots, reference);
+            if (balance != null) {
+                return balance;
+            }
+            // Hot mode was switched off meanwhile: post to the row as usual
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(DEPOSIT_SQL)) {
+            stmt.setBigDecimal(1, amount);
+            stmt.setObject(2, accountId);
+            bindPostedTransaction(stmt, 3, TransactionKind.DEPOSIT, amount, reference);
+
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getBigDecimal("balance");
+            }
+        }
+        throw new IllegalArgumentException("Account not found");
+    }
+
+    /**
+     * Withdraws from an account with a single statement. The minimum balance
+     * rule of the account type is checked in the UPDATE itself, so the check
+     * and the debit cannot be interleaved with another posting.
+     *
+     * @return The balance after the withdrawal
+     * @throws IllegalArgumentException if the amount is not positive, the
+     * account does not exist, or the withdrawal would break the minimum balance
+     */
+    public BigDecimal postWithdrawal(UUID accountId, BigDecimal amount) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return postWithdrawal(conn, accountId, amount);
+        }
+    }
+
+    /**
+     * Same as postWithdrawal, on the caller's connection and inside its
+     * transaction. A rejected withdrawal changes nothing, so the caller's
+     * transaction stays usable.
+     */
+    public BigDecimal postWithdrawal(Connection conn, UUID accountId, BigDecimal amount) throws SQLException {
+        return postWithdrawal(conn, accountId, amount, null);
+    }
+
+    private BigDecimal postWithdrawal(Connection conn, UUID accountId, BigDecimal amount, String reference) throws SQLException {
+        requirePositive(amount);
+
+        if (HotAccountRegistry.slotsFor(conn, accountId) > 0) {
+            return postHotWithdrawal(conn, accountId, amount, reference);
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(WITHDRAW_SQL)) {
+            stmt.setBigDecimal(1, amount);
+            stmt.setObject(2, accountId);
+            stmt.setBigDecimal(3, amount);
+            bindPostedTransaction(stmt, 4, TransactionKind.WITHDRAWAL, amount, reference);
+
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getBigDecimal("balance");
+            }
+        }
+
+        // Nothing was updated: tell "missing" apart from "insufficient funds"
+        if (!accountExists(conn, accountId)) {
+            throw new IllegalArgumentException("Account not found");
+        }
+        throw new IllegalArgumentException("Insufficient funds or withdrawal would violate minimum balance requirement");
+    }
+
+    /**
+     * Idempotent postDeposit: a retry with the same key from the same caller
+     * returns the balance of the original deposit instead of depositing
+     * again.
+     *
+     * @param callerId The user sending the request; keys are only unique per caller
+     * @throws IllegalArgumentException if the key was used for a different request
+     */
+    public BigDecimal postDeposit(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        return postIdempotent(new IdempotencyKeys.Key(callerId, idempotencyKey), TransactionType.DEPOSIT, accountId, amount);
+    }
+
+    /**
+     * Idempotent postWithdrawal: a retry with the same key from the same
+     * caller returns the balance of the original withdrawal instead of
+     * withdrawing again.
+     *
+     * @param callerId The user sending the request; keys are only unique per caller
+     * @throws IllegalArgumentException if the key was used for a different request
+     */
+    public BigDecimal postWithdrawal(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        return postIdempotent(new IdempotencyKeys.Key(callerId, idempotencyKey), TransactionType.WITHDRAWAL, accountId, amount);
+    }
+
+    /**
+     * Deletes idempotency keys recorded before the cutoff.
+     *
+     * @return The number of keys deleted
+     */
+    public int purgeIdempotencyKeys(LocalDateTime cutoff) throws SQLException {
+        return IdempotencyKeys.purgeBefore(cutoff);
+    }
+
+    private BigDecimal postIdempotent(IdempotencyKeys.Key key, TransactionType type, UUID accountId, BigDecimal amount) throws SQLException {
+        requirePositive(amount);
+        String operation = type.name();
+
+        IdempotencyKeys.Outcome cached = IdempotencyKeys.recall(key);
+        if (cached != null) {
+            return cached.requireSameRequest(operation, accountId, null, amount).balance();
+        }
+
+        IdempotencyKeys.Outcome outcome = inTransaction(conn -> {
+            IdempotencyKeys.Outcome prior = IdempotencyKeys.claim(conn, key, operation, accountId, null, amount);
+            if (prior != null) {
+                return prior;
+            }
+            BigDecimal balance = type == TransactionType.DEPOSIT
+                    ? postDeposit(conn, accountId, amount, key.key())
+                    : postWithdrawal(conn, accountId, amount, key.key());
+            IdempotencyKeys.complete(conn, key, balance, null);
+            return new IdempotencyKeys.Outcome(operation, accountId, null, amount, balance, null);
+        });
+        IdempotencyKeys.remember(key, outcome);
+        return outcome.balance();
+    }
+
+    /**
+     * Puts an account in hot mode: its balance is split across slots rows
+     * that deposits and transfers in hit round-robin, so concurrent credits
+     * no longer queue on the accounts row; they only share-lock it. Reads
+     * add the slots to the balance column; withdrawals lock the row and draw
+     * across the slots.
+     *
+     * Writers that store a whole balance (update with new transactions,
+     * applyChanges) refuse hot accounts, since slot credits are not
+     * versioned. Use disableHotMode to fold the slots back first.
+     */
+    public void enableHotMode(UUID accountId, int slots) throws SQLException {
+        if (slots < 2) {
+            throw new IllegalArgumentException("A hot account needs at least 2 slots");
+        }
+        inTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT hot_slots FROM accounts WHERE id = ? FOR UPDATE")) {
+                stmt.setObject(1, accountId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Account not found");
+                }
+                if (rs.getInt("hot_slots") > 0) {
+                    throw new IllegalArgumentException("Account is already in hot mode");
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO account_balance_slots (account_id, slot, balance) SELECT ?, s, 0 FROM generate_series(0, ? - 1) s")) {
+                stmt.setObject(1, accountId);
+                stmt.setInt(2, slots);
+                stmt.executeUpdate();
+            }
+            // Bumping the version makes writers holding the old balance conflict
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE accounts SET hot_slots = ?, version = version + 1 WHERE id = ?")) {
+                stmt.setInt(1, slots);
+                stmt.setObject(2, accountId);
+                stmt.executeUpdate();
+            }
+            return null;
+        });
+        HotAccountRegistry.invalidate();
+    }
+
+    /**
+     * Folds the slots of a hot account back into its balance column.
+     */
+    public void disableHotMode(UUID accountId) throws SQLException {
+        inTransaction(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT hot_slots FROM accounts WHERE id = ? FOR UPDATE")) {
+                stmt.setObject(1, accountId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Account not found");
+                }
+                if (rs.getInt("hot_slots") == 0) {
+                    return null;
+                }
+            }
+            BigDecimal slotTotal = BigDecimal.ZERO;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM account_balance_slots WHERE account_id = ? RETURNING balance")) {
+                stmt.setObject(1, accountId);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    slotTotal = slotTotal.add(rs.getBigDecimal("balance"));
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE accounts SET balance = balance + ?, hot_slots = 0, version = version + 1 WHERE id = ?")) {
+                stmt.setBigDecimal(1, slotTotal);
+                stmt.setObject(2, accountId);
+                stmt.executeUpdate();
+            }
+            return null;
+        });
+        HotAccountRegistry.invalidate();
+    }
+
+    /**
+     * Credits one slot of a hot account in a single statement.
+     *
+     * @return The account's total balance, or null if the account has no
+     * slots any more
+     */
+    private BigDecimal postHotDeposit(Connection conn, UUID accountId, BigDecimal amount, int slots, String reference) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(HOT_DEPOSIT_SQL)) {
+            stmt.setObject(1, accountId);
+            stmt.setBigDecimal(2, amount);
+            stmt.setInt(3, HotAccountRegistry.nextSlot(slots));
+            bindPostedTransaction(stmt, 4, TransactionKind.DEPOSIT, amount, reference);
+            stmt.setBigDecimal(9, amount);
+
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getBigDecimal("balance") : null;
+        }
+    }
+
+    /**
+     * Withdraws from a hot account: locks the row, checks the minimum
+     * balance against the total and draws across the slots.
+     */
+    private BigDecimal postHotWithdrawal(Connection conn, UUID accountId, BigDecimal amount, String reference) throws SQLException {
+        return inTransaction(conn, c -> {
+            BigDecimal total;
+            AccountType accountType;
+            try (PreparedStatement stmt = c.prepareStatement(
+                    "SELECT balance, account_type FROM accounts WHERE id = ? FOR UPDATE")) {
+                stmt.setObject(1, accountId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Account not found");
+                }
+                total = rs.getBigDecimal("balance");
+                accountType = AccountTypeCatalog.forCode(rs.getString("account_type"));
+            }
+            total = total.add(slotTotal(c, accountId));
+            if (!accountType.canWithdraw(Money.of(total), Money.of(amount))) {
+                throw new IllegalArgumentException("Insufficient funds or withdrawal would violate minimum balance requirement");
+            }
+
+            debitAcrossSlots(c, accountId, amount);
+            saveTransactions(c, accountId, List.of(
+                    new Transaction(TransactionKind.WITHDRAWAL, Money.of(amount), null, reference, LocalDateTime.now())));
+            return total.subtract(amount);
+        });
+    }
+
+    /**
+     * Sum of a hot account's slots, read after the caller locked its row.
+     *
+     * It must be a statement of its own: under READ COMMITTED a subquery in
+     * the locking SELECT keeps the snapshot taken before the lock wait, so
+     * it would miss slot debits committed while waiting and let the account
+     * be overdrawn.
+     */
+    static BigDecimal slotTotal(Connection conn, UUID accountId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT COALESCE(SUM(balance), 0) FROM account_balance_slots WHERE account_id = ?")) {
+            stmt.setObject(1, accountId);
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            return rs.getBigDecimal(1);
+        }
+    }
+
+    /**
+     * Takes amount out of a hot account whose row the caller has locked and
+     * whose total it has checked: fullest slots first, the rest from the
+     * balance column.
+     */
+    private void debitAcrossSlots(Connection conn, UUID accountId, BigDecimal amount) throws SQLException {
+        BigDecimal remaining = amount;
+        try (PreparedStatement select = conn.prepareStatement(
+                "SELECT slot, balance FROM account_balance_slots WHERE account_id = ? ORDER BY balance DESC FOR UPDATE");
+             PreparedStatement update = conn.prepareStatement(
+                "UPDATE account_balance_slots SET balance = balance - ? WHERE account_id = ? AND slot = ?")) {
+            select.setObject(1, accountId);
+            ResultSet rs = select.executeQuery();
+            while (rs.next() && remaining.signum() > 0) {
+                BigDecimal take = remaining.min(rs.getBigDecimal("balance"));
+                if (take.signum() <= 0) {
+                    break;
+                }
+                update.setBigDecimal(1, take);
+                update.setObject(2, accountId);
+                update.setInt(3, rs.getInt("slot"));
+                update.addBatch();
+                remaining = remaining.subtract(take);
+            }
+            update.executeBatch();
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE accounts SET balance = balance - ?, version = version + 1 WHERE id = ?")) {
+            stmt.setBigDecimal(1, remaining);
+            stmt.setObject(2, accountId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Credits amount to any slot of a hot account. The caller must hold at
+     * least a share lock on the account row, so snapshots stay ordered.
+     *
+     * @return false if the account has no slots any more
+     */
+    private boolean creditSlot(Connection conn, UUID accountId, BigDecimal amount, int slots) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE account_balance_slots SET balance = balance + ? WHERE account_id = ? AND slot = ?")) {
+            stmt.setBigDecimal(1, amount);
+            stmt.setObject(2, accountId);
+            stmt.setInt(3, HotAccountRegistry.nextSlot(slots));
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Work that must run inside one database transaction.
+     */
+    @FunctionalInterface
+    private interface TransactionWork<T> {
+
+        T run(Connection conn) throws SQLException;
+    }
+
+    private <T> T inTransaction(TransactionWork<T> work) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            return inTransaction(conn, work);
+        }
+    }
+
+    /**
+     * Runs work in the caller's transaction if one is open, otherwise in a
+     * new one on conn.
+     */
+    private <T> T inTransaction(Connection conn, TransactionWork<T> work) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            return work.run(conn);
+        }
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run(conn);
+            conn.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Moves money between two accounts in one database transaction.
+     *
+     * Both rows are locked with SELECT ... FOR UPDATE ordered by id, so two
+     * transfers in opposite directions always lock in the same order and
+     * cannot deadlock each other. Both balance changes and both transaction
+     * rows are committed together. Serialization failures and deadlocks
+     * reported by the database are retried a few times with backoff.
+     *
+     * @throws IllegalArgumentException if the amount is not positive, an
+     * account is missing, source and destination are the same, or the
+     * source would break its minimum balance
+     */
+    public TransferResult transfer(UUID sourceId, UUID destinationId, BigDecimal amount) throws SQLException {
+        return transfer(null, null, sourceId, destinationId, amount);
+    }
+
+    /**
+     * Idempotent transfer: a retry with the same key from the same caller
+     * returns the balances of the original transfer instead of moving the
+     * money again. A null key is the same as transfer without one.
+     *
+     * @param callerId The user sending the request; keys are only unique per caller
+     * @throws IllegalArgumentException if the key was used for a different request
+     */
+    public TransferResult transfer(UUID callerId, String idempotencyKey, UUID sourceId, UUID destinationId, BigDecimal amount) throws SQLException {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        if (sourceId.equals(destinationId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+
+        IdempotencyKeys.Key key = idempotencyKey != null ? new IdempotencyKeys.Key(callerId, idempotencyKey) : null;
+        if (key != null) {
+            IdempotencyKeys.Outcome cached = IdempotencyKeys.recall(key);
+            if (cached != null) {
+                cached.requireSameRequest(TransactionType.TRANSFER.name(), sourceId, destinationId, amount);
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    return replayTransfer(conn, cached);
+                }
+            }
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transferOnce(key, sourceId, destinationId, amount);
+            } catch (SQLException e) {
+                if (!isRetryable(e) || attempt >= MAX_TRANSFER_ATTEMPTS) {
+                    throw e;
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    private TransferResult transferOnce(IdempotencyKeys.Key key, UUID sourceId, UUID destinationId, BigDecimal amount) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            if (key != null) {
+                IdempotencyKeys.Outcome prior = IdempotencyKeys.claim(conn, key,
+                        TransactionType.TRANSFER.name(), sourceId, destinationId, amount);
+                if (prior != null) {
+                    conn.rollback();
+                    IdempotencyKeys.remember(key, prior);
+                    return replayTransfer(conn, prior);
+                }
+            }
+
+            // A hot destination takes credits on its slots, so its row is
+            // only share-locked, like a hot deposit does. Rows are still
+            // locked in id order
+            Map<UUID, TransferSide> sides;
+            if (HotAccountRegistry.slotsFor(conn, destinationId) == 0) {
+                sides = lockTransferSides(conn, List.of(sourceId, destinationId), " FOR UPDATE");
+            } else {
+                sides = new HashMap<>();
+                for (UUID accountId : inLockOrder(sourceId, destinationId)) {
+                    sides.putAll(lockTransferSides(conn, List.of(accountId), accountId.equals(sourceId) ? " FOR UPDATE" : " FOR SHARE"));
+                }
+                TransferSide destination = sides.get(destinationId);
+                if (destination != null && destination.hotSlots == 0) {
+                    // Hot mode was switched off meanwhile; the deadlock retry covers the rare lock upgrade conflict
+                    sides.putAll(lockTransferSides(conn, List.of(destinationId), " FOR UPDATE"));
+                }
+            }
+
+            TransferSide source = sides.get(sourceId);
+            TransferSide destination = sides.get(destinationId);
+            if (source == null || destination == null) {
+                throw new IllegalArgumentException("One or both accounts not found");
+            }
+            String sourceName = source.customerName;
+            String destinationName = destination.customerName;
+            if (!source.accountType.canWithdraw(Money.of(source.balance), Money.of(amount))) {
+                throw new IllegalArgumentException("Insufficient funds or transfer would violate minimum balance requirement");
+            }
+
+            BigDecimal newSourceBalance = source.balance.subtract(amount);
+            BigDecimal newDestinationBalance = destination.balance.add(amount);
+
+            if (source.hotSlots > 0) {
+                debitAcrossSlots(conn, sourceId, amount);
+            } else {
+                adjustBalance(conn, sourceId, amount.negate());
+            }
+            if (destination.hotSlots == 0 || !creditSlot(conn, destinationId, amount, destination.hotSlots)) {
+                adjustBalance(conn, destinationId, amount);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            String reference = key != null ? key.key() : null;
+            saveTransactions(conn, sourceId, List.of(
+                    new Transaction(TransactionKind.TRANSFER_OUT, Money.of(amount), destinationId, reference, now)));
+            saveTransactions(conn, destinationId, List.of(
+                    new Transaction(TransactionKind.TRANSFER_IN, Money.of(amount), sourceId, reference, now)));
+
+            if (key != null) {
+                IdempotencyKeys.complete(conn, key, newSourceBalance, newDestinationBalance);
+            }
+
+            conn.commit();
+            if (key != null) {
+                IdempotencyKeys.remember(key, new IdempotencyKeys.Outcome(TransactionType.TRANSFER.name(),
+                        sourceId, destinationId, amount, newSourceBalance, newDestinationBalance));
+            }
+            return new TransferResult(sourceId, sourceName, newSourceBalance,
+                    destinationId, destinationName, newDestinationBalance);
+        } catch (SQLException | RuntimeException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the result of an earlier transfer from its idempotency key,
+     * with the balances as they were right after it. Runs on the caller's
+     * connection, which may be the one the retried transfer just rolled back.
+     */
+    private TransferResult replayTransfer(Connection conn, IdempotencyKeys.Outcome outcome) throws SQLException {
+        Map<UUID, String> names = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id, customer_name FROM accounts WHERE id IN (?, ?)")) {
+            stmt.setObject(1, outcome.accountId());
+            stmt.setObject(2, outcome.counterpartyId());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                names.put((UUID) rs.getObject("id"), rs.getString("customer_name"));
+            }
+        }
+        return new TransferResult(outcome.accountId(), names.get(outcome.accountId()), outcome.balance(),
+                outcome.counterpartyId(), names.get(outcome.counterpartyId()), outcome.counterpartyBalance());
+    }
+
+    /**
+     * Name, total balance and type of one side of a transfer.
+     */
+    private record TransferSide(String customerName, BigDecimal balance, AccountType accountType, int hotSlots) {
+    }
+
+    /**
+     * Reads and locks the given accounts in id order. Slot totals of hot
+     * accounts are read once the rows are locked; see slotTotal.
+     *
+     * @param lockClause " FOR UPDATE" or " FOR SHARE"
+     */
+    private Map<UUID, TransferSide> lockTransferSides(Connection conn, List<UUID> accountIds, String lockClause) throws SQLException {
+        String sql = "SELECT id, customer_name, balance, account_type, hot_slots FROM accounts "
+                + "WHERE id = ANY(?) ORDER BY id" + lockClause;
+        Map<UUID, TransferSide> sides = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("uuid", accountIds.toArray()));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                sides.put((UUID) rs.getObject("id"), new TransferSide(rs.getString("customer_name"),
+                        rs.getBigDecimal("balance"), AccountTypeCatalog.forCode(rs.getString("account_type")), rs.getInt("hot_slots")));
+            }
+        }
+        for (Map.Entry<UUID, TransferSide> entry : sides.entrySet()) {
+            TransferSide side = entry.getValue();
+            if (side.hotSlots > 0) {
+                entry.setValue(new TransferSide(side.customerName, side.balance.add(slotTotal(conn, entry.getKey())),
+                        side.accountType, side.hotSlots));
+            }
+        }
+        return sides;
+    }
+
+    /**
+     * The two ids in PostgreSQL's uuid order, which compares the bytes
+     * unsigned, the same as comparing the lowercase text forms. UUID's own
+     * compareTo uses signed longs and can disagree.
+     */
+    private static List<UUID> inLockOrder(UUID first, UUID second) {
+        return first.toString().compareTo(second.toString()) <= 0 ? List.of(first, second) : List.of(second, first);
+    }
+
+    private void adjustBalance(Connection conn, UUID accountId, BigDecimal delta) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE id = ?")) {
+            stmt.setBigDecimal(1, delta);
+            stmt.setObject(2, accountId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Turns a failed version check into the right error: hot accounts
+     * cannot take absolute balance writes at all.
+     */
+    private SQLException versionConflict(Connection conn, UUID accountId, long expectedVersion) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT hot_slots FROM accounts WHERE id = ?")) {
+            stmt.setObject(1, accountId);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next() && rs.getInt("hot_slots") > 0) {
+                throw new IllegalArgumentException("Account is in hot mode; disable hot mode before saving its balance");
+            }
+        }
+        return new OptimisticLockException(accountId, expectedVersion);
+    }
+
+    /**
+     * True for serialization failures (40001) and detected deadlocks (40P01),
+     * which PostgreSQL expects clients to retry.
+     */
+    private boolean isRetryable(SQLException e) {
+        String state = e.getSQLState();
+        return "40001".equals(state) || "40P01".equals(state);
+    }
+
+    private void backOff(int attempt) throws SQLException {
+        long delayMs = (long) (10 * Math.pow(2, attempt - 1) * (0.5 + Math.random()));
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying transfer", e);
+        }
+    }
+
+    private void bindPostedTransaction(PreparedStatement stmt, int firstIndex, TransactionKind kind,
+                                       BigDecimal amount, String reference) throws SQLException {
+        stmt.setString(firstIndex, kind.getType().name());
+        stmt.setString(firstIndex + 1, kind.name());
+        stmt.setBigDecimal(firstIndex + 2, amount);
+        stmt.setString(firstIndex + 3, reference);
+        stmt.setTimestamp(firstIndex + 4, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private void requirePositive(BigDecimal amount) {
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Amount cannot be 0 or a negative amount");
+        }
+    }
+
+    private boolean accountExists(Connection conn, UUID accountId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM accounts WHERE id = ?")) {
+            stmt.setObject(1, accountId);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    /**
+     * Finds an account by its ID. Only the account row is read; history is
+     * loaded lazily if and when the caller asks for it. In event-sourced
+     * mode the balance comes from the latest snapshot and the transactions
+     * after it rather than from the balance column.
      */
     public Account findById(UUID accountId) throws SQLException {
-        String sql = "SELECT * FROM accounts WHERE id = ?";
+        String sql = ACCOUNT_SELECT + " WHERE id = ?";
 
         try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
 
@@ -117,39 +885,104 @@ public class AccountDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                List<Transaction> transactions = loadTransactions(conn, accountId);
-                Account account = mapResultSetToAccount(rs, transactions);
-
-                return account;
+                AccountRow row = readAccountRow(rs);
+                if (eventSourced) {
+                    BigDecimal derived = snapshotDAO.deriveBalance(conn, accountId);
+                    if (derived != null) {
+                        row = row.withBalance(derived);
+                    }
+                }
+                return row.toAccount(new LazyTransactionHistory(accountId));
             }
             return null;
         }
     }
 
     /**
-     * Returns all accounts in the database.
+     * Streams matching account summaries to the consumer in (date_created, id)
+     * order without holding the result set in memory. PostgreSQL only uses a
+     * server-side cursor when autocommit is off and a fetch size is set, so
+     * rows arrive STREAM_FETCH_SIZE at a time.
+     *
+     * @return The number of accounts passed to the consumer
      */
-    public List<Account> findAll() throws SQLException {
-        List<Account> accounts = new ArrayList<>();
-        String sql = "SELECT * FROM accounts";
+    public int streamAccountSummaries(String customerName, String accountType, Consumer<AccountSummary> consumer) throws SQLException {
+        String sql = buildSearchSql(SUMMARY_SELECT, customerName, accountType) + " ORDER BY date_created, id";
 
-        try (Connection conn = DatabaseConnection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
 
+            int count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                bindSearchParams(stmt, customerName, accountType);
+                ResultSet rs = stmt.executeQuery();
+
+                while (rs.next()) {
+                    consumer.accept(mapResultSetToSummary(rs));
+                    count++;
+                }
+            }
+            conn.commit();
+            return count;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * Returns one keyset page of matching account summaries ordered by
+     * (date_created, id). Pass null to start, then the previous page's
+     * next cursor; each page costs the same regardless of how deep it is.
+     */
+    public AccountSummaryPage findAccountSummaryPage(String customerName, String accountType, AccountCursor after, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(buildSearchSql(SUMMARY_SELECT, customerName, accountType));
+        if (after != null) {
+            sql.append(" AND (date_created, id) > (?, ?)");
+        }
+        // Fetch one extra row to know whether another page exists
+        sql.append(" ORDER BY date_created, id LIMIT ?");
+
+        List<AccountSummary> accounts = new ArrayList<>();
+        AccountCursor next = null;
+        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int paramIndex = bindSearchParams(stmt, customerName, accountType);
+            if (after != null) {
+                stmt.setTimestamp(paramIndex++, Timestamp.valueOf(after.getDateCreated()));
+                stmt.setObject(paramIndex++, after.getId());
+            }
+            stmt.setInt(paramIndex, limit + 1);
+            ResultSet rs = stmt.executeQuery();
+
+            AccountCursor last = null;
             while (rs.next()) {
-                UUID accountId = (UUID) rs.getObject("id");
-                List<Transaction> transactions = loadTransactions(conn, accountId);
-                Account account = mapResultSetToAccount(rs, transactions);
-                accounts.add(account);
+                if (accounts.size() == limit) {
+                    next = last;
+                    break;
+                }
+                accounts.add(mapResultSetToSummary(rs));
+                last = new AccountCursor(rs.getTimestamp("date_created").toLocalDateTime(), (UUID) rs.getObject("id"));
             }
         }
-        return accounts;
+        return new AccountSummaryPage(accounts, next);
     }
 
-    public List<Account> searchAccounts(String customerName, String accountType) throws SQLException {
-        List<Account> accounts = new ArrayList<>();
+    private AccountSummary mapResultSetToSummary(ResultSet rs) throws SQLException {
+        return new AccountSummary(
+                (UUID) rs.getObject("id"),
+                rs.getString("customer_name"),
+                rs.getBigDecimal("balance"),
+                rs.getString("account_type"));
+    }
 
+    private String buildSearchSql(String select, String customerName, String accountType) {
         // Build dynamic SQL
-        StringBuilder sql = new StringBuilder("SELECT * FROM accounts WHERE 1=1");
+        StringBuilder sql = new StringBuilder(select).append(" WHERE 1=1");
 
         // Add filters if provided
         if (customerName != null && !customerName.trim().isEmpty()) {
@@ -158,30 +991,134 @@ public class AccountDAO {
         if (accountType != null && !accountType.trim().isEmpty()) {
             sql.append(" AND account_type = ?");
         }
+        return sql.toString();
+    }
 
-        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+    /**
+     * Binds the search filters and returns the next free parameter index.
+     */
+    private int bindSearchParams(PreparedStatement stmt, String customerName, String accountType) throws SQLException {
+        // Bind parameters in order
+        int paramIndex = 1;
+        if (customerName != null && !customerName.trim().isEmpty()) {
+            stmt.setString(paramIndex++, "%" + customerName.trim() + "%");
+        }
+        if (accountType != null && !accountType.trim().isEmpty()) {
+            stmt.setString(paramIndex++, accountType.trim().toUpperCase());
+        }
+        return paramIndex;
+    }
 
-            // Bind parameters in order
-            int paramIndex = 1;
-            if (customerName != null && !customerName.trim().isEmpty()) {
-                stmt.setString(paramIndex++, "%" + customerName.trim() + "%");
-            }
-            if (accountType != null && !accountType.trim().isEmpty()) {
-                stmt.setString(paramIndex++, accountType.trim().toUpperCase());
-            }
+    /**
+     * Loads and row-locks a set of accounts inside the caller's transaction.
+     * Rows are locked in id order so concurrent lockers cannot deadlock.
+     * History is left lazy.
+     *
+     * @return The accounts found, keyed by id (missing ids are absent)
+     */
+    public Map<UUID, Account> lockAccounts(Connection conn, Collection<UUID> accountIds) throws SQLException {
+        Map<UUID, Account> accounts = new HashMap<>();
+        if (accountIds.isEmpty()) {
+            return accounts;
+        }
 
+        String sql = ACCOUNT_SELECT + " WHERE id = ANY(?) ORDER BY id FOR UPDATE";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("uuid", accountIds.toArray()));
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-                UUID accountId = (UUID) rs.getObject("id");
-                List<Transaction> transactions = loadTransactions(conn, accountId);
-                Account account = mapResultSetToAccount(rs, transactions);
-                accounts.add(account);
+                UUID id = (UUID) rs.getObject("id");
+                accounts.put(id, mapResultSetToAccount(rs, new LazyTransactionHistory(id)));
             }
         }
         return accounts;
     }
 
+    /**
+     * Writes the balances and new transactions of many accounts inside the
+     * caller's transaction, as one UPDATE batch and one INSERT batch. Each
+     * row update is version-checked like update(). After the caller commits
+     * it must call markChangesCommitted with the same accounts.
+     *
+     * @throws OptimisticLockException if any account changed since it was loaded
+     */
+    public void saveChanges(Connection conn, Collection<Account> accounts) throws SQLException {
+        List<AccountChange> changes = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            changes.add(AccountChange.of(account));
+        }
+        applyChanges(conn, changes);
+    }
+
+    /**
+     * Writes captured account changes inside the caller's transaction: one
+     * version-checked UPDATE batch for balances and one INSERT batch for
+     * the new transactions.
+     *
+     * @throws OptimisticLockException if any row's version no longer matches
+     */
+    public void applyChanges(Connection conn, List<AccountChange> changes) throws SQLException {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // journal_seq only moves forward; changes without a journal pass 0
+        String sql = "UPDATE accounts SET balance = ?, version = version + 1, journal_seq = GREATEST(journal_seq, ?) "
+                + "WHERE id = ? AND version = ? AND hot_slots = 0";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (AccountChange change : changes) {
+                stmt.setBigDecimal(1, change.getBalance());
+                stmt.setLong(2, change.getJournalSequence());
+                stmt.setObject(3, change.getAccountId());
+                stmt.setLong(4, change.getExpectedVersion());
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    throw versionConflict(conn, changes.get(i).getAccountId(), changes.get(i).getExpectedVersion());
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_TRANSACTION_SQL)) {
+            for (AccountChange change : changes) {
+                for (Transaction transaction : change.getNewTransactions()) {
+                    bindTransaction(stmt, change.getAccountId(), transaction);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Highest posting journal sequence already applied to the account in the
+     * database, so journal recovery can skip postings that were flushed.
+     */
+    public long findJournalSequence(UUID accountId) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT journal_seq FROM accounts WHERE id = ?")) {
+            stmt.setObject(1, accountId);
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+            throw new IllegalArgumentException("Account not found");
+        }
+    }
+
+    /**
+     * Updates in-memory state after a commit that included saveChanges.
+     */
+    public void markChangesCommitted(Collection<Account> accounts) {
+        for (Account account : accounts) {
+            account.markTransactionsSaved();
+            account.setVersion(account.getVersion() + 1);
+        }
+    }
+
     /**
      * Deletes an account and all its transactions.
      */
@@ -218,22 +1155,30 @@ public class AccountDAO {
     // Helper methods
     private void saveTransactions(Connection conn, UUID accountId, List<Transaction> transactions)
             throws SQLException {
-        String sql = "INSERT INTO transactions (account_id, transaction_type, amount, description, transaction_date) "
-                + "VALUES (?, ?, ?, ?, ?)";
-
-        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_TRANSACTION_SQL)) {
             for (Transaction transaction : transactions) {
-                stmt.setObject(1, accountId);
-                stmt.setString(2, transaction.getTransactionType().name());
-                stmt.setBigDecimal(3, transaction.getAmount());
-                stmt.setString(4, transaction.getDescription());
-                stmt.setTimestamp(5, Timestamp.valueOf(transaction.getDateTime()));
+                bindTransaction(stmt, accountId, transaction);
                 stmt.addBatch();
             }
             stmt.executeBatch();
         }
     }
 
+    private void bindTransaction(PreparedStatement stmt, UUID accountId, Transaction transaction) throws SQLException {
+        stmt.setObject(1, accountId);
+        stmt.setString(2, transaction.getTransactionType().name());
+        stmt.setString(3, transaction.getKind() != null ? transaction.getKind().name() : null);
+        stmt.setBigDecimal(4, transaction.getAmount().toBigDecimal());
+        stmt.setObject(5, transaction.getCounterpartyId());
+        stmt.setString(6, transaction.getReference());
+        stmt.setString(7, transaction.getStoredDescription());
+        stmt.setTimestamp(8, Timestamp.valueOf(transaction.getDateTime()));
+        stmt.setBoolean(9, transaction.isDebit());
+    }
+
     private void deleteTransactions(Connection conn, UUID accountId) throws SQLException {
         String sql = "DELETE FROM transactions WHERE account_id = ?";
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -242,32 +1187,55 @@ public class AccountDAO {
         }
     }
 
-    private List<Transaction> loadTransactions(Connection conn, UUID accountId) throws SQLException {
-        List<Transaction> transactions = new ArrayList<>();
+    private CompactTransactionList loadTransactions(Connection conn, UUID accountId) throws SQLException {
+        CompactTransactionList transactions = new CompactTransactionList();
 
-        String sql = "SELECT * FROM transactions WHERE account_id = ? ORDER BY transaction_date";
+        String sql = "SELECT * FROM transactions WHERE account_id = ? ORDER BY transaction_date, id";
 
         try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setObject(1, accountId);
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
-
-                String typeString = rs.getString("transaction_type");
-                BigDecimal amount = rs.getBigDecimal("amount");
-                String description = rs.getString("description");
-                LocalDateTime dateTime = rs.getTimestamp("transaction_date").toLocalDateTime();
-                TransactionType type = TransactionType.valueOf(typeString);
-
-                Transaction transaction = new Transaction(type, amount, description, dateTime);
-                transactions.add(transaction);
+                appendTransaction(transactions, rs);
             }
             return transactions;
         }
     }
 
-    private Account mapResultSetToAccount(ResultSet rs, List<Transaction> transactions) throws SQLException {
+    private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
+        long id = rs.getLong("id");
+        String typeString = rs.getString("transaction_type");
+        Money amount = Money.of(rs.getBigDecimal("amount"));
+        String kind = rs.getString("kind");
+        UUID counterpartyId = (UUID) rs.getObject("counterparty_id");
+        String reference = rs.getString("reference");
+        String description = rs.getString("description");
+        LocalDateTime dateTime = rs.getTimestamp("transaction_date").toLocalDateTime();
+        TransactionType type = TransactionType.valueOf(typeString);
+        boolean debit = rs.getBoolean("is_debit");
+
+        return new Transaction(id, type, kind != null ? TransactionKind.valueOf(kind) : null, amount,
+                counterpartyId, reference, description, dateTime, debit);
+    }
+
+    /**
+     * Adds a transactions row to a compact history without building a
+     * Transaction for it.
+     */
+    private void appendTransaction(CompactTransactionList transactions, ResultSet rs) throws SQLException {
+        String kind = rs.getString("kind");
+        transactions.append(rs.getLong("id"), TransactionType.valueOf(rs.getString("transaction_type")),
+                kind != null ? TransactionKind.valueOf(kind) : null, Money.of(rs.getBigDecimal("amount")),
+                (UUID) rs.getObject("counterparty_id"), rs.getString("reference"), rs.getString("description"),
+                rs.getTimestamp("transaction_date").toLocalDateTime(), rs.getBoolean("is_debit"));
+    }
 
+    private Account mapResultSetToAccount(ResultSet rs, TransactionHistory history) throws SQLException {
+        return readAccountRow(rs).toAccount(history);
+    }
+
+    private AccountRow readAccountRow(ResultSet rs) throws SQLException {
         UUID id = (UUID) rs.getObject("id");
         String customerName = rs.getString("customer_name");
         BigDecimal balance = rs.getBigDecimal("balance");
@@ -275,30 +1243,140 @@ public class AccountDAO {
         String accountTypeName = rs.getString("account_type");
         String pinHash = rs.getString("pin_hash");
         boolean isLocked = rs.getBoolean("is_locked");
+        long version = rs.getLong("version");
 
-        AccountType accountType = createAccountType(accountTypeName);
+        return new AccountRow(id, customerName, balance, dateCreated, AccountTypeCatalog.forCode(accountTypeName), pinHash, isLocked, version);
+    }
 
-        return new Account(id, customerName, balance, accountType, dateCreated, transactions, pinHash, isLocked);
+    /**
+     * Column values of one accounts row, held until its history is available.
+     */
+    private record AccountRow(UUID id, String customerName, BigDecimal balance, LocalDate dateCreated,
+                              AccountType accountType, String pinHash, boolean isLocked, long version) {
+
+        Account toAccount(TransactionHistory history) {
+            return new Account(id, customerName, Money.of(balance), accountType, dateCreated, history, pinHash, isLocked, version);
+        }
+
+        AccountRow withBalance(BigDecimal derivedBalance) {
+            return new AccountRow(id, customerName, derivedBalance, dateCreated, accountType, pinHash, isLocked, version);
+        }
     }
 
-    private AccountType createAccountType(String typeName) {
-        return switch (typeName) {
-            case "SAVINGS" ->
-                new SavingsAccountType();
-            case "CHECKING" ->
-                new CheckingAccountType();
-            default ->
-                throw new IllegalArgumentException("Unknown account type: " + typeName);
-        };
+    /**
+     * History that stays in the database until asked for: count() and page()
+     * run small queries, all() loads and caches the full list once. Readers
+     * may race to load; the first loaded list wins.
+     */
+    private final class LazyTransactionHistory implements TransactionHistory {
+
+        private final UUID accountId;
+        private volatile TransactionHistory loaded;
+        private volatile Integer count;
+
+        private LazyTransactionHistory(UUID accountId) {
+            this(accountId, null);
+        }
+
+        private LazyTransactionHistory(UUID accountId, Integer count) {
+            this.accountId = accountId;
+            this.count = count;
+        }
+
+        @Override
+        public int count() throws SQLException {
+            TransactionHistory history = loaded;
+            if (history != null) {
+                return history.count();
+            }
+            Integer known = count;
+            if (known == null) {
+                String sql = "SELECT COUNT(*) FROM transactions WHERE account_id = ?";
+                try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setObject(1, accountId);
+                    ResultSet rs = stmt.executeQuery();
+                    rs.next();
+                    known = rs.getInt(1);
+                }
+                count = known;
+            }
+            return known;
+        }
+
+        @Override
+        public TransactionPage page(TransactionCursor before, int limit) throws SQLException {
+            StringBuilder sql = new StringBuilder("SELECT * FROM transactions WHERE account_id = ?");
+            if (before != null) {
+                sql.append(" AND (transaction_date, id) < (?, ?)");
+            }
+            // Fetch one extra row to know whether another page exists
+            sql.append(" ORDER BY transaction_date DESC, id DESC LIMIT ?");
+
+            List<Transaction> page = new ArrayList<>();
+            try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int paramIndex = 1;
+                stmt.setObject(paramIndex++, accountId);
+                if (before != null) {
+                    stmt.setTimestamp(paramIndex++, Timestamp.valueOf(before.getDate()));
+                    stmt.setLong(paramIndex++, before.getId());
+                }
+                stmt.setInt(paramIndex, limit + 1);
+                ResultSet rs = stmt.executeQuery();
+
+                while (rs.next()) {
+                    page.add(mapResultSetToTransaction(rs));
+                }
+            }
+
+            TransactionCursor next = null;
+            if (page.size() > limit) {
+                page.remove(limit);
+                next = TransactionCursor.after(page.get(limit - 1));
+            }
+            return new TransactionPage(page, next);
+        }
+
+        @Override
+        public List<Transaction> all() throws SQLException {
+            TransactionHistory history = loaded;
+            if (history == null) {
+                synchronized (this) {
+                    history = loaded;
+                    if (history == null) {
+                        try (Connection conn = DatabaseConnection.getConnection()) {
+                            history = TransactionHistory.of(loadTransactions(conn, accountId));
+                        }
+                        loaded = history;
+                    }
+                }
+            }
+            return history.all();
+        }
+
+        /**
+         * Once loaded, later versions are in memory. Until then they stay
+         * lazy, and the committed transactions are read with the rest.
+         */
+        @Override
+        public TransactionHistory withSaved(List<Transaction> transactions) {
+            if (transactions.isEmpty()) {
+                return this;
+            }
+            TransactionHistory history = loaded;
+            if (history != null) {
+                return history.withSaved(transactions);
+            }
+            Integer knownCount = count;
+            return new LazyTransactionHistory(accountId, knownCount != null ? knownCount + transactions.size() : null);
+        }
     }
 
-    private String getAccountTypeName(AccountType accountType) {
-        if (accountType instanceof SavingsAccountType) {
-            return "SAVINGS";
-        } else if (accountType instanceof CheckingAccountType) {
-            return "CHECKING";
+    private static String minimumBalanceSql() {
+        StringBuilder sql = new StringBuilder("CASE account_type");
+        for (AccountType type : AccountTypeCatalog.all()) {
+            sql.append(" WHEN '").append(type.getCode()).append("' THEN ").append(type.getMinimumBalance());
         }
-        throw new IllegalArgumentException("Unknown account type");
+        return sql.append(" END").toString();
     }
 
     /**
@@ -344,7 +1422,7 @@ public class AccountDAO {
      * @throws SQLException if database error occurs
      */
     public void changePin(UUID accountId, String newPinHash) throws SQLException {
-        String sql = "UPDATE accounts SET pin_hash = ? WHERE id = ?";
+        String sql = "UPDATE accounts SET pin_hash = ?, version = version + 1 WHERE id = ?";
 
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -0,0 +1,46 @@
+package com.bankrank.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Data Access Object for batch posting checkpoints: the last input line of
+ * each batch file whose postings have been committed.
+ */
+public class BatchCheckpointDAO {
+
+    /**
+     * Returns the last committed line of a batch, or 0 if it never ran.
+     */
+    public long getLastCommittedLine(String batchId) throws SQLException {
+        String sql = "SELECT last_line FROM batch_checkpoints WHERE batch_id = ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, batchId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getLong("last_line") : 0;
+        }
+    }
+
+    /**
+     * Records progress inside the caller's transaction, so the checkpoint
+     * commits atomically with the postings it covers.
+     */
+    public void saveCheckpoint(Connection conn, String batchId, long lastLine) throws SQLException {
+        String sql = "INSERT INTO batch_checkpoints (batch_id, last_line, updated_at) VALUES (?, ?, ?) "
+                + "ON CONFLICT (batch_id) DO UPDATE SET last_line = EXCLUDED.last_line, updated_at = EXCLUDED.updated_at";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, batchId);
+            stmt.setLong(2, lastLine);
+            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.bankrank.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of PostgreSQL connections.
+ *
+ * A semaphore caps the number of checked-out connections at maxSize. Callers
+ * get a proxy whose close() hands the physical connection back to the pool
+ * instead of closing it, so existing try-with-resources code keeps working.
+ * Idle connections are reused most-recently-used first, which lets the
+ * surplus at the tail age out through idle eviction.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final PoolConfig config;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    // Statistics
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong connectionsCreated = new AtomicLong();
+    private final AtomicLong connectionsDestroyed = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, PoolConfig config) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, Math.min(config.getIdleTimeoutMs(), config.getMaxLifetimeMs()) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured acquire timeout.
+     * Closing the returned connection returns it to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + config.getAcquireTimeoutMs()
+                        + "ms waiting for a database connection (pool max size " + config.getMaxSize() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    return pooled.checkout();
+                }
+                destroy(pooled);
+            }
+            return createConnection().checkout();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of current pool usage and wait statistics.
+     */
+    public PoolStats getStats() {
+        int total = totalConnections.get();
+        int idleCount = idle.size();
+        return new PoolStats(total, idleCount, Math.max(0, total - idleCount), config.getMaxSize(),
+                permits.getQueueLength(), acquireCount.get(), timeoutCount.get(), totalWaitNanos.get(),
+                maxWaitNanos.get(), connectionsCreated.get(), connectionsDestroyed.get());
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Connections still
+     * checked out are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        connectionsCreated.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long now = System.currentTimeMillis();
+        if (now - pooled.createdAt >= config.getMaxLifetimeMs()) {
+            return false;
+        }
+        if (now - pooled.lastUsedAt < config.getValidationIntervalMs()) {
+            return true;
+        }
+        // Only validate connections that sat idle long enough to have been dropped
+        try (Statement stmt = pooled.raw.createStatement()) {
+            stmt.execute(config.getValidationQuery());
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed
+                    && System.currentTimeMillis() - pooled.createdAt < config.getMaxLifetimeMs()
+                    && resetState(pooled.raw);
+            if (reusable) {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            } else {
+                destroy(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Puts a returned connection back into autocommit mode, rolling back any
+     * work the borrower left open.
+     */
+    private boolean resetState(Connection raw) {
+        try {
+            if (raw.isClosed()) {
+                return false;
+            }
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        connectionsDestroyed.incrementAndGet();
+        try {
+            pooled.raw.close();
+        } catch (SQLException e) {
+            // Connection is being discarded anyway
+        }
+    }
+
+    /**
+     * Evicts idle connections past idleTimeout (down to minSize) or past
+     * maxLifetime, then tops the pool back up to minSize.
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : idle) {
+            boolean expired = now - pooled.createdAt >= config.getMaxLifetimeMs();
+            boolean idleTooLong = now - pooled.lastUsedAt >= config.getIdleTimeoutMs()
+                    && totalConnections.get() > config.getMinSize();
+            if ((expired || idleTooLong) && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        while (!closed && totalConnections.get() < config.getMinSize() && permits.tryAcquire()) {
+            try {
+                idle.offerLast(createConnection());
+            } catch (SQLException e) {
+                // Database unavailable; getConnection() will surface the error to callers
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * A physical connection plus the bookkeeping the pool needs for it.
+     */
+    private final class PooledConnection {
+
+        private final Connection raw;
+        private final long createdAt;
+        private volatile long lastUsedAt;
+
+        private PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+
+        private Connection checkout() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Forwards calls to the physical connection for the duration of one
+     * borrow; close() ends the lease and returns the connection to the pool.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return returned || pooled.raw.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Pooled[" + pooled.raw + "]";
+                }
+                default -> {
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                }
+            }
+            try {
+                return method.invoke(pooled.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
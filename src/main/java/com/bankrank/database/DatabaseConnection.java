@@ -3,46 +3,68 @@ package com.bankrank.database;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
 /**
  * Manages database connections using connection configuration from properties file.
- * Production note: In real systems, use connection pooling (HikariCP, etc.)
+ * Connections come from a bounded pool (see ConnectionPool) sized by the
+ * db.pool.* properties, so DAOs no longer pay a TCP + auth handshake per call.
  */
 public class DatabaseConnection {
 
-    private static String url;
-    private static String user;
-    private static String password;
+    private static final Properties config = new Properties();
+    private static ConnectionPool pool;
 
     static {
         loadProperties();
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseConnection::shutdown, "db-pool-shutdown"));
     }
 
     private static void loadProperties() {
-        Properties props = new Properties();
+        Properties props = config;
         try (InputStream input = DatabaseConnection.class.getClassLoader()
                 .getResourceAsStream("db.properties")) {
             if (input == null) {
                 throw new RuntimeException("Unable to find db.properties");
             }
             props.load(input);
-            url = props.getProperty("db.url");
-            user = props.getProperty("db.user");
-            password = props.getProperty("db.password");
+            String url = props.getProperty("db.url");
+            String user = props.getProperty("db.user");
+            String password = props.getProperty("db.password");
+            pool = new ConnectionPool(url, user, password, PoolConfig.fromProperties(props));
         } catch (IOException e) {
             throw new RuntimeException("Failed to load database configuration", e);
         }
     }
 
     /**
-     * Gets a new database connection.
-     * Production: Use connection pooling instead of creating new connections.
+     * Borrows a connection from the pool.
+     * Always close it (try-with-resources) so it is returned to the pool.
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, user, password);
+        return pool.getConnection();
+    }
+
+    /**
+     * Reads a setting from db.properties.
+     */
+    public static String getProperty(String key, String defaultValue) {
+        return config.getProperty(key, defaultValue);
+    }
+
+    /**
+     * Returns current pool usage and wait statistics.
+     */
+    public static PoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    /**
+     * Closes all pooled connections.
+     */
+    public static void shutdown() {
+        pool.close();
     }
 
     /**
@@ -0,0 +1,312 @@
+package com.bankrank.database;
+
+import com.bankrank.model.Account;
+import com.bankrank.model.Money;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous deposit/withdrawal queue in front of AccountDAO that uses
+ * group commit.
+ *
+ * Callers get a CompletableFuture right away. One writer thread collects
+ * postings until the batch is full or the commit window has passed since
+ * the first one arrived, then on one connection locks every account the
+ * batch touches, applies the postings in arrival order in memory, and
+ * writes the changed balances as one UPDATE batch and the transactions as
+ * one INSERT batch before committing once. Each future completes with the
+ * new balance only after that commit, so durability is the same as posting
+ * one at a time.
+ *
+ * Hot accounts (see AccountDAO.enableHotMode) keep their balance in slots,
+ * so their postings run as single statements inside the same transaction.
+ *
+ * A rejected posting (unknown account, insufficient funds) completes its
+ * own future with IllegalArgumentException without affecting the rest of
+ * the batch. A database error rolls the whole batch back and fails every
+ * future in it with the SQLException; callers may resubmit.
+ */
+public class GroupCommitPostingQueue implements AutoCloseable {
+
+    private final AccountDAO accountDAO;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final BlockingQueue<PendingPosting> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong postings = new AtomicLong();
+    private volatile boolean running = true;
+
+    private enum Kind {
+        DEPOSIT, WITHDRAWAL
+    }
+
+    /**
+     * A queued posting and the future its caller is waiting on.
+     */
+    private static final class PendingPosting {
+
+        private final Kind kind;
+        private final UUID accountId;
+        private final BigDecimal amount;
+        private final CompletableFuture<BigDecimal> result = new CompletableFuture<>();
+        private BigDecimal balance;
+        private IllegalArgumentException rejection;
+
+        private PendingPosting(Kind kind, UUID accountId, BigDecimal amount) {
+            this.kind = kind;
+            this.accountId = accountId;
+            this.amount = amount;
+        }
+    }
+
+    // Queued by close(); the writer commits what it holds and exits when it
+    // reaches this, so it is never interrupted inside a commit
+    private static final PendingPosting STOP = new PendingPosting(null, null, null);
+
+    public GroupCommitPostingQueue(AccountDAO accountDAO) {
+        this(accountDAO,
+                Integer.parseInt(DatabaseConnection.getProperty("db.groupCommit.maxBatchSize", "256")),
+                Long.parseLong(DatabaseConnection.getProperty("db.groupCommit.windowMs", "2")));
+    }
+
+    /**
+     * @param maxBatchSize Postings per commit at most
+     * @param windowMs How long the writer waits for more postings after the first
+     */
+    public GroupCommitPostingQueue(AccountDAO accountDAO, int maxBatchSize, long windowMs) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        if (windowMs < 0) {
+            throw new IllegalArgumentException("windowMs cannot be negative");
+        }
+        this.accountDAO = accountDAO;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.writer = new Thread(this::runWriter, "group-commit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a deposit. The future completes with the balance after it.
+     */
+    public CompletableFuture<BigDecimal> deposit(UUID accountId, BigDecimal amount) {
+        return submit(new PendingPosting(Kind.DEPOSIT, accountId, amount));
+    }
+
+    /**
+     * Queues a withdrawal. The future completes with the balance after it.
+     */
+    public CompletableFuture<BigDecimal> withdraw(UUID accountId, BigDecimal amount) {
+        return submit(new PendingPosting(Kind.WITHDRAWAL, accountId, amount));
+    }
+
+    public long getCommitCount() {
+        return commits.get();
+    }
+
+    public long getPostingCount() {
+        return postings.get();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting postings and waits until everything queued is committed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        queue.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Postings that raced with close() never reached the writer
+        PendingPosting late;
+        while ((late = queue.poll()) != null) {
+            if (late == STOP) {
+                continue;
+            }
+            late.result.completeExceptionally(new IllegalStateException("Posting queue is closed"));
+        }
+    }
+
+    private CompletableFuture<BigDecimal> submit(PendingPosting posting) {
+        if (posting.amount == null || posting.amount.compareTo(BigDecimal.ZERO) <= 0) {
+            posting.result.completeExceptionally(new IllegalArgumentException("Amount must be positive"));
+            return posting.result;
+        }
+        if (!running) {
+            posting.result.completeExceptionally(new IllegalStateException("Posting queue is closed"));
+            return posting.result;
+        }
+        queue.add(posting);
+        return posting.result;
+    }
+
+    private void runWriter() {
+        List<PendingPosting> batch = new ArrayList<>(maxBatchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Only close() stops the writer; keep going until STOP arrives
+                continue;
+            }
+            stopping = batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                commitBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Blocks for the first posting, then gathers more until the batch is full
+     * or the window has passed. Returns early once STOP is taken.
+     */
+    private void collectBatch(List<PendingPosting> batch) throws InterruptedException {
+        PendingPosting first = queue.take();
+        batch.add(first);
+        if (first == STOP) {
+            return;
+        }
+        long deadline = System.nanoTime() + windowNanos;
+        while (batch.size() < maxBatchSize) {
+            // Take whatever is already waiting before sleeping on the queue
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            PendingPosting next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            if (next == STOP) {
+                return;
+            }
+        }
+    }
+
+    private void commitBatch(List<PendingPosting> batch) {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            Set<UUID> accountIds = new LinkedHashSet<>();
+            for (PendingPosting posting : batch) {
+                accountIds.add(posting.accountId);
+            }
+            // Each account is loaded and locked once per batch
+            Map<UUID, Account> accounts = accountDAO.lockAccounts(conn, accountIds);
+            Set<Account> touched = new LinkedHashSet<>();
+
+            for (PendingPosting posting : batch) {
+                try {
+                    posting.balance = apply(conn, posting, accounts, touched);
+                } catch (IllegalArgumentException e) {
+                    posting.rejection = e;
+                }
+            }
+
+            accountDAO.saveChanges(conn, touched);
+            conn.commit();
+            accountDAO.markChangesCommitted(touched);
+        } catch (SQLException | RuntimeException e) {
+            rollbackQuietly(conn);
+            for (PendingPosting posting : batch) {
+                posting.result.completeExceptionally(e);
+            }
+            return;
+        } finally {
+            closeQuietly(conn);
+        }
+
+        commits.incrementAndGet();
+        postings.addAndGet(batch.size());
+        // Only now is every posting in the batch durable
+        for (PendingPosting posting : batch) {
+            if (posting.rejection != null) {
+                posting.result.completeExceptionally(posting.rejection);
+            } else {
+                posting.result.complete(posting.balance);
+            }
+        }
+    }
+
+    /**
+     * Applies one posting to its locked account and returns the balance
+     * after it.
+     */
+    private BigDecimal apply(Connection conn, PendingPosting posting, Map<UUID, Account> accounts,
+                             Set<Account> touched) throws SQLException {
+        Account account = accounts.get(posting.accountId);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found");
+        }
+        if (HotAccountRegistry.slotsFor(conn, posting.accountId) > 0) {
+            // Its row is already locked by this transaction
+            return posting.kind == Kind.DEPOSIT
+                    ? accountDAO.postDeposit(conn, posting.accountId, posting.amount)
+                    : accountDAO.postWithdrawal(conn, posting.accountId, posting.amount);
+        }
+
+        Money amount = Money.of(posting.amount);
+        if (posting.kind == Kind.DEPOSIT) {
+            account.deposit(amount);
+        } else {
+            account.withdraw(amount);
+        }
+        touched.add(account);
+        return account.getBalance().toBigDecimal();
+    }
+
+    private void rollbackQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            // The original error is what the callers need to see
+        }
+    }
+
+    private void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.setAutoCommit(true);
+            conn.close();
+        } catch (SQLException e) {
+            // The pool validates connections before lending them again
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bankrank.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide cache of which accounts are in hot mode, used by AccountDAO
+ * to route postings to sub-balance slots without an extra query.
+ *
+ * The cache is only a routing hint. A stale entry sends a posting down the
+ * ordinary single-row path, which stays correct, just not sharded. That is
+ * also why a lookup never waits for a reload: the reload runs on the
+ * connection the caller already holds, by whichever caller finds the cache
+ * expired first, and everyone else keeps using the old map meanwhile.
+ */
+final class HotAccountRegistry {
+
+    private static final long REFRESH_MILLIS = Long.parseLong(DatabaseConnection.getProperty("db.hotAccounts.refreshMs", "5000"));
+    private static final AtomicInteger nextSlot = new AtomicInteger();
+    private static final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private static volatile Map<UUID, Integer> slotsByAccount = Map.of();
+    private static volatile long loadedAt;
+
+    private HotAccountRegistry() {
+    }
+
+    /**
+     * Number of slots of a hot account, or 0 for an ordinary account.
+     *
+     * @param conn The caller's connection, used if the cache needs reloading
+     */
+    static int slotsFor(Connection conn, UUID accountId) throws SQLException {
+        if (System.currentTimeMillis() - loadedAt > REFRESH_MILLIS) {
+            refresh(conn);
+        }
+        return slotsByAccount.getOrDefault(accountId, 0);
+    }
+
+    /**
+     * Picks the slot for the next deposit, round-robin across all callers.
+     */
+    static int nextSlot(int slots) {
+        return Math.floorMod(nextSlot.getAndIncrement(), slots);
+    }
+
+    /**
+     * Forces a reload on the next lookup, after hot mode was switched.
+     */
+    static void invalidate() {
+        loadedAt = 0;
+    }
+
+    private static void refresh(Connection conn) throws SQLException {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;  // Another caller is reloading; the current map will do
+        }
+        try {
+            Map<UUID, Integer> loaded = new HashMap<>();
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT id, hot_slots FROM accounts WHERE hot_slots > 0")) {
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    loaded.put((UUID) rs.getObject("id"), rs.getInt("hot_slots"));
+                }
+            }
+            slotsByAccount = loaded;
+            loadedAt = System.currentTimeMillis();
+        } finally {
+            refreshing.set(false);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.bankrank.database;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Idempotency keys of postings, used by AccountDAO so a retried request is
+ * answered with the original result instead of being posted twice.
+ *
+ * Keys belong to the caller that sent them: two callers picking the same
+ * key get separate postings, and neither can read the other's result.
+ *
+ * The posting_requests table is the record: a key is claimed by inserting
+ * its row in the same transaction as the posting, so the key and the
+ * posting commit or roll back together. A second claim of the same key
+ * waits for the first transaction and then finds its row. Recently
+ * committed keys are also kept in memory, so most retries are answered
+ * without a query. That cache is split into stripes by key hash, each a
+ * small LRU map with its own lock, so concurrent requests rarely contend.
+ */
+final class IdempotencyKeys {
+
+    private static final int CACHE_SIZE = Integer.parseInt(DatabaseConnection.getProperty("db.idempotency.cacheSize", "10000"));
+    private static final int STRIPES = 16;
+
+    private static final Stripe[] recent = new Stripe[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            recent[i] = new Stripe(Math.max(1, CACHE_SIZE / STRIPES));
+        }
+    }
+
+    /**
+     * A key as sent by one caller.
+     */
+    record Key(UUID callerId, String key) {
+
+        Key {
+            if (callerId == null) {
+                throw new IllegalArgumentException("Idempotency keys need a caller");
+            }
+            if (key == null || key.isBlank()) {
+                throw new IllegalArgumentException("Idempotency key is required");
+            }
+        }
+    }
+
+    /**
+     * One access-ordered LRU share of the cache.
+     */
+    private static final class Stripe extends LinkedHashMap<Key, Outcome> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Outcome> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * A posting request and, once committed, its resulting balances.
+     */
+    record Outcome(String operation, UUID accountId, UUID counterpartyId, BigDecimal amount,
+                   BigDecimal balance, BigDecimal counterpartyBalance) {
+
+        /**
+         * Checks that a retry asks for the same posting as the original.
+         */
+        Outcome requireSameRequest(String operation, UUID accountId, UUID counterpartyId, BigDecimal amount) {
+            if (!this.operation.equals(operation) || !this.accountId.equals(accountId)
+                    || !Objects.equals(this.counterpartyId, counterpartyId) || this.amount.compareTo(amount) != 0) {
+                throw new IllegalArgumentException("Idempotency key was already used for a different request");
+            }
+            return this;
+        }
+    }
+
+    private IdempotencyKeys() {
+    }
+
+    /**
+     * The committed outcome of a recently seen key, or null.
+     */
+    static Outcome recall(Key key) {
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Caches an outcome once its transaction has committed.
+     */
+    static void remember(Key key, Outcome outcome) {
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, outcome);
+        }
+    }
+
+    private static Stripe stripeFor(Key key) {
+        return recent[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    /**
+     * Claims a key inside the caller's transaction.
+     *
+     * @return null if the key is new and the caller should post, otherwise
+     * the outcome of the posting that already used it
+     */
+    static Outcome claim(Connection conn, Key key, String operation, UUID accountId, UUID counterpartyId,
+                         BigDecimal amount) throws SQLException {
+        String sql = "INSERT INTO posting_requests (caller_id, idempotency_key, operation, account_id, counterparty_id, amount, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT (caller_id, idempotency_key) DO NOTHING";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, key.callerId());
+            stmt.setString(2, key.key());
+            stmt.setString(3, operation);
+            stmt.setObject(4, accountId);
+            stmt.setObject(5, counterpartyId);
+            stmt.setBigDecimal(6, amount);
+            stmt.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now()));
+            if (stmt.executeUpdate() > 0) {
+                return null;
+            }
+        }
+
+        String selectSql = "SELECT operation, account_id, counterparty_id, amount, balance, counterparty_balance "
+                + "FROM posting_requests WHERE caller_id = ? AND idempotency_key = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+            stmt.setObject(1, key.callerId());
+            stmt.setString(2, key.key());
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next()) {
+                // Purged between the insert and the select
+                throw new SQLException("Idempotency key " + key.key() + " disappeared while being checked");
+            }
+            Outcome prior = new Outcome(rs.getString("operation"), (UUID) rs.getObject("account_id"),
+                    (UUID) rs.getObject("counterparty_id"), rs.getBigDecimal("amount"),
+                    rs.getBigDecimal("balance"), rs.getBigDecimal("counterparty_balance"));
+            return prior.requireSameRequest(operation, accountId, counterpartyId, amount);
+        }
+    }
+
+    /**
+     * Stores the resulting balances on a key claimed in this transaction.
+     */
+    static void complete(Connection conn, Key key, BigDecimal balance, BigDecimal counterpartyBalance) throws SQLException {
+        String sql = "UPDATE posting_requests SET balance = ?, counterparty_balance = ? WHERE caller_id = ? AND idempotency_key = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBigDecimal(1, balance);
+            stmt.setBigDecimal(2, counterpartyBalance);
+            stmt.setObject(3, key.callerId());
+            stmt.setString(4, key.key());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Deletes keys older than the cutoff. Retries arriving later are posted
+     * again, so the cutoff must be well past any upstream retry window.
+     *
+     * @return The number of keys deleted
+     */
+    static int purgeBefore(LocalDateTime cutoff) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM posting_requests WHERE created_at < ?")) {
+            stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            int deleted = stmt.executeUpdate();
+            for (Stripe stripe : recent) {
+                synchronized (stripe) {
+                    stripe.clear();
+                }
+            }
+            return deleted;
+        }
+    }
+}
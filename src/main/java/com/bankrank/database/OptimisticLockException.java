@@ -0,0 +1,31 @@
+package com.bankrank.database;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Thrown by AccountDAO.update when the account row was changed by someone
+ * else after it was loaded (its version no longer matches).
+ */
+public class OptimisticLockException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UUID accountId;
+    private final long expectedVersion;
+
+    public OptimisticLockException(UUID accountId, long expectedVersion) {
+        super("Account " + accountId + " was modified by another operation (expected version "
+                + expectedVersion + "). Reload and try again.");
+        this.accountId = accountId;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public long getExpectedVersion() {
+        return expectedVersion;
+    }
+}
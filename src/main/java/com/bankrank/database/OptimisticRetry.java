@@ -0,0 +1,67 @@
+package com.bankrank.database;
+
+import com.bankrank.model.Account;
+
+import java.sql.SQLException;
+
+/**
+ * Applies a change to an account and saves it, reloading and re-applying the
+ * change when the save loses an optimistic-lock race. The number of attempts
+ * comes from db.optimistic.maxAttempts in db.properties.
+ */
+public class OptimisticRetry {
+
+    /**
+     * A change to apply to a freshly loaded account. May be run more than
+     * once, so it must not have side effects outside the account.
+     */
+    @FunctionalInterface
+    public interface Mutation<T> {
+
+        T apply(Account account);
+    }
+
+    private final AccountDAO accountDAO;
+    private final int maxAttempts;
+
+    public OptimisticRetry(AccountDAO accountDAO) {
+        this(accountDAO, Integer.parseInt(DatabaseConnection.getProperty("db.optimistic.maxAttempts", "3")));
+    }
+
+    public OptimisticRetry(AccountDAO accountDAO, int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.accountDAO = accountDAO;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Applies the change to the given (already loaded) account and updates it.
+     * On conflict the account is reloaded and the change applied again.
+     *
+     * @param account The account as loaded by the caller
+     * @param change The change to apply
+     * @return The value returned by the last successful application
+     * @throws OptimisticLockException if every attempt conflicted
+     * @throws IllegalArgumentException if the account disappeared or the change rejects it
+     */
+    public <T> T update(Account account, Mutation<T> change) throws SQLException {
+        Account current = account;
+        for (int attempt = 1; ; attempt++) {
+            T result = change.apply(current);
+            try {
+                accountDAO.update(current);
+                return result;
+            } catch (OptimisticLockException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                current = accountDAO.findById(account.getAccountNumber());
+                if (current == null) {
+                    throw new IllegalArgumentException("Account not found");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.bankrank.database;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Data Access Object for cross-partition transfers whose source has been
+ * debited but whose destination has not been credited yet.
+ *
+ * The row is written in the same commit as the debit and deleted in the
+ * commit that credits the destination or reverses the debit, so after a
+ * crash every row is money that left one account and reached no other.
+ */
+public class PendingTransferDAO {
+
+    public record PendingTransfer(UUID id, UUID sourceId, UUID destinationId, BigDecimal amount) {
+    }
+
+    /**
+     * Every transfer still waiting for its second leg, oldest first.
+     */
+    public List<PendingTransfer> findAll() throws SQLException {
+        String sql = "SELECT id, source_id, destination_id, amount FROM pending_transfers ORDER BY created_at, id";
+
+        List<PendingTransfer> transfers = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                transfers.add(new PendingTransfer((UUID) rs.getObject("id"), (UUID) rs.getObject("source_id"),
+                        (UUID) rs.getObject("destination_id"), rs.getBigDecimal("amount")));
+            }
+        }
+        return transfers;
+    }
+
+    /**
+     * Records debited transfers inside the caller's transaction.
+     */
+    public void insert(Connection conn, List<PendingTransfer> transfers) throws SQLException {
+        if (transfers.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO pending_transfers (id, source_id, destination_id, amount, created_at) VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (PendingTransfer transfer : transfers) {
+                stmt.setObject(1, transfer.id());
+                stmt.setObject(2, transfer.sourceId());
+                stmt.setObject(3, transfer.destinationId());
+                stmt.setBigDecimal(4, transfer.amount());
+                stmt.setTimestamp(5, now);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Removes finished transfers inside the caller's transaction.
+     */
+    public void delete(Connection conn, List<UUID> transferIds) throws SQLException {
+        if (transferIds.isEmpty()) {
+            return;
+        }
+        String sql = "DELETE FROM pending_transfers WHERE id = ANY(?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setArray(1, conn.createArrayOf("uuid", transferIds.toArray()));
+            stmt.executeUpdate();
+        }
+    }
+}
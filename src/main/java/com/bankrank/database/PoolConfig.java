@@ -0,0 +1,87 @@
+package com.bankrank.database;
+
+import java.util.Properties;
+
+/**
+ * Connection pool settings, read from the db.pool.* keys in db.properties.
+ * Every key is optional and falls back to the defaults below.
+ */
+public class PoolConfig {
+
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final String validationQuery;
+    private final long validationIntervalMs;
+
+    public PoolConfig(int minSize, int maxSize, long acquireTimeoutMs, long idleTimeoutMs,
+                      long maxLifetimeMs, String validationQuery, long validationIntervalMs) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("db.pool.maxSize must be at least 1");
+        }
+        if (minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("db.pool.minSize must be between 0 and db.pool.maxSize");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.validationQuery = validationQuery;
+        this.validationIntervalMs = validationIntervalMs;
+    }
+
+    /**
+     * Builds the pool configuration from the loaded db.properties.
+     */
+    public static PoolConfig fromProperties(Properties props) {
+        return new PoolConfig(
+                intProperty(props, "db.pool.minSize", 2),
+                intProperty(props, "db.pool.maxSize", 10),
+                longProperty(props, "db.pool.acquireTimeoutMs", 5_000),
+                longProperty(props, "db.pool.idleTimeoutMs", 300_000),
+                longProperty(props, "db.pool.maxLifetimeMs", 1_800_000),
+                props.getProperty("db.pool.validationQuery", "SELECT 1").trim(),
+                longProperty(props, "db.pool.validationIntervalMs", 30_000));
+    }
+
+    private static int intProperty(Properties props, String key, int defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longProperty(Properties props, String key, long defaultValue) {
+        String value = props.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getAcquireTimeoutMs() {
+        return acquireTimeoutMs;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public long getMaxLifetimeMs() {
+        return maxLifetimeMs;
+    }
+
+    public String getValidationQuery() {
+        return validationQuery;
+    }
+
+    public long getValidationIntervalMs() {
+        return validationIntervalMs;
+    }
+}
@@ -0,0 +1,98 @@
+package com.bankrank.database;
+
+/**
+ * Point-in-time snapshot of connection pool usage and wait statistics.
+ */
+public class PoolStats {
+
+    private final int totalConnections;
+    private final int idleConnections;
+    private final int activeConnections;
+    private final int maxSize;
+    private final int threadsAwaiting;
+    private final long acquireCount;
+    private final long timeoutCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long connectionsCreated;
+    private final long connectionsDestroyed;
+
+    public PoolStats(int totalConnections, int idleConnections, int activeConnections, int maxSize,
+                     int threadsAwaiting, long acquireCount, long timeoutCount, long totalWaitNanos,
+                     long maxWaitNanos, long connectionsCreated, long connectionsDestroyed) {
+        this.totalConnections = totalConnections;
+        this.idleConnections = idleConnections;
+        this.activeConnections = activeConnections;
+        this.maxSize = maxSize;
+        this.threadsAwaiting = threadsAwaiting;
+        this.acquireCount = acquireCount;
+        this.timeoutCount = timeoutCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.connectionsCreated = connectionsCreated;
+        this.connectionsDestroyed = connectionsDestroyed;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Number of threads currently blocked waiting for a connection.
+     */
+    public int getThreadsAwaiting() {
+        return threadsAwaiting;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public double getAverageWaitMillis() {
+        return acquireCount == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / acquireCount;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos / 1_000_000.0;
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated;
+    }
+
+    public long getConnectionsDestroyed() {
+        return connectionsDestroyed;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "total=" + totalConnections +
+                ", idle=" + idleConnections +
+                ", active=" + activeConnections +
+                ", max=" + maxSize +
+                ", awaiting=" + threadsAwaiting +
+                ", acquired=" + acquireCount +
+                ", timeouts=" + timeoutCount +
+                String.format(", avgWaitMs=%.3f, maxWaitMs=%.3f", getAverageWaitMillis(), getMaxWaitMillis()) +
+                ", created=" + connectionsCreated +
+                ", destroyed=" + connectionsDestroyed +
+                '}';
+    }
+}
@@ -0,0 +1,166 @@
+package com.bankrank.database;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Balance snapshots for the event-sourced ledger mode.
+ *
+ * The transactions table is the source of truth: an account's balance is
+ * its latest snapshot plus the signed amounts of the transactions recorded
+ * after it. Transaction ids give the order, since every posting to an
+ * account holds a lock on that account's row while it inserts: ordinary
+ * postings update the row, and credits to a hot account's slots
+ * share-lock it.
+ */
+public class SnapshotDAO {
+
+    private static final String DERIVE_SQL = """
+            WITH snap AS (
+                SELECT balance, last_transaction_id FROM account_snapshots
+                WHERE account_id = ?
+                ORDER BY last_transaction_id DESC LIMIT 1
+            )
+            SELECT snap.balance + COALESCE((
+                SELECT SUM(CASE WHEN t.is_debit THEN -t.amount ELSE t.amount END)
+                FROM transactions t
+                WHERE t.account_id = ? AND t.id > snap.last_transaction_id
+            ), 0) AS balance
+            FROM snap
+            """;
+
+    /**
+     * Balance derived from the latest snapshot and the transactions after
+     * it, or null if the account has no snapshot yet.
+     */
+    public BigDecimal deriveBalance(Connection conn, UUID accountId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(DERIVE_SQL)) {
+            stmt.setObject(1, accountId);
+            stmt.setObject(2, accountId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? rs.getBigDecimal("balance") : null;
+        }
+    }
+
+    /**
+     * Accounts with at least minEvents transactions since their latest
+     * snapshot, including accounts that have never had one, in id order.
+     *
+     * Each account costs two short index probes: the newest snapshot by
+     * primary key, then at most minEvents entries of the (account_id, id)
+     * index past it. The transaction history itself is never scanned.
+     *
+     * @param after Last account id of the previous page, or null to start
+     */
+    public List<UUID> findAccountsDueForSnapshot(int minEvents, UUID after, int limit) throws SQLException {
+        String sql = """
+                SELECT a.id
+                FROM accounts a
+                LEFT JOIN LATERAL (
+                    SELECT last_transaction_id FROM account_snapshots s
+                    WHERE s.account_id = a.id
+                    ORDER BY last_transaction_id DESC LIMIT 1
+                ) s ON true
+                WHERE a.id > ?
+                  AND (SELECT COUNT(*) FROM (
+                          SELECT 1 FROM transactions t
+                          WHERE t.account_id = a.id AND t.id > COALESCE(s.last_transaction_id, 0)
+                          LIMIT ?
+                      ) tail) >= ?
+                ORDER BY a.id
+                LIMIT ?
+                """;
+
+        List<UUID> accountIds = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            // The all-zero id sorts before every other
+            stmt.setObject(1, after != null ? after : new UUID(0, 0));
+            stmt.setInt(2, minEvents);
+            stmt.setInt(3, minEvents);
+            stmt.setInt(4, limit);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                accountIds.add((UUID) rs.getObject("id"));
+            }
+        }
+        return accountIds;
+    }
+
+    /**
+     * Writes a snapshot of the account as of its newest transaction.
+     *
+     * The account row is locked against both updates and share locks, so
+     * the snapshot waits for postings already in flight, including hot
+     * credits, and no posting lands between reading the balance and
+     * recording the last transaction id. An account without
+     * a snapshot is seeded from its balance column, which also covers the
+     * opening deposit that was never recorded as a transaction.
+     *
+     * @return The derived balance minus the balance column: zero unless the
+     * two have drifted apart
+     */
+    public BigDecimal takeSnapshot(UUID accountId) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            BigDecimal stored;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT balance, hot_slots FROM accounts WHERE id = ? FOR NO KEY UPDATE")) {
+                stmt.setObject(1, accountId);
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    conn.rollback();
+                    return BigDecimal.ZERO;
+                }
+                stored = rs.getBigDecimal("balance");
+                if (rs.getInt("hot_slots") > 0) {
+                    stored = stored.add(AccountDAO.slotTotal(conn, accountId));
+                }
+            }
+
+            long lastTransactionId;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COALESCE(MAX(id), 0) FROM transactions WHERE account_id = ?")) {
+                stmt.setObject(1, accountId);
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                lastTransactionId = rs.getLong(1);
+            }
+
+            BigDecimal derived = deriveBalance(conn, accountId);
+            BigDecimal balance = derived != null ? derived : stored;
+
+            String sql = "INSERT INTO account_snapshots (account_id, last_transaction_id, balance, created_at) "
+                    + "VALUES (?, ?, ?, ?) ON CONFLICT (account_id, last_transaction_id) DO NOTHING";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setObject(1, accountId);
+                stmt.setLong(2, lastTransactionId);
+                stmt.setBigDecimal(3, balance);
+                stmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+                stmt.executeUpdate();
+            }
+
+            conn.commit();
+            return balance.subtract(stored);
+        } catch (SQLException | RuntimeException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+}
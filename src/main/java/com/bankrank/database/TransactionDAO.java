@@ -5,31 +5,129 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import com.bankrank.model.Money;
 import com.bankrank.model.Transaction;
+import com.bankrank.model.TransactionCursor;
+import com.bankrank.model.TransactionKind;
+import com.bankrank.model.TransactionPage;
 import com.bankrank.model.TransactionType;
 
 public class TransactionDAO {
 
-    public List<Transaction> searchTransactions(UUID accountId, String description, TransactionType type, BigDecimal minAmount, BigDecimal maxAmount) throws SQLException {
-        List<Transaction> searchTransactions = new ArrayList<>();
+    // Rows per round trip when streaming large result sets
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Streams matching transactions, newest first, to the consumer without
+     * buffering the whole result. PostgreSQL only fetches in chunks when
+     * autocommit is off and a fetch size is set.
+     *
+     * @param counterpartyId Other account of a transfer, or null for any
+     * @param description Keyword to look for in stored descriptions, or null
+     * @return The number of transactions passed to the consumer
+     */
+    public int streamTransactions(UUID accountId, UUID counterpartyId, String description, TransactionType type,
+                                  BigDecimal minAmount, BigDecimal maxAmount, Consumer<Transaction> consumer) throws SQLException {
+        String sql = buildSearchSql(accountId, counterpartyId, description, type, minAmount, maxAmount)
+                + " ORDER BY t.transaction_date DESC, t.id DESC";
+
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            int count = 0;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                bindSearchParams(stmt, accountId, counterpartyId, description, type, minAmount, maxAmount);
+                ResultSet rs = stmt.executeQuery();
+
+                while (rs.next()) {
+                    consumer.accept(mapResultSetToTransaction(rs));
+                    count++;
+                }
+            }
+            conn.commit();
+            return count;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    /**
+     * Returns one newest-first keyset page of matching transactions, ordered
+     * by (transaction_date, id). Pass null to start, then the previous page's
+     * next cursor.
+     */
+    public TransactionPage searchTransactionsPage(UUID accountId, UUID counterpartyId, String description, TransactionType type,
+                                                  BigDecimal minAmount, BigDecimal maxAmount,
+                                                  TransactionCursor before, int limit) throws SQLException {
+        StringBuilder sql = new StringBuilder(buildSearchSql(accountId, counterpartyId, description, type, minAmount, maxAmount));
+        if (before != null) {
+            sql.append(" AND (t.transaction_date, t.id) < (?, ?)");
+        }
+        // Fetch one extra row to know whether another page exists
+        sql.append(" ORDER BY t.transaction_date DESC, t.id DESC LIMIT ?");
+
+        List<Transaction> page = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int paramIndex = bindSearchParams(stmt, accountId, counterpartyId, description, type, minAmount, maxAmount);
+            if (before != null) {
+                stmt.setTimestamp(paramIndex++, Timestamp.valueOf(before.getDate()));
+                stmt.setLong(paramIndex++, before.getId());
+            }
+            stmt.setInt(paramIndex, limit + 1);
+
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                page.add(mapResultSetToTransaction(rs));
+            }
+        }
+
+        TransactionCursor next = null;
+        if (page.size() > limit) {
+            page.remove(limit);
+            next = TransactionCursor.after(page.get(limit - 1));
+        }
+        return new TransactionPage(page, next);
+    }
+
+    /**
+     * Rows written before transactions stored their kind and counterparty
+     * have neither; all they have is the description text, which named
+     * transfer counterparties by customer name. The counterparty filter
+     * therefore also matches such rows whose description mentions the
+     * counterparty's customer name, and the keyword filter searches stored
+     * descriptions, which only legacy rows have.
+     */
+    private String buildSearchSql(UUID accountId, UUID counterpartyId, String description, TransactionType type,
+                                  BigDecimal minAmount, BigDecimal maxAmount) {
         StringBuilder sql = new StringBuilder(
                 """
-            SELECT t.*, a.customer_name, a.id as account_id
-  FROM transactions t
-  JOIN accounts a ON t.account_id = a.id
-  WHERE 1=1
-        """
-        );
+            SELECT t.*, a.customer_name
+              FROM transactions t
+              JOIN accounts a ON t.account_id = a.id
+             WHERE 1=1""");
 
         if (accountId != null) {
             sql.append(" AND t.account_id = ?");
         }
-        if (description != null && !description.trim().isEmpty()) {
+        if (counterpartyId != null) {
+            sql.append(" AND (t.counterparty_id = ?")
+                    .append(" OR (t.kind IS NULL AND t.counterparty_id IS NULL AND t.transaction_type = 'TRANSFER'")
+                    .append(" AND t.description ILIKE '%' || (SELECT c.customer_name FROM accounts c WHERE c.id = ?) || '%'))");
+        }
+        if (hasKeyword(description)) {
             sql.append(" AND t.description ILIKE ?");
         }
         if (type != null) {
@@ -41,44 +139,51 @@ public class TransactionDAO {
         if (maxAmount != null) {
             sql.append(" AND t.amount <= ?");
         }
+        return sql.toString();
+    }
 
-        sql.append(" ORDER BY t.transaction_date DESC");
-
-//         PreparedStatement
-        try (Connection conn = DatabaseConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-
-            // Bind parameters in order
-            int paramIndex = 1;
-            if (accountId != null) {
-                stmt.setObject(paramIndex++, accountId);
-            }
-            if (description != null && !description.trim().isEmpty()) {
-                stmt.setString(paramIndex++, "%" + description.trim() + "%");
-            }
-            if (type != null) {
-                stmt.setString(paramIndex++, type.name());
-            }
-            if (minAmount != null) {
-                stmt.setBigDecimal(paramIndex++, minAmount);
-            }
-            if (maxAmount != null) {
-                stmt.setBigDecimal(paramIndex++, maxAmount);
-            }
+    /**
+     * Binds the search filters in order and returns the next free parameter index.
+     */
+    private int bindSearchParams(PreparedStatement stmt, UUID accountId, UUID counterpartyId, String description, TransactionType type,
+                                 BigDecimal minAmount, BigDecimal maxAmount) throws SQLException {
+        int paramIndex = 1;
+        if (accountId != null) {
+            stmt.setObject(paramIndex++, accountId);
+        }
+        if (counterpartyId != null) {
+            stmt.setObject(paramIndex++, counterpartyId);
+            stmt.setObject(paramIndex++, counterpartyId);
+        }
+        if (hasKeyword(description)) {
+            stmt.setString(paramIndex++, "%" + description.trim() + "%");
+        }
+        if (type != null) {
+            stmt.setString(paramIndex++, type.name());
+        }
+        if (minAmount != null) {
+            stmt.setBigDecimal(paramIndex++, minAmount);
+        }
+        if (maxAmount != null) {
+            stmt.setBigDecimal(paramIndex++, maxAmount);
+        }
+        return paramIndex;
+    }
 
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                String descriptionRs = rs.getString("description");
-                BigDecimal amount = rs.getBigDecimal("amount");
-                LocalDateTime dateTime = rs.getTimestamp("transaction_date").toLocalDateTime();
-                TransactionType typeRS = TransactionType.valueOf(rs.getString("transaction_type"));
-
-                // Create Transaction object and add to list
-                Transaction transaction = new Transaction(typeRS, amount, descriptionRs, dateTime);
-                searchTransactions.add(transaction);
-            }
+    private static boolean hasKeyword(String description) {
+        return description != null && !description.trim().isEmpty();
+    }
 
-        }
+    private Transaction mapResultSetToTransaction(ResultSet rs) throws SQLException {
+        long id = rs.getLong("id");
+        String descriptionRs = rs.getString("description");
+        String kindRs = rs.getString("kind");
+        Money amount = Money.of(rs.getBigDecimal("amount"));
+        LocalDateTime dateTime = rs.getTimestamp("transaction_date").toLocalDateTime();
+        TransactionType typeRS = TransactionType.valueOf(rs.getString("transaction_type"));
+        boolean debit = rs.getBoolean("is_debit");
 
-        return searchTransactions;
+        return new Transaction(id, typeRS, kindRs != null ? TransactionKind.valueOf(kindRs) : null, amount,
+                (UUID) rs.getObject("counterparty_id"), rs.getString("reference"), descriptionRs, dateTime, debit);
     }
 }
@@ -0,0 +1,13 @@
+package com.bankrank.ledger;
+
+import java.sql.SQLException;
+
+/**
+ * A change made through AccountDAO to an account a ledger may own, run while
+ * the ledger has handed the account back (see LedgerEngine.changeAccount).
+ */
+@FunctionalInterface
+public interface AccountWork<T> {
+
+    T run() throws SQLException;
+}
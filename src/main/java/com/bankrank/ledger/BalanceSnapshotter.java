@@ -0,0 +1,131 @@
+package com.bankrank.ledger;
+
+import com.bankrank.database.DatabaseConnection;
+import com.bankrank.database.SnapshotDAO;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background job that snapshots every account with at least
+ * snapshotEvery new transactions, so deriving a balance only ever sums a
+ * short tail. Snapshots whose derived balance disagrees with the balance
+ * column are counted as drift for auditing, and the latest such account is
+ * kept for inspection.
+ *
+ * Only used in event-sourced mode; see start().
+ */
+public class BalanceSnapshotter implements AutoCloseable {
+
+    // Due accounts fetched per page; a run keeps paging until none are left
+    private static final int ACCOUNTS_PER_PAGE = 1_000;
+
+    private final SnapshotDAO snapshotDAO;
+    private final int snapshotEvery;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong snapshots = new AtomicLong();
+    private final AtomicLong drifted = new AtomicLong();
+    private volatile SQLException lastError;
+    private volatile UUID lastDriftedAccount;
+
+    /**
+     * Starts a snapshotter with the configured settings if
+     * ledger.eventSourced is on.
+     *
+     * @return The running snapshotter, or null in ordinary mode
+     */
+    public static BalanceSnapshotter start() {
+        if (!Boolean.parseBoolean(DatabaseConnection.getProperty("ledger.eventSourced", "false"))) {
+            return null;
+        }
+        return new BalanceSnapshotter(new SnapshotDAO());
+    }
+
+    public BalanceSnapshotter(SnapshotDAO snapshotDAO) {
+        this(snapshotDAO,
+                Integer.parseInt(DatabaseConnection.getProperty("ledger.snapshotEvery", "100")),
+                Long.parseLong(DatabaseConnection.getProperty("ledger.snapshotIntervalMs", "60000")));
+    }
+
+    /**
+     * @param snapshotEvery New transactions per account that trigger a snapshot
+     * @param intervalMs Delay between runs
+     */
+    public BalanceSnapshotter(SnapshotDAO snapshotDAO, int snapshotEvery, long intervalMs) {
+        if (snapshotEvery < 1) {
+            throw new IllegalArgumentException("snapshotEvery must be at least 1");
+        }
+        this.snapshotDAO = snapshotDAO;
+        this.snapshotEvery = snapshotEvery;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "balance-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Snapshots every account that is due now.
+     *
+     * @return The number of snapshots written
+     */
+    public int runOnce() throws SQLException {
+        int written = 0;
+        UUID after = null;
+        List<UUID> due;
+        do {
+            due = snapshotDAO.findAccountsDueForSnapshot(snapshotEvery, after, ACCOUNTS_PER_PAGE);
+            for (UUID accountId : due) {
+                BigDecimal drift = snapshotDAO.takeSnapshot(accountId);
+                if (drift.signum() != 0) {
+                    drifted.incrementAndGet();
+                    lastDriftedAccount = accountId;
+                }
+                written++;
+                after = accountId;
+            }
+            snapshots.addAndGet(due.size());
+        } while (due.size() == ACCOUNTS_PER_PAGE);
+        return written;
+    }
+
+    public long getSnapshotCount() {
+        return snapshots.get();
+    }
+
+    public long getDriftCount() {
+        return drifted.get();
+    }
+
+    /**
+     * @return The last account whose snapshot disagreed with its balance column, or null
+     */
+    public UUID getLastDriftedAccount() {
+        return lastDriftedAccount;
+    }
+
+    public SQLException getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce();
+            lastError = null;
+        } catch (SQLException e) {
+            lastError = e;
+        }
+    }
+}
@@ -0,0 +1,757 @@
+package com.bankrank.ledger;
+
+import com.bankrank.database.AccountChange;
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.DatabaseConnection;
+import com.bankrank.database.OptimisticLockException;
+import com.bankrank.model.Account;
+import com.bankrank.model.AccountState;
+import com.bankrank.model.Money;
+import com.bankrank.model.Transaction;
+import com.bankrank.model.TransferResult;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process ledger that keeps hot accounts in memory so many tellers in one
+ * JVM can post concurrently.
+ *
+ * Every account maps to one of a fixed set of lock stripes by its UUID hash;
+ * a posting holds its account's stripe while it runs Account's own rules.
+ * Transfers take both stripes in index order, so two opposite transfers can
+ * never deadlock. Balances are written through to AccountDAO asynchronously:
+ * a single flusher thread periodically persists every account changed since
+ * the last flush in one version-checked commit.
+ *
+ * With a PostingJournal, every posting is appended to the journal while its
+ * stripe is held and is only acknowledged once the journal says it is
+ * durable, so a JVM crash cannot lose acknowledged postings: call recover
+ * at startup to replay what the database had not yet received. Each flush
+ * stores the last journal sequence per account and then checkpoints the
+ * journal. If the journal cannot be written or forced, including a timed
+ * force under the INTERVAL policy, the engine stops accepting postings and
+ * stops flushing.
+ *
+ * The engine assumes it is the only writer of the accounts it has cached.
+ * Change one through another path only inside changeAccount, which hands
+ * the account back for the duration of the change. If a flush still finds
+ * an account changed underneath it, the other accounts are written anyway
+ * and that one is reloaded with its unsaved postings replayed on top. When
+ * the fresh balance refuses a replayed posting, the account is failed the
+ * way recovery fails: postings to it are refused and the journal is no
+ * longer checkpointed, so a restart replays them against the database.
+ */
+public class LedgerEngine implements AutoCloseable {
+
+    private final AccountDAO accountDAO;
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+    private final Map<UUID, Account> accounts = new ConcurrentHashMap<>();
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher;
+    private final AtomicLong postings = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private volatile SQLException lastFlushError;
+
+    // Null when running without a journal
+    private final PostingJournal journal;
+    // Last journal sequence applied to each account; guarded by its stripe
+    private final Map<UUID, Long> journalSequences = new ConcurrentHashMap<>();
+    private volatile IOException journalFailure;
+    private volatile boolean recovered;
+    // Set when recover stopped on a record; nothing is flushed after that
+    private volatile SQLException recoveryFailure;
+    // Accounts whose postings could not be replayed after a write conflict
+    private final Map<UUID, SQLException> failedAccounts = new ConcurrentHashMap<>();
+
+    /**
+     * One journal append, run while the posting's stripes are held.
+     */
+    @FunctionalInterface
+    private interface JournalWrite {
+
+        long append() throws IOException;
+    }
+
+    /**
+     * Account state captured under its stripe lock for one flush.
+     */
+    private static final class Snapshot {
+
+        private final Account account;
+        private final AccountChange change;
+
+        private Snapshot(Account account, AccountChange change) {
+            this.account = account;
+            this.change = change;
+        }
+    }
+
+    public LedgerEngine(AccountDAO accountDAO) {
+        this(accountDAO,
+                Integer.parseInt(DatabaseConnection.getProperty("ledger.lockStripes", "1024")),
+                Long.parseLong(DatabaseConnection.getProperty("ledger.flushIntervalMs", "50")));
+    }
+
+    /**
+     * @param lockStripes Number of lock stripes, rounded up to a power of two
+     * @param flushIntervalMs Delay between write-through flushes
+     */
+    public LedgerEngine(AccountDAO accountDAO, int lockStripes, long flushIntervalMs) {
+        this(accountDAO, lockStripes, flushIntervalMs, null);
+    }
+
+    /**
+     * Engine whose postings are journaled before they are acknowledged.
+     * Call recover before the first posting.
+     */
+    public LedgerEngine(AccountDAO accountDAO, PostingJournal journal) {
+        this(accountDAO,
+                Integer.parseInt(DatabaseConnection.getProperty("ledger.lockStripes", "1024")),
+                Long.parseLong(DatabaseConnection.getProperty("ledger.flushIntervalMs", "50")),
+                journal);
+    }
+
+    /**
+     * @param lockStripes Number of lock stripes, rounded up to a power of two
+     * @param flushIntervalMs Delay between write-through flushes
+     * @param journal Write-ahead journal, or null to run without one
+     */
+    public LedgerEngine(AccountDAO accountDAO, int lockStripes, long flushIntervalMs, PostingJournal journal) {
+        if (lockStripes < 1) {
+            throw new IllegalArgumentException("lockStripes must be at least 1");
+        }
+        if (flushIntervalMs < 1) {
+            throw new IllegalArgumentException("flushIntervalMs must be at least 1");
+        }
+        this.accountDAO = accountDAO;
+        this.journal = journal;
+
+        int size = Integer.highestOneBit(lockStripes);
+        if (size < lockStripes) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.stripeMask = size - 1;
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ledger-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deposits into the cached account and returns the new balance.
+     */
+    public BigDecimal deposit(UUID accountId, BigDecimal amount) throws SQLException {
+        requireReady();
+        Money money = Money.of(amount);
+        ReentrantLock lock = stripeFor(accountId);
+        long sequence;
+        Money balance;
+        lock.lock();
+        try {
+            Account account = load(accountId);
+            account.deposit(money);
+            sequence = recordPosting(() -> journal.appendDeposit(accountId, amount), accountId, null);
+            balance = account.getBalance();
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+        return balance.toBigDecimal();
+    }
+
+    /**
+     * Withdraws from the cached account and returns the new balance.
+     */
+    public BigDecimal withdraw(UUID accountId, BigDecimal amount) throws SQLException {
+        requireReady();
+        Money money = Money.of(amount);
+        ReentrantLock lock = stripeFor(accountId);
+        long sequence;
+        Money balance;
+        lock.lock();
+        try {
+            Account account = load(accountId);
+            account.withdraw(money);
+            sequence = recordPosting(() -> journal.appendWithdrawal(accountId, amount), accountId, null);
+            balance = account.getBalance();
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(sequence);
+        return balance.toBigDecimal();
+    }
+
+    /**
+     * Moves money between two cached accounts atomically with respect to
+     * every other posting on either account.
+     *
+     * @return Both parties and their balances right after the transfer
+     */
+    public TransferResult transfer(UUID sourceId, UUID destinationId, BigDecimal amount) throws SQLException {
+        if (sourceId.equals(destinationId)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        requireReady();
+        Money money = Money.of(amount);
+
+        // Canonical order: lower stripe index first. Both accounts may share a stripe.
+        int first = stripeIndex(sourceId);
+        int second = stripeIndex(destinationId);
+        if (first > second) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+
+        long sequence;
+        TransferResult result;
+        stripes[first].lock();
+        try {
+            if (second != first) {
+                stripes[second].lock();
+            }
+            try {
+                Account source = load(sourceId);
+                Account destination = load(destinationId);
+                source.transferTo(destination, money);
+                sequence = recordPosting(() -> journal.appendTransfer(sourceId, destinationId, amount), sourceId, destinationId);
+                result = new TransferResult(sourceId, source.getCustomerName(), source.getBalance().toBigDecimal(),
+                        destinationId, destination.getCustomerName(), destination.getBalance().toBigDecimal());
+            } finally {
+                if (second != first) {
+                    stripes[second].unlock();
+                }
+            }
+        } finally {
+            stripes[first].unlock();
+        }
+        awaitDurable(sequence);
+        return result;
+    }
+
+    /**
+     * Current in-memory balance, which may be ahead of the database by up to
+     * one flush interval.
+     */
+    public BigDecimal getBalance(UUID accountId) throws SQLException {
+        ReentrantLock lock = stripeFor(accountId);
+        lock.lock();
+        try {
+            return load(accountId).getBalance().toBigDecimal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Persists every pending change now. Also run on a timer by the flusher;
+     * synchronized so two flushes never write the same version twice.
+     */
+    public synchronized void flush() throws SQLException {
+        requireJournalHealthy();
+        if (recoveryFailure != null) {
+            // Flushing would checkpoint past the records that were not replayed
+            throw new SQLException("Ledger stopped after journal recovery failed", recoveryFailure);
+        }
+
+        long checkpoint = 0;
+        if (journal != null) {
+            // Every posting up to here has released its stripe once this
+            // barrier passes, so the snapshots below include all of them
+            checkpoint = journal.getLastSequence();
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                stripe.unlock();
+            }
+        }
+
+        if (dirty.isEmpty()) {
+            checkpointJournal(checkpoint);
+            return;
+        }
+
+        List<UUID> ids = new ArrayList<>(dirty);
+        dirty.removeAll(ids);
+
+        List<Snapshot> snapshots = new ArrayList<>(ids.size());
+        List<AccountChange> changes = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Account account = accounts.get(id);
+            if (account == null) {
+                continue;
+            }
+            ReentrantLock lock = stripeFor(id);
+            lock.lock();
+            try {
+                AccountState state = account.snapshot();
+                AccountChange change = new AccountChange(id, state.getBalance().toBigDecimal(), state.getVersion(),
+                        state.getUnsavedTransactions(), journalSequences.getOrDefault(id, 0L));
+                snapshots.add(new Snapshot(account, change));
+                changes.add(change);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean conflicted = false;
+        while (!changes.isEmpty()) {
+            try {
+                write(changes);
+                break;
+            } catch (OptimisticLockException e) {
+                int index = indexOf(changes, e.getAccountId());
+                if (index < 0) {
+                    requeue(changes);
+                    throw e;
+                }
+                // Write everyone else; the conflicting account is reloaded
+                changes.remove(index);
+                snapshots.remove(index);
+                conflicted = true;
+                try {
+                    resolveConflict(e);
+                } catch (SQLException | RuntimeException reloadError) {
+                    dirty.add(e.getAccountId());
+                    requeue(changes);
+                    throw reloadError;
+                }
+            } catch (SQLException | RuntimeException e) {
+                // Keep the accounts pending so the next flush retries them
+                requeue(changes);
+                throw e;
+            }
+        }
+
+        // Postings that arrived after the snapshot stay unsaved for the next flush
+        for (Snapshot snapshot : snapshots) {
+            ReentrantLock lock = stripeFor(snapshot.change.getAccountId());
+            lock.lock();
+            try {
+                snapshot.account.markTransactionsSaved(snapshot.change.getNewTransactions().size());
+                snapshot.account.setVersion(snapshot.change.getExpectedVersion() + 1);
+            } finally {
+                lock.unlock();
+            }
+        }
+        flushes.incrementAndGet();
+        if (!conflicted && failedAccounts.isEmpty()) {
+            // A reloaded account's replayed postings are not written yet
+            checkpointJournal(checkpoint);
+        }
+    }
+
+    /**
+     * Replays journaled postings the database has not received yet, then
+     * flushes them. Call once at startup, before any posting.
+     *
+     * A posting is replayed on each account whose stored journal_seq is
+     * below its sequence, so one flushed before the crash is not applied
+     * twice. Only postings that passed validation were journaled, so the
+     * replay goes through the same Account rules as the original.
+     *
+     * A record that cannot be replayed (its account is gone, or the rules
+     * now refuse it) means the journal and the database disagree. Recovery
+     * then stops with an error naming the record and where it is in the
+     * journal. Nothing replayed so far is kept, and the engine neither
+     * posts nor flushes, so the journal stays intact for whoever fixes it.
+     *
+     * @return The number of journal records replayed
+     */
+    public synchronized int recover() throws SQLException {
+        if (journal == null) {
+            return 0;
+        }
+        List<PostingJournal.Record> records;
+        try {
+            records = journal.recover();
+        } catch (IOException e) {
+            throw new SQLException("Could not read the posting journal", e);
+        }
+
+        Map<UUID, Long> stored = new HashMap<>();
+        int replayed = 0;
+        for (PostingJournal.Record record : records) {
+            UUID accountId = record.getAccountId();
+            UUID destinationId = record.getDestinationAccountId();
+            try {
+                boolean applySource = needsReplay(stored, accountId, record.getSequence());
+                boolean applyDestination = destinationId != null && needsReplay(stored, destinationId, record.getSequence());
+                if (!applySource && !applyDestination) {
+                    continue;
+                }
+
+                Account account = load(accountId);
+                Money amount = Money.of(record.getAmount());
+                switch (record.getKind()) {
+                    case DEPOSIT ->
+                        account.deposit(amount);
+                    case WITHDRAWAL ->
+                        account.withdraw(amount);
+                    case TRANSFER -> {
+                        Account destination = load(destinationId);
+                        if (applySource && applyDestination) {
+                            account.transferTo(destination, amount);
+                        } else if (applySource) {
+                            account.debitTransfer(destination.getAccountNumber(), amount);
+                        } else {
+                            destination.creditTransfer(account.getAccountNumber(), amount);
+                        }
+                    }
+                }
+                if (applySource) {
+                    journalSequences.put(accountId, record.getSequence());
+                    markDirty(accountId);
+                }
+                if (applyDestination) {
+                    journalSequences.put(destinationId, record.getSequence());
+                    markDirty(destinationId);
+                }
+                replayed++;
+            } catch (IllegalArgumentException e) {
+                throw stopRecovery(new SQLException("Journal record " + record + " cannot be replayed: " + e.getMessage(), e));
+            } catch (SQLException e) {
+                throw stopRecovery(e);
+            }
+        }
+
+        flush();
+        recovered = true;
+        return replayed;
+    }
+
+    /**
+     * Runs a change made through AccountDAO, such as applying interest or a
+     * new PIN, on an account the engine may have cached. The account's
+     * pending postings are written first and it is dropped from the cache;
+     * postings to it wait until the change is done and then reload it.
+     */
+    public synchronized <T> T changeAccount(UUID accountId, AccountWork<T> work) throws SQLException {
+        requireJournalHealthy();
+        // The monitor keeps flushes out, so the account's version is not
+        // written twice; holding the stripe keeps its postings out
+        ReentrantLock lock = stripeFor(accountId);
+        lock.lock();
+        try {
+            Account account = accounts.get(accountId);
+            if (account != null && dirty.contains(accountId)) {
+                AccountState state = account.snapshot();
+                write(List.of(new AccountChange(accountId, state.getBalance().toBigDecimal(), state.getVersion(),
+                        state.getUnsavedTransactions(), journalSequences.getOrDefault(accountId, 0L))));
+            }
+            accounts.remove(accountId);
+            dirty.remove(accountId);
+            return work.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCachedAccountCount() {
+        return accounts.size();
+    }
+
+    public int getPendingAccountCount() {
+        return dirty.size();
+    }
+
+    /**
+     * Accounts the engine stopped posting to after a write conflict, with
+     * the reason for each.
+     */
+    public Map<UUID, SQLException> getFailedAccounts() {
+        return Map.copyOf(failedAccounts);
+    }
+
+    public long getPostingCount() {
+        return postings.get();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    /**
+     * The error from the most recent failed background flush, or null.
+     */
+    public SQLException getLastFlushError() {
+        return lastFlushError;
+    }
+
+    /**
+     * Stops the flusher, writes whatever is still pending and closes the
+     * journal.
+     */
+    @Override
+    public void close() throws SQLException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new SQLException("Could not close the posting journal", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The cached account, loaded on first use. Called with the account's
+     * stripe held, or by recover before any posting, so it cannot be loaded
+     * twice or dropped meanwhile.
+     */
+    private Account load(UUID accountId) throws SQLException {
+        Account account = accounts.get(accountId);
+        if (account != null) {
+            return account;
+        }
+        SQLException failure = failedAccounts.get(accountId);
+        if (failure != null) {
+            throw new SQLException("Ledger stopped posting to account " + accountId, failure);
+        }
+        Account loaded = accountDAO.findById(accountId);
+        if (loaded == null) {
+            throw new IllegalArgumentException("Account not found: " + accountId);
+        }
+        accounts.put(accountId, loaded);
+        return loaded;
+    }
+
+    /**
+     * Writes captured changes in one commit. Package-private so tests can
+     * capture the writes instead of needing a database.
+     */
+    void write(List<AccountChange> changes) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            accountDAO.applyChanges(conn, changes);
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    private void markDirty(UUID accountId) {
+        dirty.add(accountId);
+    }
+
+    private void requeue(List<AccountChange> changes) {
+        for (AccountChange change : changes) {
+            dirty.add(change.getAccountId());
+        }
+    }
+
+    private static int indexOf(List<AccountChange> changes, UUID accountId) {
+        for (int i = 0; i < changes.size(); i++) {
+            if (changes.get(i).getAccountId().equals(accountId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replaces an account someone else wrote with a fresh copy carrying
+     * every posting the engine has not saved yet, or fails the account if
+     * the fresh copy refuses one. Called from flush, so no other flush runs.
+     */
+    private void resolveConflict(OptimisticLockException conflict) throws SQLException {
+        UUID accountId = conflict.getAccountId();
+        ReentrantLock lock = stripeFor(accountId);
+        lock.lock();
+        try {
+            Account stale = accounts.get(accountId);
+            if (stale == null) {
+                return;
+            }
+            Account fresh = accountDAO.findById(accountId);
+            try {
+                if (fresh == null) {
+                    throw new IllegalArgumentException("Account not found");
+                }
+                for (Transaction transaction : stale.getUnsavedTransactions()) {
+                    replay(fresh, transaction);
+                }
+            } catch (IllegalArgumentException e) {
+                accounts.remove(accountId);
+                dirty.remove(accountId);
+                failedAccounts.put(accountId, new SQLException("Account " + accountId
+                        + " was changed outside the ledger and its unsaved postings cannot be replayed: "
+                        + e.getMessage(), conflict));
+                return;
+            }
+            accounts.put(accountId, fresh);
+            markDirty(accountId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void replay(Account account, Transaction transaction) {
+        Money amount = transaction.getAmount();
+        switch (transaction.getKind()) {
+            case DEPOSIT ->
+                account.deposit(amount);
+            case WITHDRAWAL ->
+                account.withdraw(amount);
+            case TRANSFER_OUT ->
+                account.debitTransfer(transaction.getCounterpartyId(), amount);
+            case TRANSFER_IN ->
+                account.creditTransfer(transaction.getCounterpartyId(), amount);
+            default ->
+                throw new IllegalArgumentException("Cannot replay a " + transaction.getKind() + " posting");
+        }
+    }
+
+    /**
+     * Journals a posting that was just applied and marks its accounts dirty.
+     * Runs with the accounts' stripes held, so journal order matches the
+     * order postings were applied to each account.
+     *
+     * @return The journal sequence, or 0 without a journal
+     */
+    private long recordPosting(JournalWrite write, UUID accountId, UUID destinationId) throws SQLException {
+        long sequence = 0;
+        if (journal != null) {
+            try {
+                sequence = write.append();
+            } catch (IOException e) {
+                // The posting is applied in memory but not journaled: stop
+                // here so it is never flushed or acknowledged
+                journalFailure = e;
+                throw new SQLException("Posting journal write failed; ledger stopped", e);
+            }
+            journalSequences.put(accountId, sequence);
+            if (destinationId != null) {
+                journalSequences.put(destinationId, sequence);
+            }
+        }
+        markDirty(accountId);
+        if (destinationId != null) {
+            markDirty(destinationId);
+        }
+        postings.incrementAndGet();
+        return sequence;
+    }
+
+    private void awaitDurable(long sequence) throws SQLException {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.awaitDurable(sequence);
+        } catch (IOException e) {
+            journalFailure = e;
+            throw new SQLException("Posting journal fsync failed; ledger stopped", e);
+        }
+    }
+
+    private void requireReady() throws SQLException {
+        if (journal != null && !recovered) {
+            throw new IllegalStateException("Call recover before posting to a journaled ledger");
+        }
+        requireJournalHealthy();
+    }
+
+    private void requireJournalHealthy() throws SQLException {
+        if (journalFailure == null && journal != null && journal.getFsyncFailure() != null) {
+            journalFailure = journal.getFsyncFailure();
+        }
+        if (journalFailure != null) {
+            throw new SQLException("Ledger stopped after a journal failure", journalFailure);
+        }
+    }
+
+    private void checkpointJournal(long checkpoint) throws SQLException {
+        if (journal == null || checkpoint == 0) {
+            return;
+        }
+        try {
+            journal.checkpoint(checkpoint);
+        } catch (IOException e) {
+            throw new SQLException("Could not checkpoint the posting journal", e);
+        }
+    }
+
+    /**
+     * Drops everything recover replayed and keeps the engine from posting
+     * or flushing.
+     */
+    private SQLException stopRecovery(SQLException failure) {
+        accounts.clear();
+        dirty.clear();
+        journalSequences.clear();
+        recoveryFailure = failure;
+        return failure;
+    }
+
+    private boolean needsReplay(Map<UUID, Long> stored, UUID accountId, long sequence) throws SQLException {
+        Long applied = stored.get(accountId);
+        if (applied == null) {
+            applied = accountDAO.findJournalSequence(accountId);
+            stored.put(accountId, applied);
+        }
+        return sequence > applied;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+            lastFlushError = null;
+        } catch (SQLException e) {
+            lastFlushError = e;
+        } catch (RuntimeException e) {
+            lastFlushError = new SQLException("Ledger flush failed", e);
+        }
+    }
+
+    private ReentrantLock stripeFor(UUID accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+
+    private int stripeIndex(UUID accountId) {
+        int h = accountId.hashCode();
+        // Spread the high bits so the mask sees them too
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+}
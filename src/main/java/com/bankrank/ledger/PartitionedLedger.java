@@ -0,0 +1,548 @@
+package com.bankrank.ledger;
+
+import com.bankrank.database.AccountChange;
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.DatabaseConnection;
+import com.bankrank.database.PendingTransferDAO;
+import com.bankrank.database.PendingTransferDAO.PendingTransfer;
+import com.bankrank.model.Account;
+import com.bankrank.model.Money;
+import com.bankrank.model.TransferResult;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Ledger that partitions accounts across worker threads by account id hash.
+ *
+ * Each worker exclusively owns the Account objects of its partition and
+ * processes a mailbox of commands one at a time, so no account is ever
+ * locked. A worker drains whatever is waiting in its mailbox, applies it,
+ * writes the changed accounts in one commit and only then completes the
+ * callers' futures.
+ *
+ * A transfer inside one partition is a single command. Across partitions
+ * it becomes messages between the two workers: the destination is looked up
+ * first, the source worker debits, the destination worker credits, and if
+ * the credit fails the source worker reverses the debit. Each leg is
+ * committed before the next one is sent. The debit commit also records the
+ * transfer in pending_transfers and the credit or reversal commit removes
+ * it, so call recover at startup to finish transfers a crash interrupted.
+ *
+ * close() refuses new commands but lets transfers already under way send
+ * their remaining legs, then stops each worker with a sentinel command
+ * once it has committed everything ahead of it.
+ *
+ * The ledger must be the only writer of the accounts it owns; change one
+ * through AccountDAO only with changeAccount.
+ */
+public class PartitionedLedger implements AutoCloseable {
+
+    private final AccountDAO accountDAO;
+    private final PendingTransferDAO pendingTransferDAO = new PendingTransferDAO();
+    private final Worker[] workers;
+    private final int maxBatchSize;
+    private volatile boolean accepting = true;
+    // Top-level commands not completed yet, including every leg of a transfer
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Work run by the worker that owns the accounts it touches.
+     */
+    @FunctionalInterface
+    private interface Action<T> {
+
+        T apply(Worker worker) throws SQLException;
+    }
+
+    /**
+     * A mailbox entry and the future its sender is waiting on.
+     */
+    private static final class Command<T> {
+
+        private final Action<T> action;
+        // Runs only after every earlier command in the mailbox is committed
+        private final boolean exclusive;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Exception failure;
+
+        private Command(Action<T> action, boolean exclusive) {
+            this.action = action;
+            this.exclusive = exclusive;
+        }
+
+        private void run(Worker worker) {
+            try {
+                value = action.apply(worker);
+            } catch (SQLException | RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        private void complete(SQLException commitFailure) {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else if (commitFailure != null) {
+                result.completeExceptionally(commitFailure);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+
+    // Queued by close(); a worker that reaches it commits and exits
+    private static final Command<Void> STOP = new Command<>(worker -> null, false);
+
+    /**
+     * Name and balance of one account after a transfer leg.
+     */
+    private static final class Leg {
+
+        private final String customerName;
+        private final BigDecimal balance;
+
+        private Leg(String customerName, BigDecimal balance) {
+            this.customerName = customerName;
+            this.balance = balance;
+        }
+    }
+
+    /**
+     * One partition: its accounts, mailbox and thread.
+     */
+    private final class Worker implements Runnable {
+
+        private final BlockingQueue<Command<?>> mailbox = new LinkedBlockingQueue<>();
+        private final Map<UUID, Account> accounts = new HashMap<>();
+        private final Set<Account> used = new LinkedHashSet<>();
+        // Pending-transfer rows to write and delete in the next commit
+        private final List<PendingTransfer> transfersStarted = new ArrayList<>();
+        private final List<UUID> transfersEnded = new ArrayList<>();
+        private final Thread thread;
+
+        private Worker(int index) {
+            this.thread = new Thread(this, "ledger-partition-" + index);
+            thread.setDaemon(true);
+        }
+
+        private <T> CompletableFuture<T> send(Action<T> action) {
+            return send(action, false);
+        }
+
+        private <T> CompletableFuture<T> send(Action<T> action, boolean exclusive) {
+            Command<T> command = new Command<>(action, exclusive);
+            mailbox.add(command);
+            return command.result;
+        }
+
+        private Account account(UUID accountId) throws SQLException {
+            Account account = accounts.get(accountId);
+            if (account == null) {
+                account = accountDAO.findById(accountId);
+                if (account == null) {
+                    throw new IllegalArgumentException("Account not found");
+                }
+                accounts.put(accountId, account);
+            }
+            used.add(account);
+            return account;
+        }
+
+        @Override
+        public void run() {
+            List<Command<?>> batch = new ArrayList<>(maxBatchSize);
+            boolean stopping = false;
+            while (!stopping) {
+                try {
+                    batch.add(mailbox.take());
+                } catch (InterruptedException e) {
+                    // Only close() stops a worker; keep going until STOP arrives
+                    continue;
+                }
+                mailbox.drainTo(batch, maxBatchSize - batch.size());
+                stopping = batch.remove(STOP);
+
+                int from = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    Command<?> command = batch.get(i);
+                    if (command.exclusive) {
+                        commit(batch.subList(from, i));
+                        command.run(this);
+                        command.complete(null);
+                        from = i + 1;
+                    } else {
+                        command.run(this);
+                    }
+                }
+                commit(batch.subList(from, batch.size()));
+                batch.clear();
+            }
+
+            // Nothing is in flight once STOP is sent, so this is only a safeguard
+            Command<?> late;
+            while ((late = mailbox.poll()) != null) {
+                late.result.completeExceptionally(new IllegalStateException("Ledger is closed"));
+            }
+        }
+
+        /**
+         * Persists what the commands changed, then completes them.
+         */
+        private void commit(List<Command<?>> commands) {
+            if (commands.isEmpty()) {
+                return;
+            }
+            SQLException commitFailure = persist();
+            for (Command<?> command : commands) {
+                command.complete(commitFailure);
+            }
+        }
+
+        /**
+         * Writes every account the batch changed in one commit. If that
+         * fails, the accounts are dropped so they are reloaded from the
+         * database the next time they are used.
+         */
+        private SQLException persist() {
+            List<Account> changed = new ArrayList<>();
+            List<AccountChange> changes = new ArrayList<>();
+            for (Account account : used) {
+                if (!account.getUnsavedTransactions().isEmpty()) {
+                    changed.add(account);
+                    changes.add(AccountChange.of(account));
+                }
+            }
+            used.clear();
+            List<PendingTransfer> started = new ArrayList<>(transfersStarted);
+            List<UUID> ended = new ArrayList<>(transfersEnded);
+            transfersStarted.clear();
+            transfersEnded.clear();
+            if (changes.isEmpty() && started.isEmpty() && ended.isEmpty()) {
+                return null;
+            }
+
+            Connection conn = null;
+            try {
+                conn = DatabaseConnection.getConnection();
+                conn.setAutoCommit(false);
+                accountDAO.applyChanges(conn, changes);
+                pendingTransferDAO.insert(conn, started);
+                pendingTransferDAO.delete(conn, ended);
+                conn.commit();
+            } catch (SQLException e) {
+                rollbackQuietly(conn);
+                for (Account account : changed) {
+                    accounts.remove(account.getAccountNumber());
+                }
+                return e;
+            } finally {
+                closeQuietly(conn);
+            }
+
+            for (Account account : changed) {
+                account.markTransactionsSaved();
+                account.setVersion(account.getVersion() + 1);
+            }
+            return null;
+        }
+    }
+
+    public PartitionedLedger(AccountDAO accountDAO) {
+        this(accountDAO,
+                Integer.parseInt(DatabaseConnection.getProperty("ledger.partitions",
+                        String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                Integer.parseInt(DatabaseConnection.getProperty("ledger.partitionBatchSize", "500")));
+    }
+
+    /**
+     * @param partitions Number of worker threads
+     * @param maxBatchSize Mailbox commands applied per commit at most
+     */
+    public PartitionedLedger(AccountDAO accountDAO, int partitions, int maxBatchSize) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be at least 1");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.accountDAO = accountDAO;
+        this.maxBatchSize = maxBatchSize;
+        this.workers = new Worker[partitions];
+        for (int i = 0; i < partitions; i++) {
+            workers[i] = new Worker(i);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Completes with the balance after the deposit.
+     */
+    public CompletableFuture<BigDecimal> deposit(UUID accountId, BigDecimal amount) {
+        Money money = Money.of(amount);
+        return admit(() -> ownerOf(accountId).send(worker -> {
+            Account account = worker.account(accountId);
+            account.deposit(money);
+            return account.getBalance().toBigDecimal();
+        }));
+    }
+
+    /**
+     * Completes with the balance after the withdrawal.
+     */
+    public CompletableFuture<BigDecimal> withdraw(UUID accountId, BigDecimal amount) {
+        Money money = Money.of(amount);
+        return admit(() -> ownerOf(accountId).send(worker -> {
+            Account account = worker.account(accountId);
+            account.withdraw(money);
+            return account.getBalance().toBigDecimal();
+        }));
+    }
+
+    /**
+     * Completes with the interest that was added.
+     */
+    public CompletableFuture<BigDecimal> applyInterest(UUID accountId) {
+        return admit(() -> ownerOf(accountId).send(worker -> worker.account(accountId).applyInterest().toBigDecimal()));
+    }
+
+    /**
+     * Runs a change made through AccountDAO on the account's worker, once
+     * every command sent to that worker before it is committed, and drops
+     * the account so the next command reloads it.
+     */
+    public <T> CompletableFuture<T> changeAccount(UUID accountId, AccountWork<T> work) {
+        return admit(() -> ownerOf(accountId).send(worker -> {
+            worker.accounts.remove(accountId);
+            return work.run();
+        }, true));
+    }
+
+    public CompletableFuture<TransferResult> transfer(UUID sourceId, UUID destinationId, BigDecimal amount) {
+        if (sourceId.equals(destinationId)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cannot transfer to the same account"));
+        }
+
+        Money money = Money.of(amount);
+        return admit(() -> startTransfer(sourceId, destinationId, money));
+    }
+
+    /**
+     * Finishes the transfers a crash left between their debit and credit:
+     * each destination is credited, or the source is refunded if the credit
+     * is refused. Call once at startup, before any posting.
+     *
+     * @return The number of pending transfers found
+     * @throws SQLException if some could be neither credited nor refunded;
+     *         they stay pending for the next start
+     */
+    public int recover() throws SQLException {
+        List<PendingTransfer> pending = pendingTransferDAO.findAll();
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        List<CompletableFuture<Leg>> legs = new ArrayList<>(pending.size());
+        for (PendingTransfer transfer : pending) {
+            legs.add(admit(() -> creditOrReverse(transfer.id(), transfer.sourceId(), transfer.destinationId(),
+                    Money.of(transfer.amount()))));
+        }
+        for (CompletableFuture<Leg> leg : legs) {
+            // Refused credits were refunded; what is left is checked below
+            leg.handle((ignoredLeg, ignoredError) -> null).join();
+        }
+
+        int stuck = pendingTransferDAO.findAll().size();
+        if (stuck > 0) {
+            throw new SQLException(stuck + " pending transfers could not be credited or reversed");
+        }
+        return pending.size();
+    }
+
+    private CompletableFuture<TransferResult> startTransfer(UUID sourceId, UUID destinationId, Money money) {
+        Worker sourceWorker = ownerOf(sourceId);
+        Worker destinationWorker = ownerOf(destinationId);
+        if (sourceWorker == destinationWorker) {
+            return sourceWorker.send(worker -> {
+                Account source = worker.account(sourceId);
+                Account destination = worker.account(destinationId);
+                source.transferTo(destination, money);
+                return new TransferResult(sourceId, source.getCustomerName(), source.getBalance().toBigDecimal(),
+                        destinationId, destination.getCustomerName(), destination.getBalance().toBigDecimal());
+            });
+        }
+
+        // Phase 0: make sure the destination exists before debiting the source
+        CompletableFuture<Void> lookup = destinationWorker.send(worker -> {
+            worker.account(destinationId);
+            return null;
+        });
+
+        UUID transferId = UUID.randomUUID();
+        return lookup.thenCompose(ignoredLookup -> {
+            // Phase 1: debit the source in its own partition and record the
+            // transfer as pending in the same commit
+            CompletableFuture<Leg> debit = sourceWorker.send(worker -> {
+                Account source = worker.account(sourceId);
+                source.debitTransfer(destinationId, money);
+                worker.transfersStarted.add(new PendingTransfer(transferId, sourceId, destinationId, money.toBigDecimal()));
+                return new Leg(source.getCustomerName(), source.getBalance().toBigDecimal());
+            });
+
+            return debit.thenCompose(sourceLeg -> creditOrReverse(transferId, sourceId, destinationId, money)
+                    .thenApply(destinationLeg -> new TransferResult(sourceId, sourceLeg.customerName, sourceLeg.balance,
+                            destinationId, destinationLeg.customerName, destinationLeg.balance)));
+        });
+    }
+
+    /**
+     * Phase 2 of a debited transfer: credits the destination, or reverses
+     * the debit if that fails. Either leg removes the pending row in its
+     * own commit.
+     */
+    private CompletableFuture<Leg> creditOrReverse(UUID transferId, UUID sourceId, UUID destinationId, Money money) {
+        CompletableFuture<Leg> credit = ownerOf(destinationId).send(worker -> {
+            Account destination = worker.account(destinationId);
+            destination.creditTransfer(sourceId, money);
+            worker.transfersEnded.add(transferId);
+            return new Leg(destination.getCustomerName(), destination.getBalance().toBigDecimal());
+        });
+
+        return credit.handle((destinationLeg, error) -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(destinationLeg);
+            }
+            CompletableFuture<Void> reversal = ownerOf(sourceId).send(worker -> {
+                worker.account(sourceId).reverseTransfer(destinationId, money);
+                worker.transfersEnded.add(transferId);
+                return null;
+            });
+            // Report the credit failure once the money is back on the source
+            return reversal.<Leg>thenApply(ignored -> {
+                throw new CompletionException(unwrap(error));
+            });
+        }).thenCompose(result -> result);
+    }
+
+    public int getPartitionCount() {
+        return workers.length;
+    }
+
+    /**
+     * Commands waiting in each partition's mailbox.
+     */
+    public int[] getMailboxDepths() {
+        int[] depths = new int[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            depths[i] = workers[i].mailbox.size();
+        }
+        return depths;
+    }
+
+    /**
+     * Stops accepting commands, waits until every command already accepted
+     * has finished, including the later legs of transfers, then stops the
+     * workers.
+     */
+    @Override
+    public void close() {
+        accepting = false;
+        synchronized (inFlight) {
+            while (inFlight.get() > 0) {
+                try {
+                    inFlight.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        for (Worker worker : workers) {
+            worker.mailbox.add(STOP);
+        }
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts a top-level command unless the ledger is closing. Follow-up
+     * legs of a transfer are sent directly and are covered by its count.
+     */
+    private <T> CompletableFuture<T> admit(Supplier<CompletableFuture<T>> command) {
+        // Counted before the check, so close() either sees it or refuses it
+        inFlight.incrementAndGet();
+        if (!accepting) {
+            finished();
+            return CompletableFuture.failedFuture(new IllegalStateException("Ledger is closed"));
+        }
+        CompletableFuture<T> result;
+        try {
+            result = command.get();
+        } catch (RuntimeException e) {
+            finished();
+            throw e;
+        }
+        return result.whenComplete((ignoredValue, ignoredError) -> finished());
+    }
+
+    private void finished() {
+        if (inFlight.decrementAndGet() == 0) {
+            synchronized (inFlight) {
+                inFlight.notifyAll();
+            }
+        }
+    }
+
+    private Worker ownerOf(UUID accountId) {
+        int h = accountId.hashCode();
+        return workers[Math.floorMod(h ^ (h >>> 16), workers.length)];
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static void rollbackQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.rollback();
+        } catch (SQLException e) {
+            // The commit failure is what the callers need to see
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.setAutoCommit(true);
+            conn.close();
+        } catch (SQLException e) {
+            // The pool validates connections before lending them again
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package com.bankrank.ledger;
+
+import com.bankrank.batch.PostingRecord.Kind;
+import com.bankrank.database.DatabaseConnection;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local append-only write-ahead journal of postings for the in-memory ledger.
+ *
+ * Records are appended to segment files named after their first sequence
+ * number. Each record is [length][crc32][payload], so a record torn by a
+ * crash is detected on recovery and cut off together with anything after it.
+ * A checkpoint file holds the highest sequence known to be in the database;
+ * segments entirely at or below it are deleted.
+ *
+ * How appends become durable depends on the fsync policy:
+ * <ul>
+ * <li>PER_OP forces the file after every append;</li>
+ * <li>GROUP lets concurrent appenders share one force: the first waiter
+ * forces everything written so far and wakes the others;</li>
+ * <li>INTERVAL forces on a timer and does not wait, trading up to one
+ * interval of acknowledged postings for throughput. If a timed force
+ * fails, every later append and awaitDurable throws; see getFsyncFailure.</li>
+ * </ul>
+ */
+public class PostingJournal implements AutoCloseable {
+
+    public enum FsyncPolicy {
+        PER_OP, GROUP, INTERVAL
+    }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final long segmentBytes;
+    private final ScheduledExecutorService intervalForcer;
+
+    // Guarded by this
+    private FileChannel channel;
+    private long lastSequence;
+    private long checkpoint;
+
+    // Guarded by forceMonitor
+    private final Object forceMonitor = new Object();
+    private long durableSequence;
+    private boolean forcing;
+
+    // First failed timed force; the journal accepts nothing after it
+    private volatile IOException fsyncFailure;
+
+    /**
+     * One journaled posting.
+     */
+    public static final class Record {
+
+        private final long sequence;
+        private final Kind kind;
+        private final UUID accountId;
+        private final UUID destinationAccountId;
+        private final BigDecimal amount;
+        private final Path segment;
+        private final long offset;
+
+        public Record(long sequence, Kind kind, UUID accountId, UUID destinationAccountId, BigDecimal amount) {
+            this(sequence, kind, accountId, destinationAccountId, amount, null, -1);
+        }
+
+        private Record(long sequence, Kind kind, UUID accountId, UUID destinationAccountId, BigDecimal amount,
+                       Path segment, long offset) {
+            this.sequence = sequence;
+            this.kind = kind;
+            this.accountId = accountId;
+            this.destinationAccountId = destinationAccountId;
+            this.amount = amount;
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public UUID getAccountId() {
+            return accountId;
+        }
+
+        /**
+         * Destination of a transfer; null for deposits and withdrawals.
+         */
+        public UUID getDestinationAccountId() {
+            return destinationAccountId;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        /**
+         * Segment file the record was read from; null if it was not read by
+         * recover.
+         */
+        public Path getSegment() {
+            return segment;
+        }
+
+        /**
+         * Byte offset of the record in its segment, or -1.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + kind + " " + amount + " " + accountId
+                    + (destinationAccountId != null ? " -> " + destinationAccountId : "")
+                    + (segment != null ? " at " + segment.getFileName() + " byte " + offset : "");
+        }
+    }
+
+    /**
+     * Opens the journal in directory, creating it if needed. Call recover
+     * before the first append.
+     *
+     * @param intervalMs Force interval for the INTERVAL policy; ignored otherwise
+     * @param segmentBytes Size after which appends move to a new segment
+     */
+    public PostingJournal(Path directory, FsyncPolicy policy, long intervalMs, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.policy = policy;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+
+        if (policy == FsyncPolicy.INTERVAL) {
+            intervalForcer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            intervalForcer.scheduleWithFixedDelay(this::forceQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            intervalForcer = null;
+        }
+    }
+
+    /**
+     * Opens the journal configured by the ledger.journal.* properties.
+     */
+    public static PostingJournal fromConfig() throws IOException {
+        return new PostingJournal(
+                Path.of(DatabaseConnection.getProperty("ledger.journal.dir", "ledger-journal")),
+                FsyncPolicy.valueOf(DatabaseConnection.getProperty("ledger.journal.fsync", "GROUP").toUpperCase()),
+                Long.parseLong(DatabaseConnection.getProperty("ledger.journal.fsyncIntervalMs", "10")),
+                Long.parseLong(DatabaseConnection.getProperty("ledger.journal.segmentBytes", "67108864")));
+    }
+
+    /**
+     * Reads every intact record after the checkpoint, oldest first, and
+     * opens a new segment for appends. A torn or corrupt tail in the last
+     * segment is truncated; damage anywhere else is an error.
+     */
+    public synchronized List<Record> recover() throws IOException {
+        checkpoint = readCheckpoint();
+        lastSequence = checkpoint;
+
+        List<Path> segments = listSegments();
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            readSegment(segments.get(i), last, records);
+        }
+
+        synchronized (forceMonitor) {
+            durableSequence = lastSequence;
+        }
+        openSegment(lastSequence + 1);
+        return records;
+    }
+
+    public long appendDeposit(UUID accountId, BigDecimal amount) throws IOException {
+        return append(Kind.DEPOSIT, accountId, null, amount);
+    }
+
+    public long appendWithdrawal(UUID accountId, BigDecimal amount) throws IOException {
+        return append(Kind.WITHDRAWAL, accountId, null, amount);
+    }
+
+    public long appendTransfer(UUID sourceId, UUID destinationId, BigDecimal amount) throws IOException {
+        return append(Kind.TRANSFER, sourceId, destinationId, amount);
+    }
+
+    /**
+     * Blocks until the record with this sequence is on disk as far as the
+     * fsync policy promises.
+     */
+    public void awaitDurable(long sequence) throws IOException {
+        requireNoFsyncFailure();
+        if (policy == FsyncPolicy.GROUP) {
+            groupForce(sequence);
+        }
+    }
+
+    /**
+     * The error of the timed force that failed under the INTERVAL policy,
+     * or null. Once set, the journal accepts no more appends.
+     */
+    public IOException getFsyncFailure() {
+        return fsyncFailure;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Records that every posting up to sequence is in the database and
+     * deletes the segments that are no longer needed for recovery.
+     */
+    public synchronized void checkpoint(long sequence) throws IOException {
+        if (sequence <= checkpoint) {
+            return;
+        }
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(Long.toString(sequence).getBytes(StandardCharsets.US_ASCII)));
+            out.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoint = sequence;
+
+        // A segment is covered once the next one starts at or below checkpoint + 1
+        List<Path> segments = listSegments();
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstSequenceOf(segments.get(i + 1)) <= sequence + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (intervalForcer != null) {
+            intervalForcer.shutdown();
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.force(false);
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private synchronized long append(Kind kind, UUID accountId, UUID destinationAccountId, BigDecimal amount) throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("Journal is not open; call recover first");
+        }
+        requireNoFsyncFailure();
+        if (channel.position() >= segmentBytes) {
+            rollSegment();
+        }
+
+        long sequence = lastSequence + 1;
+        channel.write(encode(new Record(sequence, kind, accountId, destinationAccountId, amount)));
+        lastSequence = sequence;
+
+        if (policy == FsyncPolicy.PER_OP) {
+            channel.force(false);
+            markDurable(sequence);
+        }
+        return sequence;
+    }
+
+    private void groupForce(long sequence) throws IOException {
+        while (true) {
+            synchronized (forceMonitor) {
+                while (durableSequence < sequence && forcing) {
+                    try {
+                        forceMonitor.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for journal fsync");
+                    }
+                }
+                if (durableSequence >= sequence) {
+                    return;
+                }
+                forcing = true;
+            }
+
+            // This thread leads: one force covers everything written so far
+            FileChannel target;
+            long upTo;
+            synchronized (this) {
+                target = channel;
+                upTo = lastSequence;
+            }
+            boolean forced = false;
+            try {
+                forceChannel(target);
+                forced = true;
+            } finally {
+                synchronized (forceMonitor) {
+                    forcing = false;
+                    if (forced && upTo > durableSequence) {
+                        durableSequence = upTo;
+                    }
+                    forceMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void forceQuietly() {
+        FileChannel target;
+        long upTo;
+        synchronized (this) {
+            target = channel;
+            upTo = lastSequence;
+        }
+        if (target == null) {
+            return;
+        }
+        try {
+            forceChannel(target);
+            markDurable(upTo);
+        } catch (IOException e) {
+            // Records since the last force may be lost: refuse everything
+            // from now on so the ledger stops instead of acknowledging more
+            if (fsyncFailure == null) {
+                fsyncFailure = e;
+            }
+            intervalForcer.shutdown();
+        }
+    }
+
+    private void requireNoFsyncFailure() throws IOException {
+        IOException failure = fsyncFailure;
+        if (failure != null) {
+            throw new IOException("Journal fsync failed earlier; no further postings are accepted", failure);
+        }
+    }
+
+    private void forceChannel(FileChannel target) throws IOException {
+        try {
+            target.force(false);
+        } catch (ClosedChannelException e) {
+            // The segment was rolled, which forced it before closing
+        }
+    }
+
+    private void markDurable(long sequence) {
+        synchronized (forceMonitor) {
+            if (sequence > durableSequence) {
+                durableSequence = sequence;
+            }
+            forceMonitor.notifyAll();
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        channel.force(false);
+        channel.close();
+        markDurable(lastSequence);
+        openSegment(lastSequence + 1);
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // Make the new file's directory entry durable too
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Not every platform can open a directory for fsync
+        }
+    }
+
+    private void readSegment(Path segment, boolean last, List<Record> records) throws IOException {
+        long goodBytes = 0;
+        try (InputStream raw = Files.newInputStream(segment);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;  // End of segment, or a length cut short; checked below
+                }
+                try {
+                    int crc = in.readInt();
+                    if (length <= 0 || length > 1 << 16) {
+                        throw new IOException("Bad record length " + length);
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    if (crc != checksum(payload)) {
+                        throw new IOException("Checksum mismatch");
+                    }
+                    Record record = decode(payload, segment, goodBytes);
+                    goodBytes += 8 + length;
+                    lastSequence = Math.max(lastSequence, record.sequence);
+                    if (record.sequence > checkpoint) {
+                        records.add(record);
+                    }
+                } catch (IOException e) {
+                    if (!last) {
+                        throw new IOException("Journal segment " + segment + " is damaged at byte " + goodBytes, e);
+                    }
+                    break;  // Torn write from a crash: drop it and everything after it
+                }
+            }
+        }
+        if (Files.size(segment) == goodBytes) {
+            return;
+        }
+        if (!last) {
+            throw new IOException("Journal segment " + segment + " is damaged at byte " + goodBytes);
+        }
+        try (FileChannel out = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            out.truncate(goodBytes);
+            out.force(true);
+        }
+    }
+
+    private ByteBuffer encode(Record record) {
+        byte[] unscaled = record.amount.unscaledValue().toByteArray();
+        ByteBuffer payload = ByteBuffer.allocate(8 + 1 + 32 + 4 + 2 + unscaled.length);
+        payload.putLong(record.sequence);
+        payload.put((byte) record.kind.ordinal());
+        putUuid(payload, record.accountId);
+        putUuid(payload, record.destinationAccountId);
+        payload.putInt(record.amount.scale());
+        payload.putShort((short) unscaled.length);
+        payload.put(unscaled);
+
+        byte[] bytes = payload.array();
+        ByteBuffer framed = ByteBuffer.allocate(8 + bytes.length);
+        framed.putInt(bytes.length);
+        framed.putInt(checksum(bytes));
+        framed.put(bytes);
+        framed.flip();
+        return framed;
+    }
+
+    private Record decode(byte[] bytes, Path segment, long offset) throws IOException {
+        ByteBuffer payload = ByteBuffer.wrap(bytes);
+        try {
+            long sequence = payload.getLong();
+            Kind kind = Kind.values()[payload.get()];
+            UUID accountId = getUuid(payload);
+            UUID destinationAccountId = getUuid(payload);
+            int scale = payload.getInt();
+            byte[] unscaled = new byte[payload.getShort()];
+            payload.get(unscaled);
+            return new Record(sequence, kind, accountId, destinationAccountId, new BigDecimal(new BigInteger(unscaled), scale),
+                    segment, offset);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed journal record", e);
+        }
+    }
+
+    private void putUuid(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id == null ? 0 : id.getMostSignificantBits());
+        buffer.putLong(id == null ? 0 : id.getLeastSignificantBits());
+    }
+
+    private UUID getUuid(ByteBuffer buffer) {
+        long most = buffer.getLong();
+        long least = buffer.getLong();
+        return most == 0 && least == 0 ? null : new UUID(most, least);
+    }
+
+    private int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        return Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    private long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,724 @@
+package com.bankrank.ledger;
+
+import com.bankrank.batch.PostingRecord.Kind;
+import com.bankrank.database.AccountChange;
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.DatabaseConnection;
+import com.bankrank.database.OptimisticLockException;
+import com.bankrank.model.Account;
+import com.bankrank.model.Money;
+import com.bankrank.model.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring-buffer posting pipeline in the style of the LMAX Disruptor.
+ *
+ * Producers claim a sequence number, fill the preallocated slot it maps to
+ * and publish it. Three threads then follow each other around the ring:
+ * <ol>
+ * <li>the writer applies postings to its own in-memory accounts through
+ * Account's rules, with no locks since it is the only thread touching them;</li>
+ * <li>the journaler writes everything the writer has applied so far to the
+ * accounts and transactions tables in one commit;</li>
+ * <li>the side-effect stage hands each durable posting to the listener
+ * (emails, statements, ...).</li>
+ * </ol>
+ * A stage never passes the one before it, and producers wait when the ring
+ * is full until the last stage frees a slot. The submit methods return a
+ * future that the side-effect stage completes once the posting is durable.
+ *
+ * The pipeline must be the only writer of the accounts it posts to; change
+ * one through AccountDAO only with submitChange. A journal commit that
+ * fails is retried a few times (pipeline.maxJournalAttempts), but a version
+ * conflict is not, since retrying cannot fix it. When the commit is given
+ * up, every posting in it fails, and so does every posting the writer
+ * applied on top of it. The writer then drops its accounts and reloads
+ * them from the database. See getLastJournalError.
+ */
+public class PostingPipeline implements AutoCloseable {
+
+    private static final int SPIN_TRIES = 200;
+    private static final long PARK_NANOS = 1_000;
+
+    private final AccountDAO accountDAO;
+    private final PostingListener listener;
+    private final Slot[] ring;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final int maxJournalBatch;
+    private final int maxJournalAttempts;
+
+    // Highest sequence claimed by producers and finished by each stage
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong applied = new AtomicLong(-1);
+    private final AtomicLong journaled = new AtomicLong(-1);
+    private final AtomicLong completed = new AtomicLong(-1);
+
+    // First sequence the writer applied to state the database agrees with;
+    // RESYNC until the writer has dropped its accounts after a failed commit
+    private static final long RESYNC = Long.MAX_VALUE;
+    private final AtomicLong trustedFrom = new AtomicLong(0);
+
+    // Owned by the writer thread only
+    private final Map<UUID, Account> accounts = new HashMap<>();
+
+    private final LatencyStats applyLatency = new LatencyStats();
+    private final LatencyStats durableLatency = new LatencyStats();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    private volatile SQLException lastJournalError;
+    private volatile RuntimeException lastListenerError;
+    private final AtomicLong failedPostings = new AtomicLong();
+    private final AtomicLong listenerFailures = new AtomicLong();
+
+    /**
+     * Receives each posting once it has been committed, on the side-effect
+     * thread. The slot is reused afterwards, so copy whatever is kept.
+     */
+    public interface PostingListener {
+
+        /**
+         * @param rejection Why the posting was refused, or null if it was applied
+         */
+        void onPosting(long sequence, Kind kind, UUID accountId, UUID destinationAccountId, Money amount,
+                Money balance, String rejection);
+    }
+
+    /**
+     * What a durable posting left behind; the destination fields are null
+     * unless it was a transfer.
+     */
+    public record Receipt(long sequence, String customerName, Money balance,
+                          String destinationCustomerName, Money destinationBalance) {
+    }
+
+    /**
+     * One preallocated ring entry. Written by a producer, then the writer;
+     * read by the later stages.
+     */
+    private static final class Slot {
+
+        // Null for an account change (see submitChange)
+        private Kind kind;
+        private UUID accountId;
+        private UUID destinationAccountId;
+        private Money amount;
+        private long publishedNanos;
+        private CompletableFuture<Receipt> receipt;
+        private Runnable change;
+
+        // Filled in by the writer
+        private String rejection;
+        private String customerName;
+        private String destinationCustomerName;
+        private Money balance;
+        private Money destinationBalance;
+        private long version;
+        private long destinationVersion;
+        private Transaction transaction;
+        private Transaction destinationTransaction;
+
+        // Set by the journaler when the posting could not be saved
+        private SQLException failure;
+
+        private boolean isPosting() {
+            return change == null;
+        }
+    }
+
+    /**
+     * Count, mean and max of one latency, in nanoseconds.
+     */
+    public static final class LatencyStats {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMeanNanos() {
+            long n = count.get();
+            return n == 0 ? 0 : totalNanos.get() / n;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return count.get() + " postings, mean " + getMeanNanos() / 1_000 + " µs, max " + getMaxNanos() / 1_000 + " µs";
+        }
+    }
+
+    public PostingPipeline(AccountDAO accountDAO, PostingListener listener) {
+        this(accountDAO, listener,
+                Integer.parseInt(DatabaseConnection.getProperty("pipeline.ringSize", "65536")),
+                Integer.parseInt(DatabaseConnection.getProperty("pipeline.maxJournalBatch", "1000")),
+                Integer.parseInt(DatabaseConnection.getProperty("pipeline.maxJournalAttempts", "5")));
+    }
+
+    /**
+     * @param ringSize Number of slots, rounded up to a power of two
+     * @param maxJournalBatch Postings written per journal commit at most
+     * @param maxJournalAttempts Tries per journal commit before its postings fail
+     */
+    public PostingPipeline(AccountDAO accountDAO, PostingListener listener, int ringSize, int maxJournalBatch,
+                           int maxJournalAttempts) {
+        if (ringSize < 2) {
+            throw new IllegalArgumentException("ringSize must be at least 2");
+        }
+        if (maxJournalBatch < 1) {
+            throw new IllegalArgumentException("maxJournalBatch must be at least 1");
+        }
+        if (maxJournalAttempts < 1) {
+            throw new IllegalArgumentException("maxJournalAttempts must be at least 1");
+        }
+        this.accountDAO = accountDAO;
+        this.listener = listener;
+        this.maxJournalBatch = maxJournalBatch;
+        this.maxJournalAttempts = maxJournalAttempts;
+
+        int size = Integer.highestOneBit(ringSize);
+        if (size < ringSize) {
+            size <<= 1;
+        }
+        this.ring = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Loads accounts into the writer's state before start, so the first
+     * postings to them do not wait on the database.
+     */
+    public void preload(List<UUID> accountIds) throws SQLException {
+        if (running) {
+            throw new IllegalStateException("preload must be called before start");
+        }
+        for (UUID id : accountIds) {
+            Account account = accountDAO.findById(id);
+            if (account != null) {
+                accounts.put(id, account);
+            }
+        }
+    }
+
+    public void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        threads.add(startThread("pipeline-writer", this::runWriter));
+        threads.add(startThread("pipeline-journal", this::runJournal));
+        threads.add(startThread("pipeline-side-effects", this::runSideEffects));
+    }
+
+    /**
+     * @return The sequence number of the posting
+     */
+    public long publishDeposit(UUID accountId, BigDecimal amount) {
+        return publish(Kind.DEPOSIT, accountId, null, Money.of(amount), null, null);
+    }
+
+    public long publishWithdrawal(UUID accountId, BigDecimal amount) {
+        return publish(Kind.WITHDRAWAL, accountId, null, Money.of(amount), null, null);
+    }
+
+    public long publishTransfer(UUID sourceId, UUID destinationId, BigDecimal amount) {
+        return publish(Kind.TRANSFER, sourceId, destinationId, Money.of(amount), null, null);
+    }
+
+    /**
+     * Publishes a deposit. The future completes once it is durable, or
+     * fails with IllegalArgumentException if it was refused or SQLException
+     * if it could not be saved.
+     */
+    public CompletableFuture<Receipt> submitDeposit(UUID accountId, BigDecimal amount) {
+        CompletableFuture<Receipt> receipt = new CompletableFuture<>();
+        publish(Kind.DEPOSIT, accountId, null, Money.of(amount), receipt, null);
+        return receipt;
+    }
+
+    /**
+     * Publishes a withdrawal; the future completes as for submitDeposit.
+     */
+    public CompletableFuture<Receipt> submitWithdrawal(UUID accountId, BigDecimal amount) {
+        CompletableFuture<Receipt> receipt = new CompletableFuture<>();
+        publish(Kind.WITHDRAWAL, accountId, null, Money.of(amount), receipt, null);
+        return receipt;
+    }
+
+    /**
+     * Publishes a transfer; the future completes as for submitDeposit.
+     */
+    public CompletableFuture<Receipt> submitTransfer(UUID sourceId, UUID destinationId, BigDecimal amount) {
+        CompletableFuture<Receipt> receipt = new CompletableFuture<>();
+        publish(Kind.TRANSFER, sourceId, destinationId, Money.of(amount), receipt, null);
+        return receipt;
+    }
+
+    /**
+     * Runs a change made through AccountDAO on the writer thread, once every
+     * earlier posting is durable, and then drops the account from the
+     * writer's state so later postings reload it. Postings behind it wait,
+     * so keep the work short.
+     */
+    public <T> CompletableFuture<T> submitChange(UUID accountId, AccountWork<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        publish(null, accountId, null, null, null, () -> {
+            try {
+                result.complete(work.run());
+            } catch (SQLException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Postings published but not yet through every stage.
+     */
+    public long getQueueDepth() {
+        return claimed.get() - completed.get();
+    }
+
+    /**
+     * Time from publish until the writer applied the posting.
+     */
+    public LatencyStats getApplyLatency() {
+        return applyLatency;
+    }
+
+    /**
+     * Time from publish until the posting was committed to the database.
+     */
+    public LatencyStats getDurableLatency() {
+        return durableLatency;
+    }
+
+    /**
+     * The error from the most recent failed journal commit attempt, or null
+     * once a commit succeeds again.
+     */
+    public SQLException getLastJournalError() {
+        return lastJournalError;
+    }
+
+    /**
+     * Postings that were applied but failed because their journal commit
+     * was given up.
+     */
+    public long getFailedPostingCount() {
+        return failedPostings.get();
+    }
+
+    /**
+     * The most recent exception thrown by the listener, or null. A failing
+     * listener does not stop the pipeline.
+     */
+    public RuntimeException getLastListenerError() {
+        return lastListenerError;
+    }
+
+    public long getListenerFailureCount() {
+        return listenerFailures.get();
+    }
+
+    /**
+     * Waits until everything published has passed every stage, then stops
+     * the threads.
+     */
+    @Override
+    public void close() {
+        long last = claimed.get();
+        while (running && completed.get() < last) {
+            LockSupport.parkNanos(PARK_NANOS * 100);
+        }
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long publish(Kind kind, UUID accountId, UUID destinationAccountId, Money amount,
+                         CompletableFuture<Receipt> receipt, Runnable change) {
+        if (!running) {
+            throw new IllegalStateException("Pipeline is not running");
+        }
+        long sequence = claimed.incrementAndGet();
+
+        // Wait until the last stage has released the slot from the previous lap
+        long wrapPoint = sequence - ring.length;
+        int tries = 0;
+        while (wrapPoint > completed.get()) {
+            tries = backOff(tries);
+        }
+
+        Slot slot = ring[(int) sequence & mask];
+        slot.kind = kind;
+        slot.accountId = accountId;
+        slot.destinationAccountId = destinationAccountId;
+        slot.amount = amount;
+        slot.publishedNanos = System.nanoTime();
+        slot.receipt = receipt;
+        slot.change = change;
+        slot.rejection = null;
+        slot.customerName = null;
+        slot.destinationCustomerName = null;
+        slot.balance = null;
+        slot.destinationBalance = null;
+        slot.transaction = null;
+        slot.destinationTransaction = null;
+        slot.failure = null;
+
+        // Volatile write: makes the slot fields visible to the writer
+        published.set((int) sequence & mask, sequence);
+        return sequence;
+    }
+
+    private void runWriter() {
+        long next = applied.get() + 1;
+        int tries = 0;
+        while (running || next <= claimed.get()) {
+            if (published.get((int) next & mask) != next) {
+                tries = backOff(tries);
+                continue;
+            }
+            tries = 0;
+            if (trustedFrom.get() == RESYNC) {
+                // A journal commit was given up: what is cached may include
+                // postings the database never got
+                accounts.clear();
+                trustedFrom.compareAndSet(RESYNC, next);
+            }
+            Slot slot = ring[(int) next & mask];
+            if (slot.isPosting()) {
+                apply(slot);
+                applyLatency.record(System.nanoTime() - slot.publishedNanos);
+            } else {
+                runChange(slot, next);
+            }
+            applied.set(next);
+            next++;
+        }
+    }
+
+    /**
+     * Runs an account change once every earlier posting is durable, so the
+     * change sees them in the database, then forgets the account.
+     */
+    private void runChange(Slot slot, long sequence) {
+        int tries = 0;
+        while (journaled.get() < sequence - 1) {
+            tries = backOff(tries);
+        }
+        slot.change.run();
+        accounts.remove(slot.accountId);
+    }
+
+    private void apply(Slot slot) {
+        try {
+            Account account = account(slot.accountId);
+            switch (slot.kind) {
+                case DEPOSIT ->
+                    account.deposit(slot.amount);
+                case WITHDRAWAL ->
+                    account.withdraw(slot.amount);
+                case TRANSFER -> {
+                    Account destination = account(slot.destinationAccountId);
+                    account.transferTo(destination, slot.amount);
+                    slot.destinationTransaction = takeNewTransaction(destination);
+                    slot.destinationCustomerName = destination.getCustomerName();
+                    slot.destinationBalance = destination.getBalance();
+                    slot.destinationVersion = destination.getVersion();
+                }
+            }
+            slot.transaction = takeNewTransaction(account);
+            slot.customerName = account.getCustomerName();
+            slot.balance = account.getBalance();
+            slot.version = account.getVersion();
+        } catch (IllegalArgumentException e) {
+            slot.rejection = e.getMessage();
+        } catch (SQLException e) {
+            slot.rejection = "Could not load account: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Hands the posting's transaction over to the journal so the account
+     * does not keep every unsaved transaction in memory.
+     */
+    private Transaction takeNewTransaction(Account account) {
+        List<Transaction> unsaved = account.getUnsavedTransactions();
+        Transaction transaction = unsaved.get(unsaved.size() - 1);
+        account.markTransactionsSaved();
+        return transaction;
+    }
+
+    private Account account(UUID accountId) throws SQLException {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            account = accountDAO.findById(accountId);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found");
+            }
+            accounts.put(accountId, account);
+        }
+        return account;
+    }
+
+    private void runJournal() {
+        // Next expected version per account; the writer only knows the loaded one
+        Map<UUID, Long> versions = new HashMap<>();
+        long next = journaled.get() + 1;
+        int tries = 0;
+        while (running || next <= claimed.get()) {
+            long available = applied.get();
+            if (available < next) {
+                tries = backOff(tries);
+                continue;
+            }
+            tries = 0;
+            long end = Math.min(available, next + maxJournalBatch - 1);
+
+            failUntrusted(next, end, versions);
+            Map<UUID, AccountChange> changes = collectChanges(next, end, versions);
+            SQLException failure = write(new ArrayList<>(changes.values()));
+            if (failure == null) {
+                for (AccountChange change : changes.values()) {
+                    versions.put(change.getAccountId(), change.getExpectedVersion() + 1);
+                }
+            } else {
+                fail(next, end, failure);
+                // The writer reloads every account, with the versions the database has
+                versions.clear();
+                trustedFrom.set(RESYNC);
+            }
+
+            long now = System.nanoTime();
+            for (long seq = next; seq <= end; seq++) {
+                Slot slot = ring[(int) seq & mask];
+                if (slot.isPosting()) {
+                    durableLatency.record(now - slot.publishedNanos);
+                }
+            }
+            journaled.set(end);
+            next = end + 1;
+        }
+    }
+
+    /**
+     * Fails the postings in [from, to] that the writer applied before it
+     * dropped its accounts after a failed commit, and forgets the versions
+     * of accounts that were just changed through submitChange.
+     */
+    private void failUntrusted(long from, long to, Map<UUID, Long> versions) {
+        for (long seq = from; seq <= to; seq++) {
+            Slot slot = ring[(int) seq & mask];
+            if (!slot.isPosting()) {
+                versions.remove(slot.accountId);
+            } else if (slot.rejection == null && seq < trustedFrom.get()) {
+                slot.failure = new SQLException("Posting " + seq + " was applied after a failed journal commit and was not saved");
+                failedPostings.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Fails every posting in [from, to] that was still to be saved.
+     */
+    private void fail(long from, long to, SQLException failure) {
+        for (long seq = from; seq <= to; seq++) {
+            Slot slot = ring[(int) seq & mask];
+            if (slot.isPosting() && slot.rejection == null && slot.failure == null) {
+                slot.failure = failure;
+                failedPostings.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Folds the applied postings in [from, to] into one change per account:
+     * its latest balance and every new transaction, in order.
+     */
+    private Map<UUID, AccountChange> collectChanges(long from, long to, Map<UUID, Long> versions) {
+        Map<UUID, Money> balances = new LinkedHashMap<>();
+        Map<UUID, List<Transaction>> transactions = new HashMap<>();
+        Map<UUID, Long> baseVersions = new HashMap<>();
+
+        for (long seq = from; seq <= to; seq++) {
+            Slot slot = ring[(int) seq & mask];
+            if (!slot.isPosting() || slot.rejection != null || slot.failure != null) {
+                continue;
+            }
+            balances.put(slot.accountId, slot.balance);
+            transactions.computeIfAbsent(slot.accountId, id -> new ArrayList<>()).add(slot.transaction);
+            baseVersions.putIfAbsent(slot.accountId, slot.version);
+            if (slot.destinationTransaction != null) {
+                balances.put(slot.destinationAccountId, slot.destinationBalance);
+                transactions.computeIfAbsent(slot.destinationAccountId, id -> new ArrayList<>()).add(slot.destinationTransaction);
+                baseVersions.putIfAbsent(slot.destinationAccountId, slot.destinationVersion);
+            }
+        }
+
+        Map<UUID, AccountChange> changes = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Money> entry : balances.entrySet()) {
+            UUID id = entry.getKey();
+            long expectedVersion = versions.getOrDefault(id, baseVersions.get(id));
+            changes.put(id, new AccountChange(id, entry.getValue().toBigDecimal(), expectedVersion, transactions.get(id)));
+        }
+        return changes;
+    }
+
+    /**
+     * Commits the changes, retrying with backoff up to maxJournalAttempts
+     * times. A version conflict means someone else wrote one of the
+     * accounts, so it is not retried.
+     *
+     * @return null once committed, otherwise the error the commit was given up on
+     */
+    private SQLException write(List<AccountChange> changes) {
+        if (changes.isEmpty()) {
+            return null;
+        }
+        long delayMillis = 10;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                commit(changes);
+                lastJournalError = null;
+                return null;
+            } catch (OptimisticLockException e) {
+                lastJournalError = e;
+                return e;
+            } catch (IllegalArgumentException e) {
+                // An account was put in hot mode behind the pipeline's back
+                lastJournalError = new SQLException("Journal commit refused: " + e.getMessage(), e);
+                return lastJournalError;
+            } catch (SQLException e) {
+                lastJournalError = e;
+                if (attempt >= maxJournalAttempts) {
+                    return e;
+                }
+                LockSupport.parkNanos(delayMillis * 1_000_000);
+                delayMillis = Math.min(delayMillis * 2, 1_000);
+            }
+        }
+    }
+
+    private void commit(List<AccountChange> changes) throws SQLException {
+        Connection conn = null;
+        try {
+            conn = DatabaseConnection.getConnection();
+            conn.setAutoCommit(false);
+            accountDAO.applyChanges(conn, changes);
+            conn.commit();
+        } catch (SQLException e) {
+            if (conn != null) {
+                conn.rollback();
+            }
+            throw e;
+        } finally {
+            if (conn != null) {
+                conn.setAutoCommit(true);
+                conn.close();
+            }
+        }
+    }
+
+    private void runSideEffects() {
+        long next = completed.get() + 1;
+        int tries = 0;
+        while (running || next <= claimed.get()) {
+            if (journaled.get() < next) {
+                tries = backOff(tries);
+                continue;
+            }
+            tries = 0;
+            Slot slot = ring[(int) next & mask];
+            if (slot.isPosting()) {
+                if (listener != null) {
+                    String rejection = slot.failure != null ? "Not saved: " + slot.failure.getMessage() : slot.rejection;
+                    try {
+                        listener.onPosting(next, slot.kind, slot.accountId, slot.destinationAccountId, slot.amount,
+                                slot.balance, rejection);
+                    } catch (RuntimeException e) {
+                        // A failing side effect must not stall the ring
+                        lastListenerError = e;
+                        listenerFailures.incrementAndGet();
+                    }
+                }
+                complete(slot, next);
+            }
+            completed.set(next);
+            next++;
+        }
+    }
+
+    private static void complete(Slot slot, long sequence) {
+        if (slot.receipt == null) {
+            return;
+        }
+        if (slot.failure != null) {
+            slot.receipt.completeExceptionally(slot.failure);
+        } else if (slot.rejection != null) {
+            slot.receipt.completeExceptionally(new IllegalArgumentException(slot.rejection));
+        } else {
+            slot.receipt.complete(new Receipt(sequence, slot.customerName, slot.balance,
+                    slot.destinationCustomerName, slot.destinationBalance));
+        }
+    }
+
+    /**
+     * Busy-spins first for the lowest latency, then parks briefly so an idle
+     * pipeline does not burn whole cores.
+     */
+    private static int backOff(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        return tries + 1;
+    }
+
+    private static Thread startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
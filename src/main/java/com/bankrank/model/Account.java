@@ -1,77 +1,73 @@
 package com.bankrank.model;
 
-import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.util.UUID;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 // Create new accounts with unique account numbers, customer name, and initial deposit
 // Support two account types: Savings and Checking
 // Each account tracks balance, account holder info, and creation date
 // Implement proper encapsulation - balance shouldn't be directly accessible
+//
+// State lives in an immutable AccountState that every change replaces.
+// Writers take the account's lock to build the next version; readers never
+// lock and can call snapshot() to read several values from one version.
 public class Account {
 
-    private final UUID accountNumber;
-    private String customerName;
-    private BigDecimal balance;
-    private final LocalDate dateCreated;
-    private final AccountType accountType;
-    private final List<Transaction> transactionHistory;
-    private String pinHash;
-    private boolean isLocked;
+    private final AtomicReference<AccountState> state;
 
     //constructor for new accounts (with PIN)
-    public Account(UUID accountNumber, String customerName, BigDecimal initialValue, AccountType accountType, String pinHash) {
-        this.accountNumber = accountNumber;
-        setCustomerName(customerName); // Use setter for validation
-        this.balance = initialValue;
-        this.dateCreated = LocalDate.now();
-        this.accountType = accountType;
-        this.transactionHistory = new ArrayList<>();
-        this.pinHash = pinHash;
-        this.isLocked = false;
+    public Account(UUID accountNumber, String customerName, Money initialValue, AccountType accountType, String pinHash) {
+        this(accountNumber, customerName, initialValue, accountType, LocalDate.now(), TransactionHistory.of(List.of()), pinHash, false, 0);
     }
 
     //constructor for loading from database (with all fields)
-    public Account(UUID accountNumber, String customerName, BigDecimal initialValue, AccountType accountType, LocalDate dateCreated, List<Transaction> transactions, String pinHash, boolean isLocked) {
-        this.accountNumber = accountNumber;
-        setCustomerName(customerName); // Use setter for validation
-        this.balance = initialValue;
-        this.dateCreated = dateCreated;
-        this.accountType = accountType;
-        this.transactionHistory = new ArrayList<>(transactions);
-        this.pinHash = pinHash;
-        this.isLocked = isLocked;
+    public Account(UUID accountNumber, String customerName, Money initialValue, AccountType accountType, LocalDate dateCreated, TransactionHistory transactionHistory, String pinHash, boolean isLocked, long version) {
+        this.state = new AtomicReference<>(new AccountState(accountNumber, validateCustomerName(customerName), initialValue,
+                dateCreated, accountType, transactionHistory, null, pinHash, isLocked, version));
+    }
+
+    /**
+     * The current version of the account. It stays consistent however the
+     * account changes afterwards.
+     */
+    public AccountState snapshot() {
+        return state.get();
     }
 
     // getters
     public UUID getAccountNumber() {
-        return accountNumber;
+        return state.get().getAccountNumber();
     }
 
     public String getCustomerName() {
-        return customerName;
+        return state.get().getCustomerName();
     }
 
-    public BigDecimal getBalance() {
-        return balance;
+    public Money getBalance() {
+        return state.get().getBalance();
     }
 
     public LocalDate getDateCreated() {
-        return dateCreated;
+        return state.get().getDateCreated();
     }
 
     public AccountType getAccountType() {
-        return accountType;
+        return state.get().getAccountType();
     }
 
     public String getPinHash() {
-        return pinHash;
+        return state.get().getPinHash();
+    }
+
+    public final synchronized void setCustomerName(String newCustomerName) {
+        state.set(state.get().withCustomerName(validateCustomerName(newCustomerName)));
     }
 
-    public final void setCustomerName(String newCustomerName) {
+    private static String validateCustomerName(String newCustomerName) {
         // Validation 1: Cannot be null or empty
         if (newCustomerName == null || newCustomerName.trim().isEmpty()) {
             throw new IllegalArgumentException("Customer name cannot be empty");
@@ -87,52 +83,115 @@ public class Account {
             throw new IllegalArgumentException("Customer name can only contain letters, spaces, hyphens, and apostrophes");
         }
 
-        this.customerName = newCustomerName.trim();
+        return newCustomerName.trim();
     }
 
-    public void setPinHash(String pinHash) {
-        this.pinHash = pinHash;
+    public synchronized void setPinHash(String pinHash) {
+        state.set(state.get().withPinHash(pinHash));
     }
 
     public boolean isLocked() {
-        return isLocked;
+        return state.get().isLocked();
+    }
+
+    public synchronized void setLocked(boolean locked) {
+        state.set(state.get().withLocked(locked));
+    }
+
+    public long getVersion() {
+        return state.get().getVersion();
     }
 
-    public void setLocked(boolean locked) {
-        isLocked = locked;
+    /**
+     * Records the row version after a successful write. Called by AccountDAO.
+     */
+    public synchronized void setVersion(long version) {
+        state.set(state.get().withVersion(version));
     }
 
-    public void deposit(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public synchronized void deposit(Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Amount cannot be 0 or a negative amount");
         }
 
-        this.balance = balance.add(amount);
-        Transaction depositTransaction = new Transaction(TransactionType.DEPOSIT, amount, "Deposit of $" + amount, LocalDateTime.now());
-        transactionHistory.add(depositTransaction);
+        AccountState current = state.get();
+        state.set(current.withPosting(current.getBalance().plus(amount),
+                new Transaction(TransactionKind.DEPOSIT, amount, null, null, LocalDateTime.now())));
     }
 
-    public void withdraw(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public synchronized void withdraw(Money amount) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Amount cannot be 0 or a negative amount");
         }
 
-        if (!accountType.canWithdraw(balance, amount)) {
+        AccountState current = state.get();
+        if (!current.getAccountType().canWithdraw(current.getBalance(), amount)) {
             throw new IllegalArgumentException("Insufficient funds or withdrawal would violate minimum balance requirement");
         }
-        balance = balance.subtract(amount);
-        Transaction withdraw = new Transaction(TransactionType.WITHDRAWAL, amount, "Withdraw $" + amount, LocalDateTime.now());
-        transactionHistory.add(withdraw);
+        state.set(current.withPosting(current.getBalance().minus(amount),
+                new Transaction(TransactionKind.WITHDRAWAL, amount, null, null, LocalDateTime.now())));
     }
 
-    public List<Transaction> getTransactionHistory() {
-        return transactionHistory;
+    /**
+     * Full history, oldest first. Loads persisted history on first use.
+     */
+    public List<Transaction> getTransactionHistory() throws SQLException {
+        return state.get().getTransactionHistory();
     }
 
-    public void transferTo(Account destinationAccount, BigDecimal amount) {
+    /**
+     * Transactions between two dates, both inclusive, oldest first.
+     *
+     * @param startDate First day, or null for all history
+     * @param endDate Last day, or null for no upper bound
+     */
+    public List<Transaction> getTransactionsBetween(LocalDate startDate, LocalDate endDate) throws SQLException {
+        return state.get().getTransactionsBetween(startDate, endDate);
+    }
+
+    /**
+     * One newest-first page of persisted history; pass null to start from the
+     * most recent transaction, then the previous page's next cursor.
+     */
+    public TransactionPage getTransactionPage(TransactionCursor before, int limit) throws SQLException {
+        return state.get().getTransactionPage(before, limit);
+    }
+
+    /**
+     * Number of transactions, counted without loading the history.
+     */
+    public int getTransactionCount() throws SQLException {
+        return state.get().getTransactionCount();
+    }
+
+    /**
+     * Transactions added since this account was loaded or last saved, oldest first.
+     * AccountDAO persists only these instead of rewriting the whole history.
+     */
+    public List<Transaction> getUnsavedTransactions() {
+        return state.get().getUnsavedTransactions();
+    }
+
+    /**
+     * Marks all pending transactions as persisted. Called by AccountDAO after commit.
+     */
+    public synchronized void markTransactionsSaved() {
+        AccountState current = state.get();
+        state.set(current.withSaved(current.getUnsavedCount()));
+    }
+
+    /**
+     * Marks only the oldest count pending transactions as persisted, for
+     * writers that saved a snapshot while more postings kept arriving.
+     */
+    public synchronized void markTransactionsSaved(int count) {
+        state.set(state.get().withSaved(count));
+    }
+
+    public void transferTo(Account destinationAccount, Money amount) {
 
         // Validation 1: Amount must be positive
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+        if (!amount.isPositive()) {
             throw new IllegalArgumentException("Transfer amount must be positive");
         }
 
@@ -142,33 +201,65 @@ public class Account {
         }
 
         // Validation 3: Can't transfer to the same account
-        if (this.accountNumber.equals(destinationAccount.accountNumber)) {
+        if (getAccountNumber().equals(destinationAccount.getAccountNumber())) {
             throw new IllegalArgumentException("Cannot transfer to the same account");
         }
 
         // Validation 4: Source account must be able to withdraw this amount
-        if (!this.accountType.canWithdraw(this.balance, amount)) {
+        if (!getAccountType().canWithdraw(getBalance(), amount)) {
             throw new IllegalArgumentException("Insufficient funds or transfer would violate minimum balance requirement");
         }
 
         // PHASE 2: EXECUTE (all validations passed, safe to proceed)
-        this.balance = this.balance.subtract(amount);
-        destinationAccount.balance = destinationAccount.balance.add(amount);
+        // One account lock at a time, so opposite transfers cannot deadlock;
+        // debitTransfer checks the balance again under the lock
+        debitTransfer(destinationAccount.getAccountNumber(), amount);
+        destinationAccount.creditTransfer(getAccountNumber(), amount);
+    }
 
-        Transaction sourceTransaction = new Transaction(TransactionType.TRANSFER, amount, "transfer to " + destinationAccount.customerName, LocalDateTime.now());
-        Transaction destinationAccountTransaction = new Transaction(TransactionType.TRANSFER, amount, "Transfer from " + customerName, LocalDateTime.now());
+    /**
+     * Source leg of a transfer on its own, for callers that cannot hold both
+     * accounts at once. Applies the same rules as transferTo.
+     */
+    public synchronized void debitTransfer(UUID destinationId, Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        AccountState current = state.get();
+        if (!current.getAccountType().canWithdraw(current.getBalance(), amount)) {
+            throw new IllegalArgumentException("Insufficient funds or transfer would violate minimum balance requirement");
+        }
+        state.set(current.withPosting(current.getBalance().minus(amount),
+                new Transaction(TransactionKind.TRANSFER_OUT, amount, destinationId, null, LocalDateTime.now())));
+    }
 
-        transactionHistory.add(sourceTransaction);
-        destinationAccount.transactionHistory.add(destinationAccountTransaction);
+    /**
+     * Destination leg of a transfer on its own.
+     */
+    public synchronized void creditTransfer(UUID sourceId, Money amount) {
+        if (!amount.isPositive()) {
+            throw new IllegalArgumentException("Transfer amount must be positive");
+        }
+        AccountState current = state.get();
+        state.set(current.withPosting(current.getBalance().plus(amount),
+                new Transaction(TransactionKind.TRANSFER_IN, amount, sourceId, null, LocalDateTime.now())));
     }
 
-    public BigDecimal applyInterest() {
+    /**
+     * Gives back a debited transfer whose destination leg could not be applied.
+     */
+    public synchronized void reverseTransfer(UUID destinationId, Money amount) {
+        AccountState current = state.get();
+        state.set(current.withPosting(current.getBalance().plus(amount),
+                new Transaction(TransactionKind.TRANSFER_REVERSAL, amount, destinationId, null, LocalDateTime.now())));
+    }
 
-        BigDecimal interest = balance.multiply(accountType.getInterestRate());
-        balance = balance.add(interest);
+    public synchronized Money applyInterest() {
 
-        Transaction applyInterestTransaction = new Transaction(TransactionType.INTEREST, interest, "Interest amount " + interest, LocalDateTime.now());
-        transactionHistory.add(applyInterestTransaction);
+        AccountState current = state.get();
+        Money interest = current.getBalance().times(current.getAccountType().getInterestRate());
+        state.set(current.withPosting(current.getBalance().plus(interest),
+                new Transaction(TransactionKind.INTEREST, interest, null, null, LocalDateTime.now())));
 
         return interest;
 
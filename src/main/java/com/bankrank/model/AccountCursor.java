@@ -0,0 +1,27 @@
+package com.bankrank.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Keyset position in an account listing ordered by (date_created, id).
+ * The next page holds accounts strictly after this position.
+ */
+public class AccountCursor {
+
+    private final LocalDateTime dateCreated;
+    private final UUID id;
+
+    public AccountCursor(LocalDateTime dateCreated, UUID id) {
+        this.dateCreated = dateCreated;
+        this.id = id;
+    }
+
+    public LocalDateTime getDateCreated() {
+        return dateCreated;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+}
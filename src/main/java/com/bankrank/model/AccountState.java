@@ -0,0 +1,219 @@
+package com.bankrank.model;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One version of an account, as published by Account after each change.
+ * It never changes, so a reader holding it sees balance, details and
+ * history that belong together however many postings happen meanwhile.
+ *
+ * New versions share what did not change: the persisted history is a
+ * TransactionHistory value, and unsaved transactions are a linked list
+ * that each posting extends by one node. A lazily loaded history that was
+ * never read is still read from the database when first asked for.
+ */
+public final class AccountState {
+
+    private final UUID accountNumber;
+    private final String customerName;
+    private final Money balance;
+    private final LocalDate dateCreated;
+    private final AccountType accountType;
+    private final TransactionHistory history;
+    // Newest unsaved transaction first; null when there are none
+    private final Pending pending;
+    private final String pinHash;
+    private final boolean locked;
+    private final long version;
+
+    AccountState(UUID accountNumber, String customerName, Money balance, LocalDate dateCreated, AccountType accountType,
+                 TransactionHistory history, Pending pending, String pinHash, boolean locked, long version) {
+        this.accountNumber = accountNumber;
+        this.customerName = customerName;
+        this.balance = balance;
+        this.dateCreated = dateCreated;
+        this.accountType = accountType;
+        this.history = history;
+        this.pending = pending;
+        this.pinHash = pinHash;
+        this.locked = locked;
+        this.version = version;
+    }
+
+    public UUID getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public Money getBalance() {
+        return balance;
+    }
+
+    public LocalDate getDateCreated() {
+        return dateCreated;
+    }
+
+    public AccountType getAccountType() {
+        return accountType;
+    }
+
+    public String getPinHash() {
+        return pinHash;
+    }
+
+    public boolean isLocked() {
+        return locked;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Full history, oldest first. Loads persisted history on first use.
+     */
+    public List<Transaction> getTransactionHistory() throws SQLException {
+        List<Transaction> saved = history.all();
+        if (pending == null) {
+            return Collections.unmodifiableList(saved);
+        }
+        List<Transaction> combined = new ArrayList<>(saved.size() + pending.size);
+        combined.addAll(saved);
+        combined.addAll(getUnsavedTransactions());
+        return Collections.unmodifiableList(combined);
+    }
+
+    /**
+     * Transactions between two dates, both inclusive, oldest first. A compact
+     * history is cut by binary search on its timestamps instead of being
+     * scanned.
+     *
+     * @param startDate First day, or null for all history
+     * @param endDate Last day, or null for no upper bound
+     */
+    public List<Transaction> getTransactionsBetween(LocalDate startDate, LocalDate endDate) throws SQLException {
+        List<Transaction> result = new ArrayList<>();
+        List<Transaction> saved = history.all();
+        if (saved instanceof CompactTransactionList compact) {
+            int from = startDate == null ? 0 : compact.firstIndexAtOrAfter(startDate.atStartOfDay());
+            int to = endDate == null ? compact.size() : compact.firstIndexAtOrAfter(endDate.plusDays(1).atStartOfDay());
+            result.addAll(compact.subList(from, Math.max(from, to)));
+        } else {
+            addBetween(saved, startDate, endDate, result);
+        }
+        addBetween(getUnsavedTransactions(), startDate, endDate, result);
+        return result;
+    }
+
+    private static void addBetween(List<Transaction> transactions, LocalDate startDate, LocalDate endDate, List<Transaction> result) {
+        for (Transaction t : transactions) {
+            LocalDate txnDate = t.getDateTime().toLocalDate();
+            boolean beforeEnd = (endDate == null) || !txnDate.isAfter(endDate);
+            boolean afterStart = (startDate == null) || !txnDate.isBefore(startDate);
+            if (afterStart && beforeEnd) {
+                result.add(t);
+            }
+        }
+    }
+
+    /**
+     * One newest-first page of persisted history; pass null to start from the
+     * most recent transaction, then the previous page's next cursor.
+     */
+    public TransactionPage getTransactionPage(TransactionCursor before, int limit) throws SQLException {
+        return history.page(before, limit);
+    }
+
+    /**
+     * Number of transactions, counted without loading the history.
+     */
+    public int getTransactionCount() throws SQLException {
+        return history.count() + getUnsavedCount();
+    }
+
+    /**
+     * Transactions recorded since the account was loaded or last saved,
+     * oldest first.
+     */
+    public List<Transaction> getUnsavedTransactions() {
+        if (pending == null) {
+            return List.of();
+        }
+        Transaction[] transactions = new Transaction[pending.size];
+        for (Pending node = pending; node != null; node = node.previous) {
+            transactions[node.size - 1] = node.transaction;
+        }
+        return Collections.unmodifiableList(Arrays.asList(transactions));
+    }
+
+    public int getUnsavedCount() {
+        return pending == null ? 0 : pending.size;
+    }
+
+    AccountState withCustomerName(String newCustomerName) {
+        return new AccountState(accountNumber, newCustomerName, balance, dateCreated, accountType, history, pending, pinHash, locked, version);
+    }
+
+    AccountState withPinHash(String newPinHash) {
+        return new AccountState(accountNumber, customerName, balance, dateCreated, accountType, history, pending, newPinHash, locked, version);
+    }
+
+    AccountState withLocked(boolean newLocked) {
+        return new AccountState(accountNumber, customerName, balance, dateCreated, accountType, history, pending, pinHash, newLocked, version);
+    }
+
+    AccountState withVersion(long newVersion) {
+        return new AccountState(accountNumber, customerName, balance, dateCreated, accountType, history, pending, pinHash, locked, newVersion);
+    }
+
+    /**
+     * The next version after a posting: the new balance and one more unsaved
+     * transaction.
+     */
+    AccountState withPosting(Money newBalance, Transaction transaction) {
+        return new AccountState(accountNumber, customerName, newBalance, dateCreated, accountType, history,
+                new Pending(transaction, pending), pinHash, locked, version);
+    }
+
+    /**
+     * The next version after the oldest count unsaved transactions were
+     * committed: they move into the persisted history.
+     */
+    AccountState withSaved(int count) {
+        List<Transaction> unsaved = getUnsavedTransactions();
+        if (count < 0 || count > unsaved.size()) {
+            throw new IllegalArgumentException("Cannot mark " + count + " of " + unsaved.size() + " unsaved transactions as saved");
+        }
+        Pending remaining = null;
+        for (Transaction transaction : unsaved.subList(count, unsaved.size())) {
+            remaining = new Pending(transaction, remaining);
+        }
+        return new AccountState(accountNumber, customerName, balance, dateCreated, accountType,
+                history.withSaved(unsaved.subList(0, count)), remaining, pinHash, locked, version);
+    }
+
+    /**
+     * Node of the unsaved transactions list, pointing to the one before it.
+     */
+    static final class Pending {
+
+        final Transaction transaction;
+        final Pending previous;
+        final int size;
+
+        Pending(Transaction transaction, Pending previous) {
+            this.transaction = transaction;
+            this.previous = previous;
+            this.size = previous == null ? 1 : previous.size + 1;
+        }
+    }
+}
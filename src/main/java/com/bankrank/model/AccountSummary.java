@@ -0,0 +1,39 @@
+package com.bankrank.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Read-only projection of an account row without its transaction history.
+ * Used by listings that only show id, customer and balance.
+ */
+public class AccountSummary {
+
+    private final UUID accountNumber;
+    private final String customerName;
+    private final BigDecimal balance;
+    private final String accountTypeName;
+
+    public AccountSummary(UUID accountNumber, String customerName, BigDecimal balance, String accountTypeName) {
+        this.accountNumber = accountNumber;
+        this.customerName = customerName;
+        this.balance = balance;
+        this.accountTypeName = accountTypeName;
+    }
+
+    public UUID getAccountNumber() {
+        return accountNumber;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public String getAccountTypeName() {
+        return accountTypeName;
+    }
+}
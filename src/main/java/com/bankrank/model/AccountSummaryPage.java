@@ -0,0 +1,32 @@
+package com.bankrank.model;
+
+import java.util.List;
+
+/**
+ * One page of an account listing, oldest account first.
+ */
+public class AccountSummaryPage {
+
+    private final List<AccountSummary> accounts;
+    private final AccountCursor nextCursor;
+
+    public AccountSummaryPage(List<AccountSummary> accounts, AccountCursor nextCursor) {
+        this.accounts = accounts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AccountSummary> getAccounts() {
+        return accounts;
+    }
+
+    /**
+     * Cursor for the next page, or null if this is the last page.
+     */
+    public AccountCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
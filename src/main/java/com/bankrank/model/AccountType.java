@@ -1,12 +1,24 @@
 package com.bankrank.model;
 
-import java.math.BigDecimal;
-
+/**
+ * An account product. Instances come from AccountTypeCatalog and are shared
+ * by every account of the product, so they can be compared with ==.
+ */
 public interface AccountType {
 
-    BigDecimal getMinimumBalance();
+    /**
+     * The code stored in the account_type column, e.g. SAVINGS.
+     */
+    String getCode();
+
+    String getName();
+
+    Money getMinimumBalance();
 
-    boolean canWithdraw(BigDecimal currentBalance, BigDecimal withDrawAmount);
+    boolean canWithdraw(Money currentBalance, Money withDrawAmount);
 
-    BigDecimal getInterestRate();
+    /**
+     * Interest per period in millionths, e.g. 25000 for 2.5%.
+     */
+    long getInterestRate();
 }
@@ -0,0 +1,90 @@
+package com.bankrank.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The account products offered, read once from account-types.properties.
+ *
+ * Each product is a single shared AccountType, so loading many accounts
+ * reuses the same few instances, and a new product only needs a new entry
+ * in the resource.
+ */
+public final class AccountTypeCatalog {
+
+    private static final String RESOURCE = "account-types.properties";
+
+    private static final Map<String, AccountType> byCode = new HashMap<>();
+    private static final List<AccountType> types;
+
+    static {
+        Properties props = new Properties();
+        try (InputStream input = AccountTypeCatalog.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (input == null) {
+                throw new RuntimeException("Unable to find " + RESOURCE);
+            }
+            props.load(input);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load account types", e);
+        }
+
+        List<AccountType> loaded = new ArrayList<>();
+        for (String code : props.getProperty("types", "").split(",")) {
+            code = code.trim();
+            if (code.isEmpty()) {
+                continue;
+            }
+            // Codes end up in SQL built by AccountDAO, so keep them plain
+            if (!code.matches("[A-Z][A-Z0-9_]*")) {
+                throw new RuntimeException("Invalid account type code in " + RESOURCE + ": " + code);
+            }
+            AccountType type = new ProductAccountType(code,
+                    props.getProperty(code + ".name", code),
+                    Money.parse(required(props, code + ".minimumBalance")),
+                    Money.rateOf(required(props, code + ".interestRate")));
+            if (byCode.put(code, type) != null) {
+                throw new RuntimeException("Duplicate account type code in " + RESOURCE + ": " + code);
+            }
+            loaded.add(type);
+        }
+        if (loaded.isEmpty()) {
+            throw new RuntimeException("No account types defined in " + RESOURCE);
+        }
+        types = Collections.unmodifiableList(loaded);
+    }
+
+    private AccountTypeCatalog() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if no product has the code
+     */
+    public static AccountType forCode(String code) {
+        AccountType type = code == null ? null : byCode.get(code);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown account type: " + code);
+        }
+        return type;
+    }
+
+    /**
+     * All products, in the order the resource lists them.
+     */
+    public static List<AccountType> all() {
+        return types;
+    }
+
+    private static String required(Properties props, String key) {
+        String value = props.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new RuntimeException("Missing " + key + " in " + RESOURCE);
+        }
+        return value.trim();
+    }
+}
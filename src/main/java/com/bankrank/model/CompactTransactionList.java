@@ -0,0 +1,327 @@
+package com.bankrank.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+/**
+ * Transaction history stored column by column in primitive arrays instead
+ * of one object per transaction: amount in cents, timestamp in epoch
+ * microseconds, type and flags in one byte, kind in another, counterparty
+ * as two longs, and reference and stored description as indexes into a
+ * per-list dictionary of distinct strings.
+ *
+ * It reads as an unmodifiable List; get() builds a short-lived Transaction
+ * from the columns. Code that only needs amounts or dates can scan the
+ * column accessors without creating any objects. New transactions are
+ * added with append().
+ *
+ * History only ever grows, so prefix() gives a fixed-size view that shares
+ * the columns and never changes. One thread at a time may append while any
+ * number of threads read prefixes: rows are written before the new size is
+ * published, and grown arrays are published whole.
+ */
+public final class CompactTransactionList extends AbstractList<Transaction> implements RandomAccess {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final TransactionKind[] KINDS = TransactionKind.values();
+    private static final byte DEBIT_FLAG = (byte) 0x80;
+    private static final byte COUNTERPARTY_FLAG = 0x40;
+    private static final byte TYPE_MASK = 0x3f;
+    // Database ids start at 1, so 0 stands for a transaction not yet reloaded
+    private static final long NO_ID = 0;
+    private static final byte NO_KIND = -1;
+    private static final int NO_STRING = -1;
+    // Size of a list that follows its store instead of being fixed
+    private static final int LIVE = -1;
+
+    private final Store store;
+    private final int fixedSize;
+
+    public CompactTransactionList() {
+        this(16);
+    }
+
+    public CompactTransactionList(int initialCapacity) {
+        this(new Store(Math.max(initialCapacity, 1)), LIVE);
+    }
+
+    private CompactTransactionList(Store store, int fixedSize) {
+        this.store = store;
+        this.fixedSize = fixedSize;
+    }
+
+    public static CompactTransactionList copyOf(List<Transaction> transactions) {
+        CompactTransactionList copy = new CompactTransactionList(transactions.size());
+        copy.appendAll(transactions);
+        return copy;
+    }
+
+    /**
+     * The first size transactions, as a list that shares the columns but
+     * never grows.
+     */
+    public CompactTransactionList prefix(int size) {
+        if (size < 0 || size > size()) {
+            throw new IndexOutOfBoundsException("Prefix " + size + " out of bounds for length " + size());
+        }
+        return new CompactTransactionList(store, size);
+    }
+
+    /**
+     * Whether this is the live list that append() extends, rather than a
+     * fixed prefix.
+     */
+    public boolean isLive() {
+        return fixedSize == LIVE;
+    }
+
+    public void append(Transaction transaction) {
+        append(transaction.getId() != null ? transaction.getId() : NO_ID, transaction.getTransactionType(),
+                transaction.getKind(), transaction.getAmount(), transaction.getCounterpartyId(), transaction.getReference(),
+                transaction.getStoredDescription(), transaction.getDateTime(), transaction.isDebit());
+    }
+
+    /**
+     * Appends from column values, e.g. straight from a result set.
+     *
+     * @throws IllegalStateException if this is a fixed prefix
+     */
+    public void append(long id, TransactionType type, TransactionKind kind, Money amount, UUID counterpartyId,
+                       String reference, String description, LocalDateTime dateTime, boolean debit) {
+        if (!isLive()) {
+            throw new IllegalStateException("Cannot append to a history prefix");
+        }
+        store.append(id, (byte) (type.ordinal() | (debit ? DEBIT_FLAG : 0) | (counterpartyId != null ? COUNTERPARTY_FLAG : 0)),
+                kind != null ? (byte) kind.ordinal() : NO_KIND, amount.getCents(), toEpochMicros(dateTime),
+                counterpartyId, reference, description);
+        modCount++;
+    }
+
+    public void appendAll(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            append(transaction);
+        }
+    }
+
+    @Override
+    public Transaction get(int index) {
+        checkIndex(index);
+        Columns columns = store.columns;
+        long id = columns.ids[index];
+        return new Transaction(id == NO_ID ? null : id, TYPES[columns.flags[index] & TYPE_MASK], kindOf(columns.kinds[index]),
+                Money.ofCents(columns.cents[index]), counterpartyOf(columns, index), store.lookup(columns.references[index]),
+                store.lookup(columns.descriptions[index]), dateTimeOf(columns.epochMicros[index]),
+                (columns.flags[index] & DEBIT_FLAG) != 0);
+    }
+
+    @Override
+    public int size() {
+        return isLive() ? store.size : fixedSize;
+    }
+
+    public long getCents(int index) {
+        checkIndex(index);
+        return store.columns.cents[index];
+    }
+
+    /**
+     * The amount as it changed the balance, in cents: negative for debits.
+     */
+    public long getSignedCents(int index) {
+        checkIndex(index);
+        Columns columns = store.columns;
+        return (columns.flags[index] & DEBIT_FLAG) != 0 ? -columns.cents[index] : columns.cents[index];
+    }
+
+    public long getEpochMicros(int index) {
+        checkIndex(index);
+        return store.columns.epochMicros[index];
+    }
+
+    public LocalDateTime getDateTime(int index) {
+        checkIndex(index);
+        return dateTimeOf(store.columns.epochMicros[index]);
+    }
+
+    public TransactionType getType(int index) {
+        checkIndex(index);
+        return TYPES[store.columns.flags[index] & TYPE_MASK];
+    }
+
+    public boolean isDebit(int index) {
+        checkIndex(index);
+        return (store.columns.flags[index] & DEBIT_FLAG) != 0;
+    }
+
+    public TransactionKind getKind(int index) {
+        checkIndex(index);
+        return kindOf(store.columns.kinds[index]);
+    }
+
+    public UUID getCounterpartyId(int index) {
+        checkIndex(index);
+        return counterpartyOf(store.columns, index);
+    }
+
+    /**
+     * Index of the first transaction at or after the time, found by binary
+     * search since the list is kept oldest first; size() if there is none.
+     */
+    public int firstIndexAtOrAfter(LocalDateTime dateTime) {
+        long target = toEpochMicros(dateTime);
+        // Size first: the columns read after it are at least that long
+        int high = size();
+        long[] epochMicros = store.columns.epochMicros;
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochMicros[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Timestamps are kept to the microsecond, as PostgreSQL stores them.
+     */
+    private static long toEpochMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1000;
+    }
+
+    private static LocalDateTime dateTimeOf(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    private static TransactionKind kindOf(byte kind) {
+        return kind == NO_KIND ? null : KINDS[kind];
+    }
+
+    private static UUID counterpartyOf(Columns columns, int index) {
+        return (columns.flags[index] & COUNTERPARTY_FLAG) != 0
+                ? new UUID(columns.counterpartyHigh[index], columns.counterpartyLow[index])
+                : null;
+    }
+
+    private void checkIndex(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    /**
+     * One set of column arrays. Replaced whole when it fills up, so a reader
+     * never sees some columns grown and others not.
+     */
+    private static final class Columns {
+
+        final long[] ids;
+        final long[] cents;
+        final long[] epochMicros;
+        final byte[] flags;
+        final byte[] kinds;
+        final long[] counterpartyHigh;
+        final long[] counterpartyLow;
+        final int[] references;
+        final int[] descriptions;
+
+        Columns(int capacity) {
+            ids = new long[capacity];
+            cents = new long[capacity];
+            epochMicros = new long[capacity];
+            flags = new byte[capacity];
+            kinds = new byte[capacity];
+            counterpartyHigh = new long[capacity];
+            counterpartyLow = new long[capacity];
+            references = new int[capacity];
+            descriptions = new int[capacity];
+        }
+
+        Columns(Columns from, int capacity) {
+            ids = Arrays.copyOf(from.ids, capacity);
+            cents = Arrays.copyOf(from.cents, capacity);
+            epochMicros = Arrays.copyOf(from.epochMicros, capacity);
+            flags = Arrays.copyOf(from.flags, capacity);
+            kinds = Arrays.copyOf(from.kinds, capacity);
+            counterpartyHigh = Arrays.copyOf(from.counterpartyHigh, capacity);
+            counterpartyLow = Arrays.copyOf(from.counterpartyLow, capacity);
+            references = Arrays.copyOf(from.references, capacity);
+            descriptions = Arrays.copyOf(from.descriptions, capacity);
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * The columns and string dictionary shared by a live list and its
+     * prefixes.
+     */
+    private static final class Store {
+
+        volatile Columns columns;
+        volatile int size;
+        volatile String[] dictionary = new String[8];
+        // Only touched by the appending thread
+        private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+
+        Store(int capacity) {
+            columns = new Columns(capacity);
+        }
+
+        void append(long id, byte flags, byte kind, long cents, long epochMicros, UUID counterpartyId,
+                    String reference, String description) {
+            int index = size;
+            Columns target = columns;
+            if (index == target.capacity()) {
+                target = new Columns(target, index + (index >> 1) + 1);
+                columns = target;
+            }
+            target.ids[index] = id;
+            target.cents[index] = cents;
+            target.epochMicros[index] = epochMicros;
+            target.flags[index] = flags;
+            target.kinds[index] = kind;
+            target.counterpartyHigh[index] = counterpartyId != null ? counterpartyId.getMostSignificantBits() : 0;
+            target.counterpartyLow[index] = counterpartyId != null ? counterpartyId.getLeastSignificantBits() : 0;
+            target.references[index] = intern(reference);
+            target.descriptions[index] = intern(description);
+            // Publishes the row to readers
+            size = index + 1;
+        }
+
+        String lookup(int index) {
+            return index == NO_STRING ? null : dictionary[index];
+        }
+
+        private int intern(String value) {
+            if (value == null) {
+                return NO_STRING;
+            }
+            Integer index = dictionaryIndex.get(value);
+            if (index == null) {
+                index = dictionaryIndex.size();
+                String[] strings = dictionary;
+                if (index == strings.length) {
+                    strings = Arrays.copyOf(strings, strings.length * 2);
+                }
+                strings[index] = value;
+                dictionary = strings;
+                dictionaryIndex.put(value, index);
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.bankrank.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Outcome of applying interest to an account.
+ */
+public class InterestResult {
+
+    private final UUID accountId;
+    private final BigDecimal interest;
+    private final BigDecimal balance;
+
+    public InterestResult(UUID accountId, BigDecimal interest, BigDecimal balance) {
+        this.accountId = accountId;
+        this.interest = interest;
+        this.balance = balance;
+    }
+
+    public UUID getAccountId() {
+        return accountId;
+    }
+
+    public BigDecimal getInterest() {
+        return interest;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+}
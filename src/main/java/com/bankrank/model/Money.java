@@ -0,0 +1,148 @@
+package com.bankrank.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money as a whole number of cents.
+ *
+ * Account arithmetic runs on plain longs instead of BigDecimal; conversion
+ * happens only where amounts enter or leave the model (JDBC, parsing,
+ * display). Amounts are limited to what the NUMERIC(15, 2) columns can
+ * hold, and arithmetic that would leave that range throws
+ * ArithmeticException instead of wrapping.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    // NUMERIC(15, 2): 13 integer digits and 2 decimals
+    private static final long MAX_CENTS = 999_999_999_999_999L;
+    private static final int RATE_SCALE = 6;
+    private static final long RATE_UNIT = 1_000_000L;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        if (cents > MAX_CENTS || cents < -MAX_CENTS) {
+            throw new ArithmeticException("Amount out of range: " + cents + " cents");
+        }
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Converts a decimal amount, rounding to cents half up as the database
+     * does when it stores a NUMERIC(15, 2).
+     *
+     * @return The amount, or null for null
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        try {
+            return ofCents(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+    }
+
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount.trim()));
+    }
+
+    /**
+     * An interest or other rate as millionths, for multiplying amounts
+     * without BigDecimal.
+     */
+    public static long rateOf(String rate) {
+        return new BigDecimal(rate).setScale(RATE_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(-cents);
+    }
+
+    /**
+     * This amount times a rate in millionths, rounded to cents half up.
+     */
+    public Money times(long rateMillionths) {
+        long product;
+        try {
+            product = Math.multiplyExact(cents, rateMillionths);
+        } catch (ArithmeticException e) {
+            // Only for very large amounts; not worth a long-only path
+            BigDecimal exact = BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(rateMillionths));
+            return ofCents(exact.divide(BigDecimal.valueOf(RATE_UNIT), 0, RoundingMode.HALF_UP).longValueExact());
+        }
+        long whole = product / RATE_UNIT;
+        long remainder = Math.abs(product % RATE_UNIT);
+        if (remainder * 2 >= RATE_UNIT) {
+            whole += product < 0 ? -1 : 1;
+        }
+        return ofCents(whole);
+    }
+
+    /**
+     * Whether this balance minus amount stays at or above floor, without
+     * creating the difference.
+     */
+    public boolean coversWithRemainder(Money amount, Money floor) {
+        return cents - amount.cents >= floor.cents;
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public boolean isPositive() {
+        return cents > 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    /**
+     * Plain decimal with two places, e.g. 1234.50, as BigDecimal printed it.
+     */
+    @Override
+    public String toString() {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return (cents < 0 ? "-" : "") + (abs / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,50 @@
+package com.bankrank.model;
+
+/**
+ * An account type defined by a catalog entry: withdrawals may not take the
+ * balance below the minimum, and interest is paid at a fixed rate.
+ */
+final class ProductAccountType implements AccountType {
+
+    private final String code;
+    private final String name;
+    private final Money minimumBalance;
+    private final long interestRate;
+
+    ProductAccountType(String code, String name, Money minimumBalance, long interestRate) {
+        this.code = code;
+        this.name = name;
+        this.minimumBalance = minimumBalance;
+        this.interestRate = interestRate;
+    }
+
+    @Override
+    public String getCode() {
+        return code;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Money getMinimumBalance() {
+        return minimumBalance;
+    }
+
+    @Override
+    public boolean canWithdraw(Money currentBalance, Money withDrawAmount) {
+        return currentBalance.coversWithRemainder(withDrawAmount, minimumBalance);
+    }
+
+    @Override
+    public long getInterestRate() {
+        return interestRate;
+    }
+
+    @Override
+    public String toString() {
+        return code;
+    }
+}
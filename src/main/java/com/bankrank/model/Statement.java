@@ -0,0 +1,43 @@
+package com.bankrank.model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * An account and its transactions within a date range, both taken from
+ * the same version of the account.
+ */
+public class Statement {
+
+    private final AccountState account;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final List<Transaction> transactions;
+
+    /**
+     * @param startDate First day included, or null for all history
+     * @param endDate Last day included, or null for up to today
+     */
+    public Statement(AccountState account, LocalDate startDate, LocalDate endDate, List<Transaction> transactions) {
+        this.account = account;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.transactions = List.copyOf(transactions);
+    }
+
+    public AccountState getAccount() {
+        return account;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+}
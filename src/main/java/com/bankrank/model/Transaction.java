@@ -1,35 +1,113 @@
 package com.bankrank.model;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 public class Transaction {
 
+    // Database id; null until the transaction has been persisted and reloaded
+    private final Long id;
     private final TransactionType type;
-    private final BigDecimal amount;
+    // Null for rows written before kinds were stored; those keep their description
+    private final TransactionKind kind;
+    private final Money amount;
+    private final UUID counterpartyId;
+    // Caller's reference for the posting, e.g. its idempotency key
+    private final String reference;
     private final LocalDateTime date;
     private final String description;
+    // True when the amount left the account; a TRANSFER can go either way
+    private final boolean debit;
 
-    public Transaction(TransactionType type, BigDecimal amount, String description, LocalDateTime date) {
+    public Transaction(TransactionType type, Money amount, String description, LocalDateTime date) {
+        this(null, type, amount, description, date, type == TransactionType.WITHDRAWAL);
+    }
+
+    public Transaction(TransactionType type, Money amount, String description, LocalDateTime date, boolean debit) {
+        this(null, type, amount, description, date, debit);
+    }
+
+    public Transaction(Long id, TransactionType type, Money amount, String description, LocalDateTime date, boolean debit) {
+        this(id, type, null, amount, null, null, description, date, debit);
+    }
+
+    /**
+     * A new posting, described by its kind and counterparty.
+     */
+    public Transaction(TransactionKind kind, Money amount, UUID counterpartyId, String reference, LocalDateTime date) {
+        this(null, kind.getType(), kind, amount, counterpartyId, reference, null, date, kind.isDebit());
+    }
+
+    public Transaction(Long id, TransactionType type, TransactionKind kind, Money amount, UUID counterpartyId,
+                       String reference, String description, LocalDateTime date, boolean debit) {
+        this.id = id;
         this.type = type;
+        this.kind = kind;
         this.amount = amount;
+        this.counterpartyId = counterpartyId;
+        this.reference = reference;
         this.description = description;
         this.date = date;
+        this.debit = debit;
+    }
+
+    public Long getId() {
+        return id;
     }
 
     public TransactionType getTransactionType() {
         return type;
     }
 
-    public BigDecimal getAmount() {
+    /**
+     * @return The kind, or null for transactions stored with only a description
+     */
+    public TransactionKind getKind() {
+        return kind;
+    }
+
+    public Money getAmount() {
         return amount;
     }
 
+    public UUID getCounterpartyId() {
+        return counterpartyId;
+    }
+
+    public String getReference() {
+        return reference;
+    }
+
     public LocalDateTime getDateTime() {
         return date;
     }
 
+    /**
+     * The stored description of older transactions, otherwise rendered from
+     * the kind on each call.
+     */
     public String getDescription() {
+        if (description != null) {
+            return description;
+        }
+        return kind != null ? kind.describe(amount, counterpartyId) : "";
+    }
+
+    /**
+     * The description as stored, null for transactions that have a kind.
+     */
+    public String getStoredDescription() {
         return description;
     }
+
+    public boolean isDebit() {
+        return debit;
+    }
+
+    /**
+     * The amount as it changed the balance: negative for debits.
+     */
+    public Money getSignedAmount() {
+        return debit ? amount.negate() : amount;
+    }
 }
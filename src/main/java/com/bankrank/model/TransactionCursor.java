@@ -0,0 +1,45 @@
+package com.bankrank.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Keyset position in an account's history. A page requested with this cursor
+ * holds the transactions strictly older than (date, id).
+ */
+public class TransactionCursor {
+
+    private final LocalDateTime date;
+    private final long id;
+
+    public TransactionCursor(LocalDateTime date, long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    /**
+     * Cursor pointing just past the given transaction.
+     */
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getDateTime(), transaction.getId() != null ? transaction.getId() : 0L);
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * True if the transaction sorts strictly before this cursor (older).
+     */
+    public boolean isAfter(Transaction transaction) {
+        int byDate = transaction.getDateTime().compareTo(date);
+        if (byDate != 0) {
+            return byDate < 0;
+        }
+        long transactionId = transaction.getId() != null ? transaction.getId() : 0L;
+        return transactionId < id;
+    }
+}
@@ -0,0 +1,109 @@
+package com.bankrank.model;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persisted transaction history of one account. Implementations may load
+ * lazily (see AccountDAO) so that accounts used only for balance changes
+ * never read their history.
+ *
+ * A history is a value: saving more transactions gives a new history
+ * through withSaved, and the old one keeps showing what it showed before.
+ * That lets readers hold an account snapshot while postings continue.
+ */
+public interface TransactionHistory {
+
+    /**
+     * Number of persisted transactions, without materializing them.
+     */
+    int count() throws SQLException;
+
+    /**
+     * Returns up to limit transactions older than the cursor, newest first.
+     * A null cursor starts from the most recent transaction.
+     */
+    TransactionPage page(TransactionCursor before, int limit) throws SQLException;
+
+    /**
+     * Full history, oldest first.
+     */
+    List<Transaction> all() throws SQLException;
+
+    /**
+     * This history followed by transactions that have just been committed,
+     * so counts and cached pages stay in step with the database.
+     */
+    TransactionHistory withSaved(List<Transaction> transactions);
+
+    /**
+     * History that is already fully in memory (new accounts, batch loads).
+     * A CompactTransactionList is kept as is; other lists are copied.
+     */
+    static TransactionHistory of(List<Transaction> transactions) {
+        CompactTransactionList compact = transactions instanceof CompactTransactionList list
+                ? list
+                : CompactTransactionList.copyOf(transactions);
+        return new InMemoryTransactionHistory(compact, compact.size());
+    }
+
+    /**
+     * The first size transactions of a CompactTransactionList. Versions
+     * made by withSaved share the list and append to it while they are its
+     * newest version; older versions keep reading their own prefix.
+     */
+    final class InMemoryTransactionHistory implements TransactionHistory {
+
+        private final CompactTransactionList store;
+        private final int size;
+
+        private InMemoryTransactionHistory(CompactTransactionList store, int size) {
+            this.store = store;
+            this.size = size;
+        }
+
+        @Override
+        public int count() {
+            return size;
+        }
+
+        @Override
+        public TransactionPage page(TransactionCursor before, int limit) {
+            List<Transaction> transactions = all();
+            List<Transaction> page = new ArrayList<>(limit);
+            int i = transactions.size() - 1;
+            while (i >= 0 && before != null && !before.isAfter(transactions.get(i))) {
+                i--;
+            }
+            for (; i >= 0 && page.size() < limit; i--) {
+                page.add(transactions.get(i));
+            }
+            TransactionCursor next = i >= 0 && !page.isEmpty() ? TransactionCursor.after(page.get(page.size() - 1)) : null;
+            return new TransactionPage(page, next);
+        }
+
+        @Override
+        public List<Transaction> all() {
+            return store.prefix(size);
+        }
+
+        @Override
+        public TransactionHistory withSaved(List<Transaction> saved) {
+            if (saved.isEmpty()) {
+                return this;
+            }
+            synchronized (store) {
+                if (store.isLive() && store.size() == size) {
+                    store.appendAll(saved);
+                    return new InMemoryTransactionHistory(store, store.size());
+                }
+            }
+            // Another version already appended past this one (or this is a
+            // fixed list): start a new store rather than rewrite shared rows
+            CompactTransactionList copy = CompactTransactionList.copyOf(all());
+            copy.appendAll(saved);
+            return new InMemoryTransactionHistory(copy, copy.size());
+        }
+    }
+}
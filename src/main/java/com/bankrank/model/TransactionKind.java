@@ -0,0 +1,60 @@
+package com.bankrank.model;
+
+import java.util.UUID;
+
+/**
+ * What a posting was. Transactions store their kind and counterparty
+ * instead of a description, and the description is rendered from them
+ * only when it is shown.
+ */
+public enum TransactionKind {
+    DEPOSIT(TransactionType.DEPOSIT, false),
+    WITHDRAWAL(TransactionType.WITHDRAWAL, true),
+    TRANSFER_OUT(TransactionType.TRANSFER, true),
+    TRANSFER_IN(TransactionType.TRANSFER, false),
+    TRANSFER_REVERSAL(TransactionType.TRANSFER, false),
+    INTEREST(TransactionType.INTEREST, false);
+
+    private final TransactionType type;
+    private final boolean debit;
+
+    TransactionKind(TransactionType type, boolean debit) {
+        this.type = type;
+        this.debit = debit;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public boolean isDebit() {
+        return debit;
+    }
+
+    /**
+     * Human-readable description of a posting of this kind.
+     */
+    public String describe(Money amount, UUID counterpartyId) {
+        return switch (this) {
+            case DEPOSIT ->
+                "Deposit of $" + amount;
+            case WITHDRAWAL ->
+                "Withdraw $" + amount;
+            case TRANSFER_OUT ->
+                "Transfer to " + accountLabel(counterpartyId);
+            case TRANSFER_IN ->
+                "Transfer from " + accountLabel(counterpartyId);
+            case TRANSFER_REVERSAL ->
+                "Reversal of transfer to " + accountLabel(counterpartyId);
+            case INTEREST ->
+                "Interest amount " + amount;
+        };
+    }
+
+    /**
+     * Short form of an account number, enough to tell accounts apart in a listing.
+     */
+    private static String accountLabel(UUID accountId) {
+        return accountId == null ? "unknown account" : "account " + accountId.toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,35 @@
+package com.bankrank.model;
+
+import java.util.List;
+
+/**
+ * One newest-first page of an account's transaction history.
+ */
+public class TransactionPage {
+
+    private final List<Transaction> transactions;
+    private final TransactionCursor nextCursor;
+
+    public TransactionPage(List<Transaction> transactions, TransactionCursor nextCursor) {
+        this.transactions = transactions;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Transactions on this page, newest first.
+     */
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * Cursor for the next (older) page, or null if this is the last page.
+     */
+    public TransactionCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
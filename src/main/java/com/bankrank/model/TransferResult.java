@@ -0,0 +1,51 @@
+package com.bankrank.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Outcome of a committed transfer: both parties and their new balances.
+ */
+public class TransferResult {
+
+    private final UUID sourceAccountId;
+    private final String sourceCustomerName;
+    private final BigDecimal sourceBalance;
+    private final UUID destinationAccountId;
+    private final String destinationCustomerName;
+    private final BigDecimal destinationBalance;
+
+    public TransferResult(UUID sourceAccountId, String sourceCustomerName, BigDecimal sourceBalance,
+                          UUID destinationAccountId, String destinationCustomerName, BigDecimal destinationBalance) {
+        this.sourceAccountId = sourceAccountId;
+        this.sourceCustomerName = sourceCustomerName;
+        this.sourceBalance = sourceBalance;
+        this.destinationAccountId = destinationAccountId;
+        this.destinationCustomerName = destinationCustomerName;
+        this.destinationBalance = destinationBalance;
+    }
+
+    public UUID getSourceAccountId() {
+        return sourceAccountId;
+    }
+
+    public String getSourceCustomerName() {
+        return sourceCustomerName;
+    }
+
+    public BigDecimal getSourceBalance() {
+        return sourceBalance;
+    }
+
+    public UUID getDestinationAccountId() {
+        return destinationAccountId;
+    }
+
+    public String getDestinationCustomerName() {
+        return destinationCustomerName;
+    }
+
+    public BigDecimal getDestinationBalance() {
+        return destinationBalance;
+    }
+}
@@ -0,0 +1,297 @@
+package com.bankrank.service;
+
+import com.bankrank.auth.AuthenticationService;
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.OptimisticRetry;
+import com.bankrank.database.TransactionDAO;
+import com.bankrank.model.Account;
+import com.bankrank.model.AccountState;
+import com.bankrank.model.AccountSummary;
+import com.bankrank.model.AccountType;
+import com.bankrank.model.InterestResult;
+import com.bankrank.model.Money;
+import com.bankrank.model.Role;
+import com.bankrank.model.Statement;
+import com.bankrank.model.TransactionCursor;
+import com.bankrank.model.TransactionPage;
+import com.bankrank.model.TransactionType;
+import com.bankrank.model.TransferResult;
+import com.bankrank.util.PasswordUtil;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Account operations without any console input or output, shared by the
+ * menus and any other front end.
+ *
+ * The service keeps no per-caller state: the caller is passed in with each
+ * call and all shared state lives in the database, so one instance can be
+ * used from many threads at once. Rejected requests throw
+ * IllegalArgumentException with a message fit for the user.
+ *
+ * Every operation checks the caller itself, so no front end can skip it:
+ * customers may only use the accounts they own, staff any account, and
+ * opening accounts, listing them, searching transactions across accounts,
+ * setting up PINs and applying interest need at least a teller. Refusals throw SecurityException.
+ *
+ * Postings go to the configured PostingBackend; other changes to an account
+ * run inside its changeAccount, so a backend that keeps accounts in memory
+ * never works on a stale copy.
+ */
+public class AccountService {
+
+    private final AccountDAO accountDAO;
+    private final AuthenticationService authService;
+    private final TransactionDAO transactionDAO;
+    private final OptimisticRetry optimisticRetry;
+    private final PostingBackend postingBackend;
+
+    public AccountService(AccountDAO accountDAO, AuthenticationService authService, PostingBackend postingBackend) {
+        this.accountDAO = accountDAO;
+        this.authService = authService;
+        this.postingBackend = postingBackend;
+        this.transactionDAO = new TransactionDAO();
+        this.optimisticRetry = new OptimisticRetry(accountDAO);
+    }
+
+    /**
+     * Opens an account with an initial deposit and a PIN.
+     */
+    public Account createAccount(CallerContext caller, String customerName, AccountType accountType,
+                                 BigDecimal initialDeposit, String pin) throws SQLException {
+        caller.requirePermission(Role.TELLER);
+        if (initialDeposit == null || initialDeposit.compareTo(BigDecimal.ZERO) < 0) {
+            throw new IllegalArgumentException("Initial deposit cannot be negative!");
+        }
+        if (Money.of(initialDeposit).compareTo(accountType.getMinimumBalance()) < 0) {
+            throw new IllegalArgumentException("Initial deposit must be at least $" + accountType.getMinimumBalance());
+        }
+
+        // Hash the PIN before storing
+        String pinHash = PasswordUtil.hashPin(pin);
+        Account account = new Account(UUID.randomUUID(), customerName, Money.of(initialDeposit), accountType, pinHash);
+        accountDAO.save(account);
+        return account;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the account does not exist
+     */
+    public Account findAccount(CallerContext caller, UUID accountId) throws SQLException {
+        requireAccountAccess(caller, accountId);
+        return loadAccount(accountId);
+    }
+
+    /**
+     * Streams summaries of the matching accounts to the consumer without
+     * holding them in memory.
+     *
+     * @param customerName Part of the customer name, or null for any
+     * @param accountType Account type code, or null for any
+     * @return The number of accounts passed to the consumer
+     */
+    public int streamAccountSummaries(CallerContext caller, String customerName, String accountType,
+                                      Consumer<AccountSummary> consumer) throws SQLException {
+        caller.requirePermission(Role.TELLER);
+        return accountDAO.streamAccountSummaries(customerName, accountType, consumer);
+    }
+
+    /**
+     * One newest-first page of transactions across all accounts matching the
+     * filters; any filter may be null. Pass null to start, then the previous
+     * page's next cursor.
+     *
+     * @param description Keyword for the stored descriptions of older rows
+     */
+    public TransactionPage searchTransactions(CallerContext caller, UUID counterpartyId, String description, TransactionType type,
+                                              BigDecimal minAmount, BigDecimal maxAmount,
+                                              TransactionCursor before, int limit) throws SQLException {
+        caller.requirePermission(Role.TELLER);
+        return transactionDAO.searchTransactionsPage(null, counterpartyId, description, type, minAmount, maxAmount, before, limit);
+    }
+
+    public boolean verifyPin(CallerContext caller, UUID accountId, String pin) throws SQLException {
+        requireAccountAccess(caller, accountId);
+        return pinMatches(loadAccount(accountId), pin);
+    }
+
+    /**
+     * @return The balance after the deposit
+     */
+    public BigDecimal deposit(CallerContext caller, UUID accountId, BigDecimal amount) throws SQLException {
+        requireAccountAccess(caller, accountId);
+        return postingBackend.deposit(caller.getUser().getId(), caller.getIdempotencyKey(), accountId, amount);
+    }
+
+    /**
+     * Withdraws after checking the account's PIN.
+     *
+     * @return The balance after the withdrawal
+     */
+    public BigDecimal withdraw(CallerContext caller, UUID accountId, String pin, BigDecimal amount) throws SQLException {
+        requireAccountAccess(caller, accountId);
+        requirePin(loadAccount(accountId), pin);
+        return postingBackend.withdraw(caller.getUser().getId(), caller.getIdempotencyKey(), accountId, amount);
+    }
+
+    /**
+     * Transfers after checking the source account's PIN. The caller needs
+     * access to the source only; any account may be paid into.
+     */
+    public TransferResult transfer(CallerContext caller, UUID sourceId, UUID destinationId, String pin,
+                                   BigDecimal amount) throws SQLException {
+        requireAccountAccess(caller, sourceId);
+        requirePin(loadAccount(sourceId), pin);
+        return postingBackend.transfer(caller.getUser().getId(), caller.getIdempotencyKey(), sourceId, destinationId, amount);
+    }
+
+    /**
+     * Adds a period of interest, re-applied to a fresh copy if another
+     * posting changed the account meanwhile.
+     */
+    public InterestResult applyInterest(CallerContext caller, UUID accountId) throws SQLException {
+        caller.requirePermission(Role.TELLER);
+        return postingBackend.changeAccount(accountId, () -> {
+            Account account = loadAccount(accountId);
+            Account[] updated = {account};
+            Money interest = optimisticRetry.update(account, current -> {
+                updated[0] = current;
+                return current.applyInterest();
+            });
+            return new InterestResult(accountId, interest.toBigDecimal(), updated[0].getBalance().toBigDecimal());
+        });
+    }
+
+    /**
+     * The account's transactions between two dates, both inclusive.
+     *
+     * @param startDate First day, or null for all history
+     * @param endDate Last day, or null for up to today
+     */
+    public Statement statement(CallerContext caller, UUID accountId, LocalDate startDate, LocalDate endDate) throws SQLException {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+
+        AccountState account = findAccount(caller, accountId).snapshot();
+        return new Statement(account, startDate, endDate, account.getTransactionsBetween(startDate, endDate));
+    }
+
+    /**
+     * Renames the account's customer after checking its PIN.
+     *
+     * @return The account as saved
+     */
+    public Account changeCustomerName(CallerContext caller, UUID accountId, String pin, String newName) throws SQLException {
+        requireAccountAccess(caller, accountId);
+        return postingBackend.changeAccount(accountId, () -> {
+            Account account = loadAccount(accountId);
+            requirePin(account, pin);
+            return optimisticRetry.update(account, current -> {
+                current.setCustomerName(newName);
+                return current;
+            });
+        });
+    }
+
+    /**
+     * Replaces the account's PIN after checking the current one.
+     */
+    public void changePin(CallerContext caller, UUID accountId, String currentPin, String newPin) throws SQLException {
+        requireAccountAccess(caller, accountId);
+        postingBackend.changeAccount(accountId, () -> {
+            Account account = loadAccount(accountId);
+            requirePin(account, currentPin);
+            if (PasswordUtil.verifyPin(newPin, account.getPinHash())) {
+                throw new IllegalArgumentException("New PIN must be different from current PIN!");
+            }
+            accountDAO.changePin(accountId, PasswordUtil.hashPin(newPin));
+            return null;
+        });
+    }
+
+    /**
+     * Gives a PIN to an account that has none yet. There is no old PIN to
+     * check, so only staff may do this.
+     *
+     * @return The account as saved
+     */
+    public Account setupPin(CallerContext caller, UUID accountId, String pin) throws SQLException {
+        caller.requirePermission(Role.TELLER);
+        String pinHash = PasswordUtil.hashPin(pin);
+        return postingBackend.changeAccount(accountId, () -> {
+            Account account = loadAccount(accountId);
+            if (hasPin(account)) {
+                throw new IllegalArgumentException("This account already has a PIN!");
+            }
+            return optimisticRetry.update(account, current -> {
+                current.setPinHash(pinHash);
+                return current;
+            });
+        });
+    }
+
+    /**
+     * Puts an account that takes many concurrent credits into hot mode with
+     * the given number of balance slots, or takes it out again when slots
+     * is 0. Runs through the posting backend so no cached copy of the
+     * account outlives the switch.
+     */
+    public void setHotMode(CallerContext caller, UUID accountId, int slots) throws SQLException {
+        caller.requirePermission(Role.ADMIN);
+        postingBackend.changeAccount(accountId, () -> {
+            if (slots == 0) {
+                accountDAO.disableHotMode(accountId);
+            } else {
+                accountDAO.enableHotMode(accountId, slots);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Whether the account has a PIN set up, which is needed before it can be
+     * withdrawn from, renamed or have its PIN changed.
+     */
+    public static boolean hasPin(Account account) {
+        return account.getPinHash() != null && !account.getPinHash().isEmpty();
+    }
+
+    private Account loadAccount(UUID accountId) throws SQLException {
+        Account account = accountDAO.findById(accountId);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found!");
+        }
+        return account;
+    }
+
+    /**
+     * @throws SecurityException if the caller may not use the account
+     */
+    private void requireAccountAccess(CallerContext caller, UUID accountId) throws SQLException {
+        if (!authService.canAccessAccount(caller.getUser(), accountId)) {
+            throw new SecurityException("You do not have permission to access this account");
+        }
+    }
+
+    /**
+     * Checks the PIN against the account already loaded, so the check costs
+     * no second read of the row.
+     */
+    private void requirePin(Account account, String pin) {
+        if (account.isLocked()) {
+            throw new IllegalArgumentException("Account is locked due to too many failed PIN attempts!");
+        }
+        if (!pinMatches(account, pin)) {
+            throw new IllegalArgumentException("Invalid PIN!");
+        }
+    }
+
+    private boolean pinMatches(Account account, String pin) {
+        return !account.isLocked() && hasPin(account) && PasswordUtil.verifyPin(pin, account.getPinHash());
+    }
+}
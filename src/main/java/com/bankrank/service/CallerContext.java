@@ -0,0 +1,54 @@
+package com.bankrank.service;
+
+import com.bankrank.model.Role;
+import com.bankrank.model.User;
+
+/**
+ * Who is calling an AccountService operation, passed with every call
+ * instead of being read from the console Session, so one service instance
+ * can serve many callers at once.
+ */
+public final class CallerContext {
+
+    private final User user;
+    private final String idempotencyKey;
+
+    private CallerContext(User user, String idempotencyKey) {
+        if (user == null) {
+            throw new IllegalArgumentException("Caller must be a logged-in user");
+        }
+        this.user = user;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public static CallerContext of(User user) {
+        return new CallerContext(user, null);
+    }
+
+    /**
+     * Same caller, with a key that makes the next posting safe to retry.
+     */
+    public CallerContext withIdempotencyKey(String idempotencyKey) {
+        return new CallerContext(user, idempotencyKey);
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return The request's idempotency key, or null
+     */
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    /**
+     * @throws SecurityException if the caller's role is below required
+     */
+    public void requirePermission(Role required) {
+        if (!user.hasPermission(required)) {
+            throw new SecurityException(user.getUsername() + " is not allowed to do this");
+        }
+    }
+}
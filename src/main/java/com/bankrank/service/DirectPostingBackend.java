@@ -0,0 +1,52 @@
+package com.bankrank.service;
+
+import com.bankrank.database.AccountDAO;
+import com.bankrank.ledger.AccountWork;
+import com.bankrank.model.TransferResult;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Posts each request in its own database transaction through AccountDAO.
+ * Nothing is cached, so other changes need no coordination.
+ */
+final class DirectPostingBackend implements PostingBackend {
+
+    private final AccountDAO accountDAO;
+
+    DirectPostingBackend(AccountDAO accountDAO) {
+        this.accountDAO = accountDAO;
+    }
+
+    @Override
+    public BigDecimal deposit(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        return idempotencyKey != null
+                ? accountDAO.postDeposit(callerId, idempotencyKey, accountId, amount)
+                : accountDAO.postDeposit(accountId, amount);
+    }
+
+    @Override
+    public BigDecimal withdraw(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        return idempotencyKey != null
+                ? accountDAO.postWithdrawal(callerId, idempotencyKey, accountId, amount)
+                : accountDAO.postWithdrawal(accountId, amount);
+    }
+
+    @Override
+    public TransferResult transfer(UUID callerId, String idempotencyKey, UUID sourceId, UUID destinationId,
+                                   BigDecimal amount) throws SQLException {
+        return accountDAO.transfer(callerId, idempotencyKey, sourceId, destinationId, amount);
+    }
+
+    @Override
+    public <T> T changeAccount(UUID accountId, AccountWork<T> work) throws SQLException {
+        return work.run();
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held between calls
+    }
+}
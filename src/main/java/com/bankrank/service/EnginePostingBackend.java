@@ -0,0 +1,57 @@
+package com.bankrank.service;
+
+import com.bankrank.ledger.AccountWork;
+import com.bankrank.ledger.LedgerEngine;
+import com.bankrank.model.TransferResult;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Posts through an in-memory LedgerEngine, which acknowledges once the
+ * posting is journaled and writes balances through in the background.
+ */
+final class EnginePostingBackend implements PostingBackend {
+
+    private final LedgerEngine engine;
+
+    EnginePostingBackend(LedgerEngine engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public BigDecimal deposit(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return engine.deposit(accountId, amount);
+    }
+
+    @Override
+    public BigDecimal withdraw(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return engine.withdraw(accountId, amount);
+    }
+
+    @Override
+    public TransferResult transfer(UUID callerId, String idempotencyKey, UUID sourceId, UUID destinationId,
+                                   BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return engine.transfer(sourceId, destinationId, amount);
+    }
+
+    @Override
+    public <T> T changeAccount(UUID accountId, AccountWork<T> work) throws SQLException {
+        return engine.changeAccount(accountId, work);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        engine.close();
+    }
+
+    private static void requireNoKey(String idempotencyKey) {
+        if (idempotencyKey != null) {
+            throw new IllegalArgumentException("Idempotency keys are not supported in ENGINE posting mode");
+        }
+    }
+}
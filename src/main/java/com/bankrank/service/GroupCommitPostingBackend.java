@@ -0,0 +1,81 @@
+package com.bankrank.service;
+
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.GroupCommitPostingQueue;
+import com.bankrank.ledger.AccountWork;
+import com.bankrank.model.TransferResult;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Queues deposits and withdrawals on a GroupCommitPostingQueue so many of
+ * them share one commit, and waits for that commit. Postings with an
+ * idempotency key and transfers go straight to AccountDAO. Nothing is
+ * cached, so other changes need no coordination.
+ */
+final class GroupCommitPostingBackend implements PostingBackend {
+
+    private final AccountDAO accountDAO;
+    private final GroupCommitPostingQueue queue;
+
+    GroupCommitPostingBackend(AccountDAO accountDAO, GroupCommitPostingQueue queue) {
+        this.accountDAO = accountDAO;
+        this.queue = queue;
+    }
+
+    @Override
+    public BigDecimal deposit(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        return idempotencyKey != null
+                ? accountDAO.postDeposit(callerId, idempotencyKey, accountId, amount)
+                : await(queue.deposit(accountId, amount));
+    }
+
+    @Override
+    public BigDecimal withdraw(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        return idempotencyKey != null
+                ? accountDAO.postWithdrawal(callerId, idempotencyKey, accountId, amount)
+                : await(queue.withdraw(accountId, amount));
+    }
+
+    @Override
+    public TransferResult transfer(UUID callerId, String idempotencyKey, UUID sourceId, UUID destinationId,
+                                   BigDecimal amount) throws SQLException {
+        return accountDAO.transfer(callerId, idempotencyKey, sourceId, destinationId, amount);
+    }
+
+    @Override
+    public <T> T changeAccount(UUID accountId, AccountWork<T> work) throws SQLException {
+        return work.run();
+    }
+
+    @Override
+    public void close() {
+        queue.close();
+    }
+
+    /**
+     * Waits for the group commit and rethrows its failure as the caller
+     * would have seen it posting alone.
+     */
+    static <T> T await(CompletableFuture<T> result) throws SQLException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the posting to commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException("Posting failed", cause);
+        }
+    }
+}
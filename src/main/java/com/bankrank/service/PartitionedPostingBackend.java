@@ -0,0 +1,59 @@
+package com.bankrank.service;
+
+import com.bankrank.ledger.AccountWork;
+import com.bankrank.ledger.PartitionedLedger;
+import com.bankrank.model.TransferResult;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static com.bankrank.service.GroupCommitPostingBackend.await;
+
+/**
+ * Sends postings to the PartitionedLedger worker that owns the account and
+ * waits for its commit.
+ */
+final class PartitionedPostingBackend implements PostingBackend {
+
+    private final PartitionedLedger ledger;
+
+    PartitionedPostingBackend(PartitionedLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    @Override
+    public BigDecimal deposit(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return await(ledger.deposit(accountId, amount));
+    }
+
+    @Override
+    public BigDecimal withdraw(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return await(ledger.withdraw(accountId, amount));
+    }
+
+    @Override
+    public TransferResult transfer(UUID callerId, String idempotencyKey, UUID sourceId, UUID destinationId,
+                                   BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return await(ledger.transfer(sourceId, destinationId, amount));
+    }
+
+    @Override
+    public <T> T changeAccount(UUID accountId, AccountWork<T> work) throws SQLException {
+        return await(ledger.changeAccount(accountId, work));
+    }
+
+    @Override
+    public void close() {
+        ledger.close();
+    }
+
+    private static void requireNoKey(String idempotencyKey) {
+        if (idempotencyKey != null) {
+            throw new IllegalArgumentException("Idempotency keys are not supported in PARTITIONED posting mode");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.bankrank.service;
+
+import com.bankrank.ledger.AccountWork;
+import com.bankrank.ledger.PostingPipeline;
+import com.bankrank.model.TransferResult;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static com.bankrank.service.GroupCommitPostingBackend.await;
+
+/**
+ * Publishes postings to a PostingPipeline and waits until the pipeline has
+ * made them durable.
+ */
+final class PipelinePostingBackend implements PostingBackend {
+
+    private final PostingPipeline pipeline;
+
+    PipelinePostingBackend(PostingPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    @Override
+    public BigDecimal deposit(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return await(pipeline.submitDeposit(accountId, amount)).balance().toBigDecimal();
+    }
+
+    @Override
+    public BigDecimal withdraw(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        return await(pipeline.submitWithdrawal(accountId, amount)).balance().toBigDecimal();
+    }
+
+    @Override
+    public TransferResult transfer(UUID callerId, String idempotencyKey, UUID sourceId, UUID destinationId,
+                                   BigDecimal amount) throws SQLException {
+        requireNoKey(idempotencyKey);
+        PostingPipeline.Receipt receipt = await(pipeline.submitTransfer(sourceId, destinationId, amount));
+        return new TransferResult(sourceId, receipt.customerName(), receipt.balance().toBigDecimal(),
+                destinationId, receipt.destinationCustomerName(), receipt.destinationBalance().toBigDecimal());
+    }
+
+    @Override
+    public <T> T changeAccount(UUID accountId, AccountWork<T> work) throws SQLException {
+        return await(pipeline.submitChange(accountId, work));
+    }
+
+    @Override
+    public void close() {
+        pipeline.close();
+    }
+
+    private static void requireNoKey(String idempotencyKey) {
+        if (idempotencyKey != null) {
+            throw new IllegalArgumentException("Idempotency keys are not supported in PIPELINE posting mode");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.bankrank.service;
+
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.DatabaseConnection;
+import com.bankrank.database.GroupCommitPostingQueue;
+import com.bankrank.ledger.AccountWork;
+import com.bankrank.ledger.LedgerEngine;
+import com.bankrank.ledger.PartitionedLedger;
+import com.bankrank.ledger.PostingJournal;
+import com.bankrank.ledger.PostingPipeline;
+import com.bankrank.model.TransferResult;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Where AccountService sends deposits, withdrawals and transfers, chosen by
+ * ledger.postingMode in db.properties.
+ *
+ * Some modes keep accounts in memory and must be their only writer, so
+ * every other change to an account (interest, name, PIN) goes through
+ * changeAccount. Those modes do not take idempotency keys.
+ */
+public interface PostingBackend extends AutoCloseable {
+
+    /**
+     * The values of ledger.postingMode.
+     */
+    enum Mode {
+        // One database transaction per posting through AccountDAO
+        DIRECT,
+        // LedgerEngine with its write-ahead journal
+        ENGINE,
+        // Deposits and withdrawals share commits through GroupCommitPostingQueue
+        GROUP_COMMIT,
+        // PostingPipeline's writer, journal and side-effect threads
+        PIPELINE,
+        // PartitionedLedger workers, each owning a share of the accounts
+        PARTITIONED
+    }
+
+    /**
+     * @param idempotencyKey Caller's key for a safe retry, or null
+     * @return The balance after the deposit
+     */
+    BigDecimal deposit(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException;
+
+    /**
+     * @param idempotencyKey Caller's key for a safe retry, or null
+     * @return The balance after the withdrawal
+     */
+    BigDecimal withdraw(UUID callerId, String idempotencyKey, UUID accountId, BigDecimal amount) throws SQLException;
+
+    /**
+     * @param idempotencyKey Caller's key for a safe retry, or null
+     */
+    TransferResult transfer(UUID callerId, String idempotencyKey, UUID sourceId, UUID destinationId,
+                            BigDecimal amount) throws SQLException;
+
+    /**
+     * Runs a change made through AccountDAO to an account this backend may
+     * hold in memory.
+     */
+    <T> T changeAccount(UUID accountId, AccountWork<T> work) throws SQLException;
+
+    /**
+     * Writes whatever is still pending and stops any background threads.
+     */
+    @Override
+    void close() throws SQLException;
+
+    /**
+     * Starts the backend configured by ledger.postingMode, DIRECT if unset.
+     * A journaled engine replays its journal before this returns.
+     */
+    static PostingBackend fromConfig(AccountDAO accountDAO) throws SQLException {
+        String value = DatabaseConnection.getProperty("ledger.postingMode", "DIRECT").trim().toUpperCase();
+        Mode mode;
+        try {
+            mode = Mode.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown ledger.postingMode: " + value);
+        }
+        return switch (mode) {
+            case DIRECT ->
+                new DirectPostingBackend(accountDAO);
+            case ENGINE -> {
+                PostingJournal journal;
+                try {
+                    journal = PostingJournal.fromConfig();
+                } catch (IOException e) {
+                    throw new SQLException("Could not open the posting journal", e);
+                }
+                LedgerEngine engine = new LedgerEngine(accountDAO, journal);
+                try {
+                    engine.recover();
+                } catch (SQLException | RuntimeException e) {
+                    try {
+                        engine.close();
+                    } catch (SQLException closeFailure) {
+                        e.addSuppressed(closeFailure);
+                    }
+                    throw e;
+                }
+                yield new EnginePostingBackend(engine);
+            }
+            case GROUP_COMMIT ->
+                new GroupCommitPostingBackend(accountDAO, new GroupCommitPostingQueue(accountDAO));
+            case PIPELINE -> {
+                PostingPipeline pipeline = new PostingPipeline(accountDAO, null);
+                pipeline.start();
+                yield new PipelinePostingBackend(pipeline);
+            }
+            case PARTITIONED -> {
+                PartitionedLedger ledger = new PartitionedLedger(accountDAO);
+                try {
+                    ledger.recover();
+                } catch (SQLException | RuntimeException e) {
+                    ledger.close();
+                    throw e;
+                }
+                yield new PartitionedPostingBackend(ledger);
+            }
+        };
+    }
+}
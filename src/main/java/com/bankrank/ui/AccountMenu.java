@@ -1,17 +1,19 @@
 package com.bankrank.ui;
 
-import com.bankrank.database.AccountDAO;
+import com.bankrank.auth.Session;
 import com.bankrank.model.Account;
+import com.bankrank.model.AccountSummary;
 import com.bankrank.model.AccountType;
-import com.bankrank.model.CheckingAccountType;
-import com.bankrank.model.SavingsAccountType;
-import com.bankrank.util.PasswordUtil;
+import com.bankrank.model.AccountTypeCatalog;
+import com.bankrank.service.AccountService;
+import com.bankrank.service.CallerContext;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 /**
  * Handles all account-related operations (create, view, search).
@@ -20,12 +22,12 @@ public class AccountMenu {
 
     @SuppressWarnings("unused")
     private final Scanner scanner;
-    private final AccountDAO accountDAO;
+    private final AccountService accountService;
     private final InputHelper inputHelper;
 
-    public AccountMenu(Scanner scanner, AccountDAO accountDAO) {
+    public AccountMenu(Scanner scanner, AccountService accountService) {
         this.scanner = scanner;
-        this.accountDAO = accountDAO;
+        this.accountService = accountService;
         this.inputHelper = new InputHelper(scanner);
     }
 
@@ -34,39 +36,23 @@ public class AccountMenu {
 
         String customerName = inputHelper.getStringInput("Enter customer name: ");
 
+        List<AccountType> types = AccountTypeCatalog.all();
         System.out.println("Select account type:");
-        System.out.println("1. Savings (2.5% interest, $100 minimum balance)");
-        System.out.println("2. Checking (0% interest, $0 minimum balance)");
+        for (int i = 0; i < types.size(); i++) {
+            AccountType type = types.get(i);
+            System.out.println((i + 1) + ". " + type.getName() + " (" + formatRate(type.getInterestRate())
+                    + " interest, $" + type.getMinimumBalance() + " minimum balance)");
+        }
         int typeChoice = inputHelper.getIntInput("Enter choice: ");
 
-        AccountType accountType = switch (typeChoice) {
-            case 1 ->
-                new SavingsAccountType();
-            case 2 ->
-                new CheckingAccountType();
-            default -> {
-                System.out.println("Invalid account type!");
-                yield null;
-            }
-        };
-
-        if (accountType == null) {
+        if (typeChoice < 1 || typeChoice > types.size()) {
+            System.out.println("Invalid account type!");
             return;
         }
+        AccountType accountType = types.get(typeChoice - 1);
 
         BigDecimal initialDeposit = inputHelper.getBigDecimalInput("Enter initial deposit: $");
 
-        if (initialDeposit.compareTo(BigDecimal.ZERO) < 0) {
-            System.out.println("Initial deposit cannot be negative!");
-            return;
-        }
-
-        // Check minimum balance requirement
-        if (initialDeposit.compareTo(accountType.getMinimumBalance()) < 0) {
-            System.out.println("Initial deposit must be at least $" + accountType.getMinimumBalance());
-            return;
-        }
-
         // Get and confirm PIN
         System.out.println("\nSet up a 4-digit PIN for this account:");
         String pin = inputHelper.getPinInput("Enter PIN: ");
@@ -78,15 +64,14 @@ public class AccountMenu {
         }
 
         try {
-            // Hash the PIN before storing
-            String pinHash = PasswordUtil.hashPin(pin);
-            Account account = new Account(UUID.randomUUID(), customerName, initialDeposit, accountType, pinHash);
-            accountDAO.save(account);
+            Account account = accountService.createAccount(caller(), customerName, accountType, initialDeposit, pin);
             System.out.println("\n✓ Account created successfully!");
             System.out.println("Account ID: " + account.getAccountNumber());
             System.out.println("Customer: " + customerName);
             System.out.println("Balance: $" + account.getBalance());
             System.out.println("PIN: ****  (securely stored)");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         } catch (SQLException e) {
             System.out.println("Error creating account: " + e.getMessage());
         }
@@ -96,26 +81,15 @@ public class AccountMenu {
         System.out.println("\n--- All Accounts ---");
 
         try {
-            List<Account> accounts = accountDAO.findAll();
+            // Rows are printed as they stream in; the list is never held in memory
+            AccountTablePrinter printer = new AccountTablePrinter();
+            accountService.streamAccountSummaries(caller(), null, null, printer);
+            printer.finish();
 
-            if (accounts.isEmpty()) {
+            if (printer.getCount() == 0) {
                 System.out.println("No accounts found.");
-                return;
-            }
-
-            System.out.println("\n╔════════════════════════════════════════════════════════════════════════╗");
-            System.out.printf("║ %-36s │ %-15s │ %-12s ║%n", "Account ID", "Customer", "Balance");
-            System.out.println("╠════════════════════════════════════════════════════════════════════════╣");
-
-            for (Account account : accounts) {
-                System.out.printf("║ %-36s │ %-15s │ $%-11s ║%n",
-                        account.getAccountNumber().toString().substring(0, 36),
-                        truncate(account.getCustomerName(), 15),
-                        account.getBalance());
             }
 
-            System.out.println("╚════════════════════════════════════════════════════════════════════════╝");
-
         } catch (SQLException e) {
             System.out.println("Error loading accounts: " + e.getMessage());
         }
@@ -129,27 +103,58 @@ public class AccountMenu {
         }
 
         try {
-            Account account = accountDAO.findById(accountId);
-            if (account != null) {
-                int width = 70;
+            Account account = accountService.findAccount(caller(), accountId);
+            int width = 70;
                 String border = "═".repeat(width);
 
-                System.out.println("\n╔" + border + "╗");
-                System.out.println(String.format("║ Account ID: %-" + (width - 14) + "s ║", account.getAccountNumber()));
-                System.out.println(String.format("║ Customer: %-" + (width - 12) + "s ║", account.getCustomerName()));
-                System.out.println(String.format("║ Type: %-" + (width - 8) + "s ║", getAccountTypeName(account.getAccountType())));
-                System.out.println(String.format("║ Balance: $%-" + (width - 12) + "s ║", account.getBalance()));
-                System.out.println(String.format("║ Created: %-" + (width - 11) + "s ║", account.getDateCreated()));
-                System.out.println("╚" + border + "╝");
-            } else {
-                System.out.println("Account not found!");
-            }
+            System.out.println("\n╔" + border + "╗");
+            System.out.println(String.format("║ Account ID: %-" + (width - 14) + "s ║", account.getAccountNumber()));
+            System.out.println(String.format("║ Customer: %-" + (width - 12) + "s ║", account.getCustomerName()));
+            System.out.println(String.format("║ Type: %-" + (width - 8) + "s ║", account.getAccountType().getCode()));
+            System.out.println(String.format("║ Balance: $%-" + (width - 12) + "s ║", account.getBalance()));
+            System.out.println(String.format("║ Created: %-" + (width - 11) + "s ║", account.getDateCreated()));
+            System.out.println("╚" + border + "╝");
 
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         } catch (SQLException e) {
             System.out.println("Database error: " + e.getMessage());
         }
     }
 
+    /**
+     * Prints account rows as they arrive, with the table header before the
+     * first row, so listings can be streamed instead of collected first.
+     */
+    private class AccountTablePrinter implements Consumer<AccountSummary> {
+
+        private int count;
+
+        @Override
+        public void accept(AccountSummary account) {
+            if (count == 0) {
+                System.out.println("╔════════════════════════════════════════════════════════════════════════╗");
+                System.out.printf("║ %-36s │ %-15s │ %-12s ║%n", "Account ID", "Customer", "Balance");
+                System.out.println("╠════════════════════════════════════════════════════════════════════════╣");
+            }
+            System.out.printf("║ %-36s │ %-15s │ $%-11s ║%n",
+                    account.getAccountNumber().toString().substring(0, 36),
+                    truncate(account.getCustomerName(), 15),
+                    account.getBalance());
+            count++;
+        }
+
+        void finish() {
+            if (count > 0) {
+                System.out.println("╚════════════════════════════════════════════════════════════════════════╝");
+            }
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+
     private String truncate(String str, int maxLength) {
         if (str.length() <= maxLength) {
             return str;
@@ -157,13 +162,11 @@ public class AccountMenu {
         return str.substring(0, maxLength - 3) + "...";
     }
 
-    private String getAccountTypeName(AccountType accountType) {
-        if (accountType instanceof SavingsAccountType) {
-            return "SAVINGS";
-        } else if (accountType instanceof CheckingAccountType) {
-            return "CHECKING";
-        }
-        throw new IllegalArgumentException("Unknown account type");
+    /**
+     * A rate in millionths as a percentage, e.g. 2.5%.
+     */
+    private String formatRate(long rateMillionths) {
+        return BigDecimal.valueOf(rateMillionths, 4).stripTrailingZeros().toPlainString() + "%";
     }
 
     public void searchAccounts() {
@@ -178,47 +181,40 @@ public class AccountMenu {
         }
 
         // Get account type filter (optional)
+        List<AccountType> types = AccountTypeCatalog.all();
         System.out.println("\nAccount type options:");
-        System.out.println("1. SAVINGS");
-        System.out.println("2. CHECKING");
+        for (int i = 0; i < types.size(); i++) {
+            System.out.println((i + 1) + ". " + types.get(i).getCode());
+        }
         System.out.print("Enter choice (or press Enter to skip): ");
         String typeInput = inputHelper.getStringInput("").trim();
         String accountType = null;
         if (!typeInput.isEmpty()) {
-            accountType = switch (typeInput) {
-                case "1" ->
-                    "SAVINGS";
-                case "2" ->
-                    "CHECKING";
-                default -> {
-                    System.out.println("Invalid type, skipping filter.");
-                    yield null;
-                }
-            };
+            int typeChoice;
+            try {
+                typeChoice = Integer.parseInt(typeInput);
+            } catch (NumberFormatException e) {
+                typeChoice = 0;
+            }
+            if (typeChoice >= 1 && typeChoice <= types.size()) {
+                accountType = types.get(typeChoice - 1).getCode();
+            } else {
+                System.out.println("Invalid type, skipping filter.");
+            }
         }
 
         try {
-            List<Account> accounts = accountDAO.searchAccounts(customerName, accountType);
-
-            if (accounts.isEmpty()) {
-                System.out.println("\nNo accounts found matching your criteria.");
-                return;
-            }
-
-            System.out.println("\nFound " + accounts.size() + " account(s):\n");
-            System.out.println("╔════════════════════════════════════════════════════════════════════════╗");
-            System.out.printf("║ %-36s │ %-15s │ %-12s ║%n", "Account ID", "Customer", "Balance");
-            System.out.println("╠════════════════════════════════════════════════════════════════════════╣");
+            System.out.println();
+            AccountTablePrinter printer = new AccountTablePrinter();
+            accountService.streamAccountSummaries(caller(), customerName, accountType, printer);
+            printer.finish();
 
-            for (Account account : accounts) {
-                System.out.printf("║ %-36s │ %-15s │ $%-11s ║%n",
-                        account.getAccountNumber().toString().substring(0, 36),
-                        truncate(account.getCustomerName(), 15),
-                        account.getBalance());
+            if (printer.getCount() == 0) {
+                System.out.println("No accounts found matching your criteria.");
+            } else {
+                System.out.println("\nFound " + printer.getCount() + " account(s).");
             }
 
-            System.out.println("╚════════════════════════════════════════════════════════════════════════╝");
-
         } catch (SQLException e) {
             System.out.println("Error searching accounts: " + e.getMessage());
         }
@@ -233,14 +229,11 @@ public class AccountMenu {
         }
 
         try {
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
+            CallerContext caller = caller();
+            Account account = accountService.findAccount(caller, accountId);
 
             // Check if account already has a PIN
-            if (account.getPinHash() != null && !account.getPinHash().isEmpty()) {
+            if (AccountService.hasPin(account)) {
                 System.out.println("\n⚠ This account already has a PIN!");
                 System.out.println("Use 'Change PIN' feature instead (if available).");
                 return;
@@ -257,15 +250,15 @@ public class AccountMenu {
             }
 
             // Hash and save PIN
-            String pinHash = PasswordUtil.hashPin(pin);
-            account.setPinHash(pinHash);
-            accountDAO.update(account);
+            account = accountService.setupPin(caller, accountId, pin);
 
             System.out.println("\n✓ PIN setup successful!");
             System.out.println("Account: " + account.getCustomerName());
             System.out.println("Account ID: " + account.getAccountNumber());
             System.out.println("PIN: ****  (securely stored)");
 
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         } catch (SQLException e) {
             System.out.println("Error setting up PIN: " + e.getMessage());
         }
@@ -281,24 +274,17 @@ public class AccountMenu {
 
         try {
             // 1. Load account FIRST
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
+            CallerContext caller = caller();
+            Account account = accountService.findAccount(caller, accountId);
 
             // 2. Check if has PIN
-            if (account.getPinHash() == null || account.getPinHash().isEmpty()) {
+            if (!AccountService.hasPin(account)) {
                 System.out.println("This account has no PIN! Please set up a PIN first (option 12).");
                 return;
             }
 
-            // 3. Verify PIN (only ONCE, no confirm)
+            // 3. Ask for PIN (only ONCE, no confirm); the service checks it
             String pin = inputHelper.getPinInput("Enter PIN to authorize: ");
-            if (!accountDAO.verifyPin(accountId, pin)) {
-                System.out.println("\n✗ Invalid PIN!");
-                return;
-            }
 
             // 4. Show old name
             String oldName = account.getCustomerName();
@@ -307,9 +293,8 @@ public class AccountMenu {
             // 5. Get new name
             String newName = inputHelper.getStringInput("Enter new name: ");
 
-            // 6. Update (validation happens in setter)
-            account.setCustomerName(newName);
-            accountDAO.update(account);
+            // 6. Update (validation happens in setter); retried if someone else changed the account
+            account = accountService.changeCustomerName(caller, accountId, pin, newName);
 
             // 7. Confirm
             System.out.println("\n✓ Name changed successfully!");
@@ -317,7 +302,7 @@ public class AccountMenu {
             System.out.println("New name: " + account.getCustomerName());
 
         } catch (IllegalArgumentException e) {
-            System.out.println("\n✗ Invalid name: " + e.getMessage());
+            System.out.println("\n✗ " + e.getMessage());
         } catch (SQLException e) {
             System.out.println("Database error: " + e.getMessage());
         }
@@ -333,21 +318,18 @@ public class AccountMenu {
 
         try {
             // 1. Load account
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
+            CallerContext caller = caller();
+            Account account = accountService.findAccount(caller, accountId);
 
             // 2. Check if has PIN
-            if (account.getPinHash() == null || account.getPinHash().isEmpty()) {
+            if (!AccountService.hasPin(account)) {
                 System.out.println("This account has no PIN! Please set up a PIN first (option 12).");
                 return;
             }
 
             // 3. Verify old PIN
             String oldPin = inputHelper.getPinInput("Enter current PIN: ");
-            if (!accountDAO.verifyPin(accountId, oldPin)) {
+            if (!accountService.verifyPin(caller, accountId, oldPin)) {
                 System.out.println("\n✗ Invalid PIN!");
                 return;
             }
@@ -362,20 +344,44 @@ public class AccountMenu {
                 return;
             }
 
-            // 5. Check if new PIN is same as old
-            if (PasswordUtil.verifyPin(newPin, account.getPinHash())) {
-                System.out.println("\n✗ New PIN must be different from current PIN!");
-                return;
-            }
-
-            // 6. Hash and save new PIN
-            String newPinHash = PasswordUtil.hashPin(newPin);
-            accountDAO.changePin(accountId, newPinHash);
+            // 5. Save new PIN; the service rejects one equal to the old PIN
+            accountService.changePin(caller, accountId, oldPin, newPin);
 
             System.out.println("\n✓ PIN changed successfully!");
             System.out.println("Account: " + account.getCustomerName());
             System.out.println("Account ID: " + account.getAccountNumber());
 
+        } catch (IllegalArgumentException e) {
+            System.out.println("\n✗ " + e.getMessage());
+        } catch (SQLException e) {
+            System.out.println("Database error: " + e.getMessage());
+        }
+    }
+
+    private CallerContext caller() {
+        return CallerContext.of(Session.getInstance().getCurrentUserOrThrow());
+    }
+
+    public void setHotMode() {
+        System.out.println("\n--- Hot Mode ---");
+
+        UUID accountId = inputHelper.getAccountId();
+        if (accountId == null) {
+            return;
+        }
+
+        System.out.println("Hot mode spreads the balance over slots so many concurrent deposits do not queue.");
+        int slots = inputHelper.getIntInput("Enter number of slots (0 to turn hot mode off): ");
+
+        try {
+            accountService.setHotMode(caller(), accountId, slots);
+            if (slots == 0) {
+                System.out.println("\n✓ Hot mode is off for account " + accountId);
+            } else {
+                System.out.println("\n✓ Account " + accountId + " is in hot mode with " + slots + " slots");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("\n✗ " + e.getMessage());
         } catch (SQLException e) {
             System.out.println("Database error: " + e.getMessage());
         }
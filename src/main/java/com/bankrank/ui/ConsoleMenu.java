@@ -5,6 +5,8 @@ import com.bankrank.database.AccountDAO;
 import com.bankrank.database.DatabaseConnection;
 import com.bankrank.database.UserDAO;
 import com.bankrank.model.User;
+import com.bankrank.service.AccountService;
+import com.bankrank.service.PostingBackend;
 
 import java.util.Scanner;
 
@@ -26,18 +28,19 @@ public class ConsoleMenu {
     private final ReportMenu reportMenu;
     private final LoginMenu loginMenu;
 
-    public ConsoleMenu() {
+    public ConsoleMenu(AccountDAO accountDAO, PostingBackend postingBackend) {
         this.scanner = new Scanner(System.in);
-        this.accountDAO = new AccountDAO();
+        this.accountDAO = accountDAO;
         this.userDAO = new UserDAO();
         this.authService = new AuthenticationService(userDAO);
         this.inputHelper = new InputHelper(scanner);
         this.running = true;
 
         // Initialize specialized menus
-        this.accountMenu = new AccountMenu(scanner, accountDAO);
-        this.transactionMenu = new TransactionMenu(scanner, accountDAO);
-        this.reportMenu = new ReportMenu(scanner, accountDAO);
+        AccountService accountService = new AccountService(accountDAO, authService, postingBackend);
+        this.accountMenu = new AccountMenu(scanner, accountService);
+        this.transactionMenu = new TransactionMenu(scanner, accountService);
+        this.reportMenu = new ReportMenu(scanner, accountService);
         this.loginMenu = new LoginMenu(scanner, authService);
     }
 
@@ -95,12 +98,22 @@ public class ConsoleMenu {
         System.out.println("12. Setup PIN for Existing Account");
         System.out.println("13. Change Customer Name");
         System.out.println("14. Change PIN");
-        System.out.println("15. Logout");
-        System.out.println("16. Exit");
+        System.out.println("15. Set Hot Mode (Admin)");
+        System.out.println("16. Logout");
+        System.out.println("17. Exit");
         System.out.println("═════════════════");
     }
 
     private void handleMainMenu(int choice) {
+        try {
+            runChoice(choice);
+        } catch (SecurityException e) {
+            // AccountService refuses operations the logged-in user may not do
+            System.out.println("\n✗ Access denied: " + e.getMessage());
+        }
+    }
+
+    private void runChoice(int choice) {
         switch (choice) {
             case 1 ->
                 accountMenu.createAccount();
@@ -131,8 +144,10 @@ public class ConsoleMenu {
             case 14 ->
                 accountMenu.changePin();
             case 15 ->
-                logout();
+                accountMenu.setHotMode();
             case 16 ->
+                logout();
+            case 17 ->
                 exit();
             default ->
                 System.out.println("Invalid choice. Please try again.");
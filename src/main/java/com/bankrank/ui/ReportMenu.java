@@ -1,8 +1,11 @@
 package com.bankrank.ui;
 
-import com.bankrank.database.AccountDAO;
+import com.bankrank.auth.Session;
 import com.bankrank.model.Account;
+import com.bankrank.model.AccountState;
 import com.bankrank.model.Transaction;
+import com.bankrank.model.TransactionCursor;
+import com.bankrank.model.TransactionPage;
 
 import java.io.File;
 import java.io.FileWriter;
@@ -12,13 +15,15 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 import java.util.UUID;
 
-import com.bankrank.database.TransactionDAO;
 import com.bankrank.model.TransactionType;
+import com.bankrank.model.Money;
+import com.bankrank.model.Statement;
+import com.bankrank.service.AccountService;
+import com.bankrank.service.CallerContext;
 import com.bankrank.service.EmailService;
 
 /**
@@ -26,14 +31,16 @@ import com.bankrank.service.EmailService;
  */
 public class ReportMenu {
 
+    private static final int HISTORY_PAGE_SIZE = 20;
+
     @SuppressWarnings("unused")
     private final Scanner scanner;
-    private final AccountDAO accountDAO;
+    private final AccountService accountService;
     private final InputHelper inputHelper;
 
-    public ReportMenu(Scanner scanner, AccountDAO accountDAO) {
+    public ReportMenu(Scanner scanner, AccountService accountService) {
         this.scanner = scanner;
-        this.accountDAO = accountDAO;
+        this.accountService = accountService;
         this.inputHelper = new InputHelper(scanner);
     }
 
@@ -46,36 +53,41 @@ public class ReportMenu {
         }
 
         try {
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
+            Account account = accountService.findAccount(caller(), accountId);
 
             System.out.println("\nAccount: " + account.getCustomerName());
             System.out.println("Current Balance: $" + account.getBalance());
-            System.out.println("\nTransactions:");
+            int transactionCount = account.getTransactionCount();
+            System.out.println("\nTransactions (" + transactionCount + " total, newest first):");
 
-            List<Transaction> transactions = account.getTransactionHistory();
-
-            if (transactions.isEmpty()) {
+            if (transactionCount == 0) {
                 System.out.println("No transactions found.");
                 return;
             }
 
-            System.out.println("╔════════════════╦═════════════╦══════════════════════════════════════╗");
-            System.out.printf("║ %-14s ║ %-11s ║ %-36s ║%n", "Type", "Amount", "Description");
-            System.out.println("╠════════════════╬═════════════╬══════════════════════════════════════╣");
+            // Page through history instead of loading all of it
+            TransactionCursor cursor = null;
+            do {
+                TransactionPage page = account.getTransactionPage(cursor, HISTORY_PAGE_SIZE);
 
-            for (Transaction t : transactions) {
-                System.out.printf("║ %-14s ║ $%-10s ║ %-36s ║%n",
-                        t.getTransactionType(),
-                        t.getAmount(),
-                        truncate(t.getDescription(), 36));
-            }
+                System.out.println("╔════════════════╦═════════════╦══════════════════════════════════════╗");
+                System.out.printf("║ %-14s ║ %-11s ║ %-36s ║%n", "Type", "Amount", "Description");
+                System.out.println("╠════════════════╬═════════════╬══════════════════════════════════════╣");
 
-            System.out.println("╚════════════════╩═════════════╩══════════════════════════════════════╝");
+                for (Transaction t : page.getTransactions()) {
+                    System.out.printf("║ %-14s ║ $%-10s ║ %-36s ║%n",
+                            t.getTransactionType(),
+                            t.getAmount(),
+                            truncate(t.getDescription(), 36));
+                }
 
+                System.out.println("╚════════════════╩═════════════╩══════════════════════════════════════╝");
+                cursor = page.getNextCursor();
+            } while (cursor != null
+                    && inputHelper.getStringInput("Show older transactions? (y/n): ").equalsIgnoreCase("y"));
+
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         } catch (SQLException e) {
             System.out.println("Database error: " + e.getMessage());
         }
@@ -90,38 +102,19 @@ public class ReportMenu {
         }
 
         try {
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
+            CallerContext caller = caller();
+            accountService.findAccount(caller, accountId);
 
             LocalDate startDate = inputHelper.getDateInput();
             LocalDate endDate = inputHelper.getDateInput();
 
-            if (startDate != null && endDate != null) {
-                if (startDate.compareTo(endDate) > 0) {
-                    System.out.println("Error: Start date cannot be after end date");
-                    return;
-                }
-            }
+            Statement statement = accountService.statement(caller, accountId, startDate, endDate);
+            AccountState account = statement.getAccount();
 
             System.out.println("Start: " + (startDate != null ? startDate : "all history"));
             System.out.println("End: " + (endDate != null ? endDate : "today"));
 
-            List<Transaction> transactionsHistory = account.getTransactionHistory();
-            List<Transaction> filteredListOfTransactions = new ArrayList<>();
-
-            for (Transaction t : transactionsHistory) {
-
-                LocalDate txnDate = t.getDateTime().toLocalDate();
-                boolean beforeEnd = (endDate == null) || !txnDate.isAfter(endDate);
-                boolean afterStart = (startDate == null) || !txnDate.isBefore(startDate);
-
-                if (afterStart && beforeEnd) {
-                    filteredListOfTransactions.add(t);
-                }
-            }
+            List<Transaction> filteredListOfTransactions = statement.getTransactions();
 
             // Print filtered transactions
             if (filteredListOfTransactions.isEmpty()) {
@@ -174,12 +167,14 @@ public class ReportMenu {
                 }
             }
 
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
         } catch (SQLException e) {
             System.out.println("Database error: " + e.getMessage());
         }
     }
 
-    private File exportToCSV(Account account, List<Transaction> filteredTransactions) {
+    private File exportToCSV(AccountState account, List<Transaction> filteredTransactions) {
         System.out.println("\nGenerating CSV...");
 
         // Build CSV content
@@ -228,7 +223,7 @@ public class ReportMenu {
         }
     }
 
-    private File exportToText(Account account, List<Transaction> filteredTransactions, LocalDate startDate, LocalDate endDate) {
+    private File exportToText(AccountState account, List<Transaction> filteredTransactions, LocalDate startDate, LocalDate endDate) {
         System.out.println("\nGenerating text statement...");
 
         StringBuilder text = new StringBuilder();
@@ -241,7 +236,7 @@ public class ReportMenu {
         // Account info
         text.append("Account ID:       ").append(account.getAccountNumber()).append("\n");
         text.append("Customer:         ").append(account.getCustomerName()).append("\n");
-        text.append("Account Type:     ").append(account.getAccountType().getClass().getSimpleName().replace("AccountType", "")).append("\n");
+        text.append("Account Type:     ").append(account.getAccountType().getName()).append("\n");
         text.append("Current Balance:  $").append(account.getBalance()).append("\n");
         text.append("Statement Period: ").append(startDate != null ? startDate : "Beginning").append(" to ").append(endDate != null ? endDate : "Today").append("\n");
         text.append("Generated:        ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))).append("\n\n");
@@ -268,18 +263,18 @@ public class ReportMenu {
         text.append("                              SUMMARY                                      \n");
         text.append("───────────────────────────────────────────────────────────────────────────\n\n");
 
-        java.math.BigDecimal totalDeposits = java.math.BigDecimal.ZERO;
-        java.math.BigDecimal totalWithdrawals = java.math.BigDecimal.ZERO;
-        java.math.BigDecimal totalInterest = java.math.BigDecimal.ZERO;
+        Money totalDeposits = Money.ZERO;
+        Money totalWithdrawals = Money.ZERO;
+        Money totalInterest = Money.ZERO;
 
         for (Transaction t : filteredTransactions) {
             switch (t.getTransactionType()) {
                 case DEPOSIT ->
-                    totalDeposits = totalDeposits.add(t.getAmount());
+                    totalDeposits = totalDeposits.plus(t.getAmount());
                 case WITHDRAWAL ->
-                    totalWithdrawals = totalWithdrawals.add(t.getAmount());
+                    totalWithdrawals = totalWithdrawals.plus(t.getAmount());
                 case INTEREST ->
-                    totalInterest = totalInterest.add(t.getAmount());
+                    totalInterest = totalInterest.plus(t.getAmount());
                 default ->
                     throw new IllegalArgumentException("Unexpected value: " + t.getTransactionType());
             }
@@ -319,7 +314,7 @@ public class ReportMenu {
         }
     }
 
-    private File exportToJSON(Account account, List<Transaction> filteredTransactions, LocalDate startDate, LocalDate endDate) {
+    private File exportToJSON(AccountState account, List<Transaction> filteredTransactions, LocalDate startDate, LocalDate endDate) {
         System.out.println("\nGenerating JSON...");
 
         // Build JSON content manually (no library needed)
@@ -341,6 +336,9 @@ public class ReportMenu {
             json.append("      \"date\": \"").append(t.getDateTime().toLocalDate()).append("\",\n");
             json.append("      \"type\": \"").append(t.getTransactionType()).append("\",\n");
             json.append("      \"amount\": ").append(t.getAmount()).append(",\n");
+            if (t.getCounterpartyId() != null) {
+                json.append("      \"counterpartyId\": \"").append(t.getCounterpartyId()).append("\",\n");
+            }
             json.append("      \"description\": \"").append(escapeJSON(t.getDescription())).append("\"\n");
             json.append("    }");
             if (i < filteredTransactions.size() - 1) {
@@ -393,10 +391,20 @@ public class ReportMenu {
         System.out.println("\n--- Search Transactions ---");
         System.out.println("Leave fields empty to skip filter\n");
 
-        TransactionDAO transactionDAO = new TransactionDAO();
+        // Get counterparty filter (optional)
+        System.out.print("Enter counterparty account number (or press Enter to skip): ");
+        String counterpartyInput = inputHelper.getStringInput("").trim();
+        UUID counterpartyId = null;
+        if (!counterpartyInput.isEmpty()) {
+            try {
+                counterpartyId = UUID.fromString(counterpartyInput);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid account number, skipping filter.");
+            }
+        }
 
-        // Get description filter (optional)
-        System.out.print("Enter description keyword (or press Enter to skip): ");
+        // Get description filter (optional); only older transactions store one
+        System.out.print("Enter description keyword for older transactions (or press Enter to skip): ");
         String description = inputHelper.getStringInput("").trim();
         if (description.isEmpty()) {
             description = null;
@@ -449,30 +457,45 @@ public class ReportMenu {
         }
 
         try {
-            List<Transaction> transactions = transactionDAO.searchTransactions(null, description, type, minAmount, maxAmount);
-
-            if (transactions.isEmpty()) {
-                System.out.println("\nNo transactions found matching your criteria.");
-                return;
-            }
-
-            System.out.println("\nFound " + transactions.size() + " transaction(s):\n");
-            System.out.println("╔════════════════╦═════════════╦══════════════════════════════════════╦══════════════════════╗");
-            System.out.printf("║ %-14s ║ %-11s ║ %-36s ║ %-20s ║%n", "Type", "Amount", "Description", "Date");
-            System.out.println("╠════════════════╬═════════════╬══════════════════════════════════════╬══════════════════════╣");
+            // Fetch one keyset page at a time, newest first
+            CallerContext caller = caller();
+            TransactionCursor cursor = null;
+            int shown = 0;
+            do {
+                TransactionPage page = accountService.searchTransactions(caller, counterpartyId, description, type, minAmount, maxAmount, cursor, HISTORY_PAGE_SIZE);
+
+                if (page.getTransactions().isEmpty()) {
+                    if (shown == 0) {
+                        System.out.println("\nNo transactions found matching your criteria.");
+                    }
+                    return;
+                }
 
-            for (Transaction t : transactions) {
-                System.out.printf("║ %-14s ║ $%-10s ║ %-36s ║ %-20s ║%n",
-                        t.getTransactionType(),
-                        t.getAmount(),
-                        truncate(t.getDescription(), 36),
-                        t.getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            }
+                System.out.println("\nShowing transactions " + (shown + 1) + "-" + (shown + page.getTransactions().size()) + ":\n");
+                System.out.println("╔════════════════╦═════════════╦══════════════════════════════════════╦══════════════════════╗");
+                System.out.printf("║ %-14s ║ %-11s ║ %-36s ║ %-20s ║%n", "Type", "Amount", "Description", "Date");
+                System.out.println("╠════════════════╬═════════════╬══════════════════════════════════════╬══════════════════════╣");
+
+                for (Transaction t : page.getTransactions()) {
+                    System.out.printf("║ %-14s ║ $%-10s ║ %-36s ║ %-20s ║%n",
+                            t.getTransactionType(),
+                            t.getAmount(),
+                            truncate(t.getDescription(), 36),
+                            t.getDateTime().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+                }
 
-            System.out.println("╚════════════════╩═════════════╩══════════════════════════════════════╩══════════════════════╝");
+                System.out.println("╚════════════════╩═════════════╩══════════════════════════════════════╩══════════════════════╝");
+                shown += page.getTransactions().size();
+                cursor = page.getNextCursor();
+            } while (cursor != null
+                    && inputHelper.getStringInput("Show more results? (y/n): ").equalsIgnoreCase("y"));
 
         } catch (SQLException e) {
             System.out.println("Error searching transactions: " + e.getMessage());
         }
     }
+
+    private CallerContext caller() {
+        return CallerContext.of(Session.getInstance().getCurrentUserOrThrow());
+    }
 }
@@ -1,7 +1,10 @@
 package com.bankrank.ui;
 
-import com.bankrank.database.AccountDAO;
-import com.bankrank.model.Account;
+import com.bankrank.auth.Session;
+import com.bankrank.model.InterestResult;
+import com.bankrank.model.TransferResult;
+import com.bankrank.service.AccountService;
+import com.bankrank.service.CallerContext;
 
 import java.math.BigDecimal;
 import java.sql.SQLException;
@@ -10,17 +13,19 @@ import java.util.UUID;
 
 /**
  * Handles all transaction-related operations (deposit, withdraw, transfer, interest).
+ * The operations themselves live in AccountService; this class only does
+ * the console input and output.
  */
 public class TransactionMenu {
 
     @SuppressWarnings("unused")
     private final Scanner scanner;
-    private final AccountDAO accountDAO;
+    private final AccountService accountService;
     private final InputHelper inputHelper;
 
-    public TransactionMenu(Scanner scanner, AccountDAO accountDAO) {
+    public TransactionMenu(Scanner scanner, AccountService accountService) {
         this.scanner = scanner;
-        this.accountDAO = accountDAO;
+        this.accountService = accountService;
         this.inputHelper = new InputHelper(scanner);
     }
 
@@ -33,19 +38,14 @@ public class TransactionMenu {
         }
 
         try {
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
+            CallerContext caller = caller();
+            accountService.findAccount(caller, accountId);
 
             BigDecimal amount = inputHelper.getBigDecimalInput("Enter deposit amount: $");
-
-            account.deposit(amount);
-            accountDAO.update(account);
+            BigDecimal newBalance = accountService.deposit(caller, accountId, amount);
 
             System.out.println("\n✓ Deposit successful!");
-            System.out.println("New balance: $" + account.getBalance());
+            System.out.println("New balance: $" + newBalance);
 
         } catch (IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
@@ -63,25 +63,16 @@ public class TransactionMenu {
         }
 
         try {
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
+            CallerContext caller = caller();
+            accountService.findAccount(caller, accountId);
 
-            // Verify PIN before withdrawal
+            // PIN is checked by the service before the withdrawal
             String pin = inputHelper.getPinInput("Enter PIN to authorize withdrawal: ");
-            if (!accountDAO.verifyPin(accountId, pin)) {
-                System.out.println("\n✗ Invalid PIN! Withdrawal cancelled.");
-                return;
-            }
-
             BigDecimal amount = inputHelper.getBigDecimalInput("Enter withdrawal amount: $");
 
-            account.withdraw(amount);
-            accountDAO.update(account);
+            BigDecimal newBalance = accountService.withdraw(caller, accountId, pin, amount);
             System.out.println("\n✓ Withdrawal successful!");
-            System.out.println("New balance: $" + account.getBalance());
+            System.out.println("New balance: $" + newBalance);
 
         } catch (IllegalArgumentException e) {
             System.out.println("\n✗ Withdrawal failed!");
@@ -107,30 +98,18 @@ public class TransactionMenu {
         }
 
         try {
-            Account sourceAccount = accountDAO.findById(sourceId);
-            Account destAccount = accountDAO.findById(destId);
+            CallerContext caller = caller();
+            // Fails fast on a bad source; the destination is checked when posting
+            accountService.findAccount(caller, sourceId);
 
-            if (sourceAccount == null || destAccount == null) {
-                System.out.println("One or both accounts not found!");
-                return;
-            }
-
-            // Verify PIN before transfer
             String pin = inputHelper.getPinInput("Enter PIN to authorize transfer: ");
-            if (!accountDAO.verifyPin(sourceId, pin)) {
-                System.out.println("\n✗ Invalid PIN! Transfer cancelled.");
-                return;
-            }
-
             BigDecimal amount = inputHelper.getBigDecimalInput("Enter transfer amount: $");
 
-            sourceAccount.transferTo(destAccount, amount);
-            accountDAO.update(sourceAccount);
-            accountDAO.update(destAccount);
+            TransferResult result = accountService.transfer(caller, sourceId, destId, pin, amount);
 
             System.out.println("\n✓ Transfer successful!");
-            System.out.println("From: " + sourceAccount.getCustomerName() + " - New balance: $" + sourceAccount.getBalance());
-            System.out.println("To: " + destAccount.getCustomerName() + " - New balance: $" + destAccount.getBalance());
+            System.out.println("From: " + result.getSourceCustomerName() + " - New balance: $" + result.getSourceBalance());
+            System.out.println("To: " + result.getDestinationCustomerName() + " - New balance: $" + result.getDestinationBalance());
 
         } catch (IllegalArgumentException e) {
             System.out.println("\n✗ Transfer failed!");
@@ -149,21 +128,20 @@ public class TransactionMenu {
         }
 
         try {
-            Account account = accountDAO.findById(accountId);
-            if (account == null) {
-                System.out.println("Account not found!");
-                return;
-            }
-
-            BigDecimal interest = account.applyInterest();
-            accountDAO.update(account);
+            InterestResult result = accountService.applyInterest(caller(), accountId);
 
             System.out.println("\n✓ Interest applied!");
-            System.out.println("Interest earned: $" + interest);
-            System.out.println("New balance: $" + account.getBalance());
+            System.out.println("Interest earned: $" + result.getInterest());
+            System.out.println("New balance: $" + result.getBalance());
 
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
         } catch (SQLException e) {
             System.out.println("Database error: " + e.getMessage());
         }
     }
+
+    private CallerContext caller() {
+        return CallerContext.of(Session.getInstance().getCurrentUserOrThrow());
+    }
 }
@@ -0,0 +1,95 @@
+-- Schema changes for an existing bankrank database.
+-- Apply new sections in order; each section is safe to re-run.
+
+-- Optimistic locking: every write to an accounts row bumps its version
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- Keyset pagination: indexes matching the (date_created, id) and
+-- (transaction_date, id) orderings used by listing and search pages
+CREATE INDEX IF NOT EXISTS idx_accounts_created_id ON accounts (date_created, id);
+CREATE INDEX IF NOT EXISTS idx_transactions_date_id ON transactions (transaction_date, id);
+CREATE INDEX IF NOT EXISTS idx_transactions_account_date_id ON transactions (account_id, transaction_date, id);
+
+-- Batch posting: last committed input line per batch file
+CREATE TABLE IF NOT EXISTS batch_checkpoints (
+    batch_id   VARCHAR(255) PRIMARY KEY,
+    last_line  BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+-- Event-sourced ledger: direction of each posting, so balances can be
+-- derived from the transactions table alone. Existing rows are backfilled
+-- from their type and the description written by transferTo.
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS is_debit BOOLEAN NOT NULL DEFAULT false;
+UPDATE transactions SET is_debit = true
+WHERE is_debit = false
+  AND (transaction_type = 'WITHDRAWAL' OR (transaction_type = 'TRANSFER' AND description LIKE 'transfer to %'));
+CREATE INDEX IF NOT EXISTS idx_transactions_account_id_id ON transactions (account_id, id);
+
+-- Balance snapshots: balance as of last_transaction_id
+CREATE TABLE IF NOT EXISTS account_snapshots (
+    account_id          UUID NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    last_transaction_id BIGINT NOT NULL,
+    balance             NUMERIC(15, 2) NOT NULL,
+    created_at          TIMESTAMP NOT NULL,
+    PRIMARY KEY (account_id, last_transaction_id)
+);
+
+-- Posted transactions are immutable
+CREATE OR REPLACE FUNCTION reject_transaction_update() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'transactions are append-only';
+END;
+$$ LANGUAGE plpgsql;
+DROP TRIGGER IF EXISTS transactions_append_only ON transactions;
+CREATE TRIGGER transactions_append_only BEFORE UPDATE ON transactions
+    FOR EACH ROW EXECUTE FUNCTION reject_transaction_update();
+
+-- Ledger journal: last posting journal sequence applied to each account,
+-- so recovery does not replay postings that were already flushed
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS journal_seq BIGINT NOT NULL DEFAULT 0;
+
+-- Hot accounts: a balance split across slot rows so concurrent credits do
+-- not queue on one accounts row. The total is balance plus its slots.
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS hot_slots INT NOT NULL DEFAULT 0;
+CREATE TABLE IF NOT EXISTS account_balance_slots (
+    account_id UUID NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    slot       INT NOT NULL,
+    balance    NUMERIC(15, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, slot)
+);
+
+-- Idempotency keys of postings; a retried request finds its original result.
+-- Keys are chosen by clients, so they are only unique per caller
+CREATE TABLE IF NOT EXISTS posting_requests (
+    caller_id            UUID NOT NULL,
+    idempotency_key      VARCHAR(128) NOT NULL,
+    operation            VARCHAR(20) NOT NULL,
+    account_id           UUID NOT NULL,
+    counterparty_id      UUID,
+    amount               NUMERIC(15, 2) NOT NULL,
+    balance              NUMERIC(15, 2),
+    counterparty_balance NUMERIC(15, 2),
+    created_at           TIMESTAMP NOT NULL,
+    PRIMARY KEY (caller_id, idempotency_key)
+);
+CREATE INDEX IF NOT EXISTS idx_posting_requests_created ON posting_requests (created_at);
+
+-- Structured transactions: kind, counterparty and reference are stored and
+-- the description is rendered when shown. Older rows keep their description.
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS kind VARCHAR(20);
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS counterparty_id UUID;
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS reference VARCHAR(255);
+ALTER TABLE transactions ALTER COLUMN description DROP NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_transactions_counterparty ON transactions (counterparty_id, transaction_date, id)
+    WHERE counterparty_id IS NOT NULL;
+
+-- Partitioned ledger: cross-partition transfers whose source is debited but
+-- whose destination is not credited yet; finished or reversed at startup
+CREATE TABLE IF NOT EXISTS pending_transfers (
+    id             UUID PRIMARY KEY,
+    source_id      UUID NOT NULL,
+    destination_id UUID NOT NULL,
+    amount         NUMERIC(15, 2) NOT NULL,
+    created_at     TIMESTAMP NOT NULL
+);
@@ -0,0 +1,48 @@
+package com.bankrank.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonTest {
+
+    @Test
+    void flatObjectValuesAreKeptAsText() {
+        Map<String, String> values = Json.parseObject(
+                " { \"amount\": 12.50, \"pin\" : \"0042\", \"force\": true, \"note\": null, \"rate\": 1e-3 } ");
+
+        assertEquals(Map.of("amount", "12.50", "pin", "0042", "force", "true", "rate", "1e-3"), values);
+    }
+
+    @Test
+    void stringEscapesAreDecoded() {
+        Map<String, String> values = Json.parseObject("{\"name\": \"A \\\"quoted\\\" \\\\ name\\n\\u00e9\"}");
+
+        assertEquals("A \"quoted\" \\ name\né", values.get("name"));
+    }
+
+    @Test
+    void emptyObjectParses() {
+        assertEquals(Map.of(), Json.parseObject("{ }"));
+    }
+
+    @Test
+    void malformedOrNestedBodiesAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"amount\": {\"value\": 1}}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"ids\": [1, 2]}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"amount\": 1"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"amount\": 1} trailing"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"amount\": 1,}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"amount\": abc}"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parseObject("{\"name\": \"open"));
+    }
+
+    @Test
+    void quoteEscapesControlCharacters() {
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001\"", Json.quote("a\"b\\c\n\u0001"));
+        assertEquals("null", Json.quote(null));
+    }
+}
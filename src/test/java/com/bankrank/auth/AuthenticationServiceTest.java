@@ -0,0 +1,71 @@
+package com.bankrank.auth;
+
+import com.bankrank.database.UserDAO;
+import com.bankrank.model.Role;
+import com.bankrank.model.User;
+import com.bankrank.util.PasswordUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class AuthenticationServiceTest {
+
+    // Unique per test, since verified credentials are shared across instances
+    private final String username = "teller-" + UUID.randomUUID();
+    private final User user = new User(UUID.randomUUID(), username, PasswordUtil.hashPin("secret"), "Teller", Role.TELLER);
+    private final CountingUserDAO userDAO = new CountingUserDAO(user);
+    private final AuthenticationService authService = new AuthenticationService(userDAO);
+
+    @Test
+    void verifiedCredentialsAreNotCheckedAgain() throws Exception {
+        assertSame(user, authService.authenticate(username, "secret"));
+        assertSame(user, authService.authenticate(username, "secret"));
+
+        assertEquals(1, userDAO.lookups);
+    }
+
+    @Test
+    void wrongPasswordIsNeverServedFromTheCache() throws Exception {
+        authService.authenticate(username, "secret");
+
+        assertNull(authService.authenticate(username, "Secret"));
+        assertEquals(2, userDAO.lookups);
+    }
+
+    @Test
+    void disabledUserIsRefusedOnTheNextRequest() throws Exception {
+        authService.authenticate(username, "secret");
+
+        user.setActive(false);
+        authService.updateUser(user);
+
+        assertNull(authService.authenticate(username, "secret"));
+    }
+
+    /**
+     * Serves one user from memory and counts lookups.
+     */
+    private static final class CountingUserDAO extends UserDAO {
+
+        private final User user;
+        private int lookups;
+
+        private CountingUserDAO(User user) {
+            this.user = user;
+        }
+
+        @Override
+        public User findByUsername(String username) {
+            lookups++;
+            return user.getUsername().equals(username) ? user : null;
+        }
+
+        @Override
+        public void update(User user) {
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.bankrank.database;
+
+import com.bankrank.model.Account;
+import com.bankrank.model.AccountTypeCatalog;
+import com.bankrank.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs against the database in db.properties and is skipped when none is
+ * reachable.
+ */
+class HotAccountWithdrawalTest {
+
+    private final AccountDAO accountDAO = new AccountDAO();
+    private UUID accountId;
+
+    @BeforeEach
+    void createHotAccount() throws SQLException {
+        assumeTrue(DatabaseConnection.testConnection(), "No database available");
+        Account account = new Account(UUID.randomUUID(), "Hot Account Test", Money.of(BigDecimal.ZERO),
+                AccountTypeCatalog.forCode("CHECKING"), null);
+        accountDAO.save(account);
+        accountId = account.getAccountNumber();
+        accountDAO.enableHotMode(accountId, 2);
+        accountDAO.postDeposit(accountId, new BigDecimal("100.00"));
+    }
+
+    @AfterEach
+    void deleteAccount() throws SQLException {
+        if (accountId != null) {
+            accountDAO.delete(accountId);
+        }
+    }
+
+    @Test
+    void withdrawalWaitingOnTheRowLockSeesSlotDebitsCommittedMeanwhile() throws Exception {
+        CompletableFuture<BigDecimal> withdrawal;
+        try (Connection other = DatabaseConnection.getConnection()) {
+            other.setAutoCommit(false);
+            try (PreparedStatement stmt = other.prepareStatement("SELECT id FROM accounts WHERE id = ? FOR UPDATE")) {
+                stmt.setObject(1, accountId);
+                stmt.executeQuery();
+            }
+
+            withdrawal = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return accountDAO.postWithdrawal(accountId, new BigDecimal("80.00"));
+                } catch (SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            awaitLockWait(other);
+            assertFalse(withdrawal.isDone());
+
+            // Another withdrawal of 80 drains the slots while the first one waits
+            try (PreparedStatement stmt = other.prepareStatement(
+                    "UPDATE account_balance_slots SET balance = CASE WHEN slot = 0 THEN 20 ELSE 0 END WHERE account_id = ?")) {
+                stmt.setObject(1, accountId);
+                stmt.executeUpdate();
+            }
+            other.commit();
+            other.setAutoCommit(true);
+        }
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> withdrawal.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, error.getCause());
+        assertEquals(0, new BigDecimal("20.00").compareTo(accountDAO.findById(accountId).getBalance().toBigDecimal()));
+    }
+
+    /**
+     * Waits until some session is blocked on a row lock.
+     */
+    private static void awaitLockWait(Connection conn) throws SQLException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock' AND pid <> pg_backend_pid()")) {
+            while (System.nanoTime() < deadline) {
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                if (rs.getInt(1) > 0) {
+                    return;
+                }
+                Thread.sleep(20);
+            }
+        }
+        throw new AssertionError("The withdrawal never waited on the account row");
+    }
+}
@@ -0,0 +1,274 @@
+package com.bankrank.ledger;
+
+import com.bankrank.database.AccountChange;
+import com.bankrank.database.AccountDAO;
+import com.bankrank.database.OptimisticLockException;
+import com.bankrank.model.Account;
+import com.bankrank.model.AccountTypeCatalog;
+import com.bankrank.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LedgerEngineRecoveryTest {
+
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    private static final UUID GONE = UUID.fromString("00000000-0000-0000-0000-00000000000f");
+
+    @TempDir
+    Path directory;
+
+    private final FakeAccountDAO accountDAO = new FakeAccountDAO();
+    private final List<AccountChange> written = new ArrayList<>();
+    // The next write touching this account fails as if someone else wrote it
+    private UUID conflictOnce;
+    private LedgerEngine engine;
+
+    @AfterEach
+    void closeEngine() {
+        if (engine != null) {
+            try {
+                engine.close();
+            } catch (SQLException e) {
+                // Expected after a failed recovery
+            }
+        }
+    }
+
+    @Test
+    void replaysOnlyRecordsNewerThanTheStoredSequence() throws Exception {
+        accountDAO.add(ALICE, "100.00", 1);
+        accountDAO.add(BOB, "50.00", 0);
+        writeJournal(journal -> {
+            journal.appendDeposit(ALICE, new BigDecimal("10.00"));
+            journal.appendDeposit(BOB, new BigDecimal("5.00"));
+            journal.appendTransfer(ALICE, BOB, new BigDecimal("20.00"));
+        });
+
+        assertEquals(2, startEngine().recover());
+
+        assertChange(ALICE, "80.00", 3, 1);
+        assertChange(BOB, "75.00", 3, 2);
+    }
+
+    @Test
+    void transferFlushedOnOneSideIsReplayedOnTheOtherOnly() throws Exception {
+        // The debit reached the database before the crash, the credit did not
+        accountDAO.add(ALICE, "80.00", 1);
+        accountDAO.add(BOB, "50.00", 0);
+        writeJournal(journal -> journal.appendTransfer(ALICE, BOB, new BigDecimal("20.00")));
+
+        assertEquals(1, startEngine().recover());
+
+        assertEquals(1, written.size());
+        assertChange(BOB, "70.00", 1, 1);
+    }
+
+    @Test
+    void tornLastRecordIsNotReplayed() throws Exception {
+        accountDAO.add(ALICE, "100.00", 0);
+        writeJournal(journal -> {
+            journal.appendDeposit(ALICE, new BigDecimal("10.00"));
+            journal.appendDeposit(ALICE, new BigDecimal("7.00"));
+        });
+        Path segment = lastSegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(segment) - 5);
+        }
+
+        assertEquals(1, startEngine().recover());
+
+        assertChange(ALICE, "110.00", 1, 1);
+    }
+
+    @Test
+    void recordThatCannotBeReplayedStopsRecoveryAndNamesIt() throws Exception {
+        accountDAO.add(ALICE, "100.00", 0);
+        writeJournal(journal -> {
+            journal.appendDeposit(ALICE, new BigDecimal("10.00"));
+            journal.appendDeposit(GONE, new BigDecimal("5.00"));
+            journal.appendDeposit(ALICE, new BigDecimal("1.00"));
+        });
+        Path segment = lastSegment();
+        LedgerEngine started = startEngine();
+
+        SQLException error = assertThrows(SQLException.class, started::recover);
+
+        assertTrue(error.getMessage().contains("#2"), error.getMessage());
+        assertTrue(error.getMessage().contains(GONE.toString()), error.getMessage());
+        assertTrue(error.getMessage().contains(segment.getFileName() + " byte "), error.getMessage());
+        // Nothing is flushed and the journal keeps every record for a retry
+        assertThrows(SQLException.class, started::flush);
+        assertTrue(written.isEmpty());
+        assertThrows(IllegalStateException.class, () -> started.deposit(ALICE, BigDecimal.ONE));
+        try (PostingJournal journal = openJournal()) {
+            assertEquals(3, journal.recover().size());
+        }
+    }
+
+    @Test
+    void recordRefusedByTheAccountRulesStopsRecovery() throws Exception {
+        // The database holds less than the journaled withdrawal needs
+        accountDAO.add(ALICE, "5.00", 0);
+        writeJournal(journal -> journal.appendWithdrawal(ALICE, new BigDecimal("10.00")));
+
+        SQLException error = assertThrows(SQLException.class, startEngine()::recover);
+
+        assertTrue(error.getMessage().contains("#1 WITHDRAWAL"), error.getMessage());
+        assertTrue(written.isEmpty());
+    }
+
+    @Test
+    void writeConflictOnOneAccountDoesNotBlockTheOthers() throws Exception {
+        accountDAO.add(ALICE, "100.00", 0);
+        accountDAO.add(BOB, "50.00", 0);
+        LedgerEngine started = startEngine();
+        started.recover();
+        started.deposit(ALICE, new BigDecimal("10.00"));
+        started.deposit(BOB, new BigDecimal("5.00"));
+        // Another writer adds interest to Alice behind the engine's back
+        accountDAO.add(ALICE, "150.00", 0);
+        conflictOnce = ALICE;
+
+        started.flush();
+
+        assertEquals(1, written.size());
+        assertChange(BOB, "55.00", 2, 1);
+        // Alice was reloaded and her deposit replayed on the fresh balance
+        written.clear();
+        started.flush();
+        assertChange(ALICE, "160.00", 1, 1);
+        assertEquals(0, new BigDecimal("160.00").compareTo(started.getBalance(ALICE)));
+    }
+
+    @Test
+    void postingThatNoLongerFitsAfterAConflictFailsOnlyThatAccount() throws Exception {
+        accountDAO.add(ALICE, "100.00", 0);
+        accountDAO.add(BOB, "50.00", 0);
+        LedgerEngine started = startEngine();
+        started.recover();
+        started.withdraw(ALICE, new BigDecimal("80.00"));
+        started.deposit(BOB, new BigDecimal("5.00"));
+        accountDAO.add(ALICE, "20.00", 0);
+        conflictOnce = ALICE;
+
+        started.flush();
+
+        assertChange(BOB, "55.00", 2, 1);
+        assertTrue(started.getFailedAccounts().containsKey(ALICE));
+        assertThrows(SQLException.class, () -> started.deposit(ALICE, BigDecimal.ONE));
+        assertEquals(new BigDecimal("56.00"), started.deposit(BOB, BigDecimal.ONE));
+        started.flush();
+        assertFalse(written.stream().anyMatch(c -> c.getAccountId().equals(ALICE)));
+        // Not checkpointed, so a restart replays the withdrawal against the database
+        try (PostingJournal journal = openJournal()) {
+            assertEquals(3, journal.recover().size());
+        }
+    }
+
+    @FunctionalInterface
+    private interface JournalWrites {
+
+        void write(PostingJournal journal) throws IOException;
+    }
+
+    private void writeJournal(JournalWrites writes) throws IOException {
+        try (PostingJournal journal = openJournal()) {
+            journal.recover();
+            writes.write(journal);
+        }
+    }
+
+    private PostingJournal openJournal() throws IOException {
+        return new PostingJournal(directory, PostingJournal.FsyncPolicy.PER_OP, 0, 1 << 20);
+    }
+
+    /**
+     * An engine whose flushes are captured instead of written to a database.
+     * The flush timer is long enough never to fire during a test.
+     */
+    private LedgerEngine startEngine() throws IOException {
+        engine = new LedgerEngine(accountDAO, 16, 600_000, openJournal()) {
+            @Override
+            void write(List<AccountChange> changes) throws SQLException {
+                for (AccountChange change : changes) {
+                    if (change.getAccountId().equals(conflictOnce)) {
+                        conflictOnce = null;
+                        throw new OptimisticLockException(change.getAccountId(), change.getExpectedVersion());
+                    }
+                }
+                written.addAll(changes);
+            }
+        };
+        return engine;
+    }
+
+    private void assertChange(UUID accountId, String balance, long journalSequence, int newTransactions) {
+        AccountChange change = written.stream()
+                .filter(c -> c.getAccountId().equals(accountId))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No change written for " + accountId));
+        assertEquals(0, new BigDecimal(balance).compareTo(change.getBalance()), "balance " + change.getBalance());
+        assertEquals(journalSequence, change.getJournalSequence());
+        assertEquals(newTransactions, change.getNewTransactions().size());
+    }
+
+    private Path lastSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+            return segments.get(segments.size() - 1);
+        }
+    }
+
+    /**
+     * Accounts and their stored journal_seq, held in memory.
+     */
+    private static final class FakeAccountDAO extends AccountDAO {
+
+        private final Map<UUID, BigDecimal> balances = new HashMap<>();
+        private final Map<UUID, Long> journalSequences = new HashMap<>();
+
+        private void add(UUID accountId, String balance, long journalSequence) {
+            balances.put(accountId, new BigDecimal(balance));
+            journalSequences.put(accountId, journalSequence);
+        }
+
+        @Override
+        public Account findById(UUID accountId) {
+            BigDecimal balance = balances.get(accountId);
+            if (balance == null) {
+                return null;
+            }
+            return new Account(accountId, "Customer", Money.of(balance), AccountTypeCatalog.forCode("CHECKING"), null);
+        }
+
+        @Override
+        public long findJournalSequence(UUID accountId) {
+            Long sequence = journalSequences.get(accountId);
+            if (sequence == null) {
+                throw new IllegalArgumentException("Account not found");
+            }
+            return sequence;
+        }
+    }
+}
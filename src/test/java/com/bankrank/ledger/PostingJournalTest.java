@@ -0,0 +1,214 @@
+package com.bankrank.ledger;
+
+import com.bankrank.batch.PostingRecord.Kind;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostingJournalTest {
+
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoverReturnsEveryAppendedRecord() throws IOException {
+        try (PostingJournal journal = open()) {
+            journal.recover();
+            journal.appendDeposit(ALICE, new BigDecimal("10.00"));
+            journal.appendWithdrawal(ALICE, new BigDecimal("2.50"));
+            journal.appendTransfer(ALICE, BOB, new BigDecimal("1.25"));
+        }
+
+        List<PostingJournal.Record> records = recover();
+        assertEquals(3, records.size());
+        assertRecord(records.get(0), 1, Kind.DEPOSIT, ALICE, null, "10.00");
+        assertRecord(records.get(1), 2, Kind.WITHDRAWAL, ALICE, null, "2.50");
+        assertRecord(records.get(2), 3, Kind.TRANSFER, ALICE, BOB, "1.25");
+    }
+
+    @Test
+    void recordsKnowWhereTheyAreInTheJournal() throws IOException {
+        long firstRecordBytes;
+        try (PostingJournal journal = open()) {
+            journal.recover();
+            journal.appendDeposit(ALICE, BigDecimal.ONE);
+            firstRecordBytes = Files.size(lastSegment());
+            journal.appendDeposit(BOB, BigDecimal.TEN);
+        }
+
+        List<PostingJournal.Record> records = recover();
+        assertEquals(0, records.get(0).getOffset());
+        assertEquals(firstRecordBytes, records.get(1).getOffset());
+        assertTrue(records.get(1).toString().contains("byte " + firstRecordBytes));
+    }
+
+    @Test
+    void tornRecordAtTheTailIsDroppedAndCutOff() throws IOException {
+        long firstRecordBytes;
+        try (PostingJournal journal = open()) {
+            journal.recover();
+            journal.appendDeposit(ALICE, BigDecimal.ONE);
+            firstRecordBytes = Files.size(lastSegment());
+            journal.appendDeposit(BOB, BigDecimal.TEN);
+        }
+        Path segment = lastSegment();
+        truncate(segment, Files.size(segment) - 3);
+
+        List<PostingJournal.Record> records = recover();
+        assertEquals(1, records.size());
+        assertRecord(records.get(0), 1, Kind.DEPOSIT, ALICE, null, "1");
+        assertEquals(firstRecordBytes, Files.size(segment));
+    }
+
+    @Test
+    void lengthCutShortIsTruncatedBeforeNewAppends() throws IOException {
+        try (PostingJournal journal = open()) {
+            journal.recover();
+        }
+        // A crash while writing the first record's length
+        Path segment = lastSegment();
+        appendBytes(segment, new byte[] {0, 0, 1});
+
+        try (PostingJournal journal = open()) {
+            assertTrue(journal.recover().isEmpty());
+            assertEquals(0, Files.size(segment));
+            journal.appendDeposit(ALICE, BigDecimal.ONE);
+        }
+
+        List<PostingJournal.Record> records = recover();
+        assertEquals(1, records.size());
+        assertRecord(records.get(0), 1, Kind.DEPOSIT, ALICE, null, "1");
+    }
+
+    @Test
+    void checksumMismatchAtTheTailIsDropped() throws IOException {
+        long firstRecordBytes;
+        try (PostingJournal journal = open()) {
+            journal.recover();
+            journal.appendDeposit(ALICE, BigDecimal.ONE);
+            firstRecordBytes = Files.size(lastSegment());
+            journal.appendDeposit(BOB, BigDecimal.TEN);
+        }
+        Path segment = lastSegment();
+        flipByte(segment, Files.size(segment) - 1);
+
+        List<PostingJournal.Record> records = recover();
+        assertEquals(1, records.size());
+        assertEquals(ALICE, records.get(0).getAccountId());
+        assertEquals(firstRecordBytes, Files.size(segment));
+    }
+
+    @Test
+    void damageBeforeTheLastSegmentIsAnError() throws IOException {
+        // One record per segment
+        try (PostingJournal journal = new PostingJournal(directory, PostingJournal.FsyncPolicy.PER_OP, 0, 1)) {
+            journal.recover();
+            journal.appendDeposit(ALICE, BigDecimal.ONE);
+            journal.appendDeposit(BOB, BigDecimal.TEN);
+        }
+        Path first = segments().get(0);
+        flipByte(first, Files.size(first) - 1);
+
+        try (PostingJournal journal = open()) {
+            IOException error = assertThrows(IOException.class, journal::recover);
+            assertTrue(error.getMessage().contains(first.toString()));
+        }
+    }
+
+    @Test
+    void recordsUpToTheCheckpointAreNotReturned() throws IOException {
+        try (PostingJournal journal = open()) {
+            journal.recover();
+            journal.appendDeposit(ALICE, BigDecimal.ONE);
+            journal.appendDeposit(ALICE, BigDecimal.TEN);
+            journal.appendDeposit(BOB, BigDecimal.ONE);
+            journal.checkpoint(2);
+        }
+
+        List<PostingJournal.Record> records = recover();
+        assertEquals(1, records.size());
+        assertEquals(3, records.get(0).getSequence());
+    }
+
+    @Test
+    void sequencesContinueAfterRecovery() throws IOException {
+        try (PostingJournal journal = open()) {
+            journal.recover();
+            journal.appendDeposit(ALICE, BigDecimal.ONE);
+        }
+        try (PostingJournal journal = open()) {
+            journal.recover();
+            assertEquals(2, journal.appendDeposit(BOB, BigDecimal.ONE));
+            assertNull(journal.getFsyncFailure());
+        }
+        assertEquals(2, recover().size());
+    }
+
+    private PostingJournal open() throws IOException {
+        return new PostingJournal(directory, PostingJournal.FsyncPolicy.PER_OP, 0, 1 << 20);
+    }
+
+    private List<PostingJournal.Record> recover() throws IOException {
+        try (PostingJournal journal = open()) {
+            return journal.recover();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Path> segments = segments();
+        return segments.get(segments.size() - 1);
+    }
+
+    private static void assertRecord(PostingJournal.Record record, long sequence, Kind kind, UUID accountId,
+                                     UUID destinationId, String amount) {
+        assertEquals(sequence, record.getSequence());
+        assertEquals(kind, record.getKind());
+        assertEquals(accountId, record.getAccountId());
+        assertEquals(destinationId, record.getDestinationAccountId());
+        assertEquals(new BigDecimal(amount), record.getAmount());
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    private static void appendBytes(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.flip();
+            one.put(0, (byte) ~one.get(0));
+            channel.write(one, position);
+        }
+    }
+}
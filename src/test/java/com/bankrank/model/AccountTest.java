@@ -0,0 +1,72 @@
+package com.bankrank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountTest {
+
+    private final Account account = new Account(UUID.randomUUID(), "Customer", Money.ofCents(10_000),
+            AccountTypeCatalog.forCode("CHECKING"), null);
+
+    @Test
+    void unsavedTransactionsAreListedOldestFirst() {
+        account.deposit(Money.ofCents(100));
+        account.withdraw(Money.ofCents(200));
+        account.deposit(Money.ofCents(300));
+
+        assertEquals(List.of(100L, 200L, 300L), cents(account.getUnsavedTransactions()));
+        assertEquals(List.of(TransactionKind.DEPOSIT, TransactionKind.WITHDRAWAL, TransactionKind.DEPOSIT),
+                account.getUnsavedTransactions().stream().map(Transaction::getKind).toList());
+    }
+
+    @Test
+    void markingSomeSavedKeepsTheNewerOnesPending() throws Exception {
+        account.deposit(Money.ofCents(100));
+        account.deposit(Money.ofCents(200));
+        account.deposit(Money.ofCents(300));
+
+        account.markTransactionsSaved(2);
+
+        assertEquals(List.of(300L), cents(account.getUnsavedTransactions()));
+        assertEquals(List.of(100L, 200L, 300L), cents(account.getTransactionHistory()));
+        assertEquals(3, account.getTransactionCount());
+
+        account.deposit(Money.ofCents(400));
+        account.markTransactionsSaved(1);
+
+        assertEquals(List.of(400L), cents(account.getUnsavedTransactions()));
+        assertEquals(List.of(100L, 200L, 300L, 400L), cents(account.getTransactionHistory()));
+    }
+
+    @Test
+    void markingMoreThanArePendingIsRefused() {
+        account.deposit(Money.ofCents(100));
+
+        assertThrows(IllegalArgumentException.class, () -> account.markTransactionsSaved(2));
+        assertEquals(1, account.getUnsavedTransactions().size());
+    }
+
+    @Test
+    void snapshotIsUnaffectedByLaterPostings() throws Exception {
+        account.deposit(Money.ofCents(100));
+        AccountState before = account.snapshot();
+
+        account.deposit(Money.ofCents(200));
+        account.markTransactionsSaved();
+
+        assertEquals(Money.ofCents(10_100), before.getBalance());
+        assertEquals(List.of(100L), cents(before.getUnsavedTransactions()));
+        assertEquals(List.of(100L), cents(before.getTransactionHistory()));
+        assertEquals(Money.ofCents(10_300), account.getBalance());
+        assertEquals(0, account.getUnsavedTransactions().size());
+    }
+
+    private static List<Long> cents(List<Transaction> transactions) {
+        return transactions.stream().map(t -> t.getAmount().getCents()).toList();
+    }
+}
@@ -0,0 +1,46 @@
+package com.bankrank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AccountTypeCatalogTest {
+
+    @Test
+    void productsAreReadFromTheResourceInOrder() {
+        assertEquals(List.of("SAVINGS", "CHECKING"), AccountTypeCatalog.all().stream().map(AccountType::getCode).toList());
+
+        AccountType savings = AccountTypeCatalog.forCode("SAVINGS");
+        assertEquals("Savings", savings.getName());
+        assertEquals(Money.ofCents(10_000), savings.getMinimumBalance());
+        assertEquals(Money.rateOf("0.025"), savings.getInterestRate());
+        assertEquals(0, AccountTypeCatalog.forCode("CHECKING").getInterestRate());
+    }
+
+    @Test
+    void everyLookupReturnsTheSharedInstance() {
+        assertSame(AccountTypeCatalog.forCode("CHECKING"), AccountTypeCatalog.forCode("CHECKING"));
+        assertSame(AccountTypeCatalog.all().get(0), AccountTypeCatalog.forCode("SAVINGS"));
+    }
+
+    @Test
+    void unknownCodesAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> AccountTypeCatalog.forCode("BROKERAGE"));
+        assertThrows(IllegalArgumentException.class, () -> AccountTypeCatalog.forCode("savings"));
+        assertThrows(IllegalArgumentException.class, () -> AccountTypeCatalog.forCode(null));
+    }
+
+    @Test
+    void withdrawalsStopAtTheMinimumBalance() {
+        AccountType savings = AccountTypeCatalog.forCode("SAVINGS");
+
+        assertTrue(savings.canWithdraw(Money.ofCents(15_000), Money.ofCents(5_000)));
+        assertFalse(savings.canWithdraw(Money.ofCents(15_000), Money.ofCents(5_001)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.bankrank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactTransactionListTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 30);
+    private static final UUID COUNTERPARTY = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    @Test
+    void prefixKeepsItsRowsWhenTheColumnsGrow() {
+        CompactTransactionList list = new CompactTransactionList(2);
+        deposit(list, 1, 100, START);
+        deposit(list, 2, 200, START.plusMinutes(1));
+        CompactTransactionList prefix = list.prefix(2);
+
+        for (int i = 3; i <= 10; i++) {
+            deposit(list, i, i * 100, START.plusMinutes(i));
+        }
+
+        assertEquals(10, list.size());
+        assertEquals(2, prefix.size());
+        assertEquals(200, prefix.getCents(1));
+        assertEquals(2L, prefix.get(1).getId());
+        assertThrows(IndexOutOfBoundsException.class, () -> prefix.get(2));
+        assertTrue(list.isLive());
+        assertFalse(prefix.isLive());
+        assertThrows(IllegalStateException.class, () -> deposit(prefix, 11, 100, START));
+    }
+
+    @Test
+    void repeatedStringsShareOneDictionaryEntry() {
+        CompactTransactionList list = new CompactTransactionList();
+        // More distinct strings than the initial dictionary holds
+        for (int i = 0; i < 20; i++) {
+            list.append(i + 1, TransactionType.DEPOSIT, TransactionKind.DEPOSIT, Money.ofCents(100), null,
+                    new String("ref-" + (i % 10)), null, START.plusMinutes(i), false);
+        }
+
+        assertSame(list.get(3).getReference(), list.get(13).getReference());
+        assertEquals("ref-9", list.get(19).getReference());
+        assertNull(list.get(0).getStoredDescription());
+    }
+
+    @Test
+    void firstIndexAtOrAfterFindsTheFirstMatchingTime() {
+        CompactTransactionList list = new CompactTransactionList();
+        deposit(list, 1, 100, START);
+        deposit(list, 2, 100, START.plusHours(1));
+        deposit(list, 3, 100, START.plusHours(1));
+        deposit(list, 4, 100, START.plusHours(2));
+
+        assertEquals(0, list.firstIndexAtOrAfter(START.minusDays(1)));
+        assertEquals(0, list.firstIndexAtOrAfter(START));
+        assertEquals(1, list.firstIndexAtOrAfter(START.plusMinutes(1)));
+        assertEquals(1, list.firstIndexAtOrAfter(START.plusHours(1)));
+        assertEquals(3, list.firstIndexAtOrAfter(START.plusHours(1).plusNanos(1000)));
+        assertEquals(4, list.firstIndexAtOrAfter(START.plusDays(1)));
+        assertEquals(2, list.prefix(2).firstIndexAtOrAfter(START.plusDays(1)));
+    }
+
+    @Test
+    void rowsRoundTripThroughTheColumns() {
+        CompactTransactionList list = new CompactTransactionList();
+        LocalDateTime withNanos = START.plusNanos(123_456_789);
+        list.append(7, TransactionType.TRANSFER, TransactionKind.TRANSFER_OUT, Money.ofCents(2_550), COUNTERPARTY,
+                "invoice-42", null, withNanos, true);
+        deposit(list, 0, 1_000, START);
+
+        assertEquals(-2_550, list.getSignedCents(0));
+        assertEquals(1_000, list.getSignedCents(1));
+        Transaction transfer = list.get(0);
+        assertEquals(7L, transfer.getId());
+        assertEquals(TransactionKind.TRANSFER_OUT, transfer.getKind());
+        assertEquals(Money.ofCents(2_550), transfer.getAmount());
+        assertEquals(COUNTERPARTY, transfer.getCounterpartyId());
+        assertEquals("invoice-42", transfer.getReference());
+        assertTrue(transfer.isDebit());
+        // Kept to the microsecond, like PostgreSQL
+        assertEquals(START.plusNanos(123_456_000), transfer.getDateTime());
+        // Id 0 marks a row that has not been reloaded from the database
+        assertNull(list.get(1).getId());
+        assertNull(list.get(1).getCounterpartyId());
+    }
+
+    private static void deposit(CompactTransactionList list, long id, long cents, LocalDateTime dateTime) {
+        list.append(id, TransactionType.DEPOSIT, TransactionKind.DEPOSIT, Money.ofCents(cents), null, null, null,
+                dateTime, false);
+    }
+}
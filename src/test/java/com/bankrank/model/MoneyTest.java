@@ -0,0 +1,61 @@
+package com.bankrank.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void ofRoundsToCentsHalfUp() {
+        assertEquals(101, Money.of(new BigDecimal("1.005")).getCents());
+        assertEquals(100, Money.of(new BigDecimal("1.0049")).getCents());
+        assertEquals(-101, Money.of(new BigDecimal("-1.005")).getCents());
+    }
+
+    @Test
+    void timesRoundsHalfUpAwayFromZero() {
+        long twoAndAHalfPercent = Money.rateOf("0.025");
+
+        // 0.50 * 0.025 = 0.0125, 1.30 * 0.025 = 0.0325
+        assertEquals(1, Money.ofCents(50).times(twoAndAHalfPercent).getCents());
+        assertEquals(3, Money.ofCents(130).times(twoAndAHalfPercent).getCents());
+        // 0.20 * 0.025 = 0.005 exactly, the half rounds up
+        assertEquals(1, Money.ofCents(20).times(twoAndAHalfPercent).getCents());
+        assertEquals(-1, Money.ofCents(-20).times(twoAndAHalfPercent).getCents());
+        assertEquals(0, Money.ofCents(19).times(twoAndAHalfPercent).getCents());
+    }
+
+    @Test
+    void timesFallsBackToBigDecimalForLargeProducts() {
+        Money large = Money.ofCents(900_000_000_000_000L);
+
+        assertEquals(22_500_000_000_000L, large.times(Money.rateOf("0.025")).getCents());
+    }
+
+    @Test
+    void rateOfRefusesRatesFinerThanMillionths() {
+        assertEquals(25_000, Money.rateOf("0.025"));
+        assertEquals(1, Money.rateOf("0.000001"));
+        assertThrows(ArithmeticException.class, () -> Money.rateOf("0.0000001"));
+    }
+
+    @Test
+    void arithmeticOutsideTheColumnRangeThrows() {
+        Money max = Money.ofCents(999_999_999_999_999L);
+
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("10000000000000.00")));
+    }
+
+    @Test
+    void toStringPrintsTwoDecimals() {
+        assertEquals("1234.50", Money.ofCents(123_450).toString());
+        assertEquals("0.05", Money.ofCents(5).toString());
+        assertEquals("-0.05", Money.ofCents(-5).toString());
+        assertEquals(new BigDecimal("12.30"), Money.parse(" 12.3 ").toBigDecimal());
+    }
+}